@@ -6,15 +6,21 @@
 import java.awt.EventQueue;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.rmi.registry.LocateRegistry;
-import java.rmi.registry.Registry;
-import java.rmi.server.UnicastRemoteObject;
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.JFrame;
 
-import client.WhiteboardClientServant;
+import client.WhiteboardClient;
+import remote.TunedSocketFactory;
+import server.DispatchMode;
+import server.DrawBatching;
 import server.WhiteboardServerServant;
+import transport.Transport;
 import whiteboardapp.WhiteboardApp;
+import whiteboardapp.WhiteboardConstants;
 /**
  * This class contains the entry point of the Whiteboard host.
  * 
@@ -28,9 +34,25 @@ public class CreateWhiteBoard {
     
     /** The username of the manager/whiteboard host to connect to the server as. */
     private String username;
+    
+    /** The journal the board is written to, so that it is recovered if the host dies. */
+    private Path journal;
+    
+    /** Socket options of the calls to the server, null for the default sockets. */
+    private TunedSocketFactory sockets;
+    
+    /** The transport clients reach the server over. */
+    private Transport transport;
+    
+    /** Kind of threads calls to clients are delivered on. */
+    private DispatchMode dispatch;
+    
+    /** How draw events are batched on their way to clients. */
+    private DrawBatching batching = DrawBatching.DEFAULT;
 	
 	/**
-	 * The entry point of the Whiteboard host, it should be in the order server-port, username.
+	 * The entry point of the Whiteboard host, it should be in the order server-port, username, optionally journal-file,
+	 * followed by socket, transport, dispatch and batching options.
 	 *
 	 * @param args Command line arguments.
 	 */
@@ -41,12 +63,17 @@ public class CreateWhiteBoard {
 		}
 		
 		try {
-			Registry registry = LocateRegistry.createRegistry(createWB.port);
-			WhiteboardServerServant server = new WhiteboardServerServant(createWB.username);
-			registry.rebind("WhiteboardService", server);
+			WhiteboardServerServant server = new WhiteboardServerServant(createWB.username, createWB.journal,
+					createWB.sockets, createWB.dispatch);
+			server.setDrawBatching(createWB.batching);
+			System.out.println("Draw event batching: " + createWB.batching);
+			if (createWB.sockets != null) {
+				System.out.println("Server sockets: " + createWB.sockets);
+			}
+			Closeable endpoint = createWB.transport.serve(server, createWB.port);
 			
-			// Host is a client to itself too!
-			WhiteboardClientServant client = new WhiteboardClientServant();
+			// Host is a client to itself too! It is called in process, so it is not exported.
+			WhiteboardClient client = new WhiteboardClient();
 			server.registerClient(client, createWB.username);
 			// WHITEBOARD GUI! Run this on Event dispatch thread, Swing code is run on the same thread.
 			EventQueue.invokeLater(new Runnable() {
@@ -54,7 +81,9 @@ public class CreateWhiteBoard {
 					try {
 						WhiteboardApp app = new WhiteboardApp(server, createWB.username, true);
 						client.initialise(app.getWhiteBoard(), app.getChatArea(), app.getUserList());
-						app.getWhiteBoard().setDrawHistory(server.getDrawHistory());
+						client.initialiseJoinRequests(app.getJoinRequests());
+						client.showChatHistory(server.getChatHistory(WhiteboardConstants.CHAT_HISTORY_ON_JOIN));
+						app.getWhiteBoard().synchronise();
 						server.broadcastUserList();
 						server.broadcastMessage(createWB.username + " joined.");
 						JFrame frame = app.getFrame();
@@ -63,8 +92,8 @@ public class CreateWhiteBoard {
 				            public void windowClosed(WindowEvent e) {
 				                try {
 				                	server.broadcastManagerLeft();
-				                    registry.unbind("WhiteboardService");
-				                    UnicastRemoteObject.unexportObject(server, true);
+				                	server.discardJournal();
+				                    endpoint.close();
 				                    System.out.println("Server shut down.");
 				                } catch (Exception ex) {
 				                    ex.printStackTrace();
@@ -89,11 +118,42 @@ public class CreateWhiteBoard {
 	/**
      * The function checks for valid arguments.
      *
-     * @param args Command line arguments, it should be in the order port number, host's username.
+     * @param args Command line arguments, it should be in the order port number, host's username, optionally journal file,
+     * followed by socket, transport, dispatch and batching options.
      */
-	private Boolean isValidArgs(String[] args) {
-		if (args.length != 2) {
-			System.out.println("java -jar CreateWhiteBoard.jar <server-port> <username>");
+	private Boolean isValidArgs(String[] input) {
+		List<String> positional = new ArrayList<>();
+		List<String> options = new ArrayList<>();
+		String transportName = "rmi";
+		String dispatchName = "platform";
+		String batchingValue = null;
+		for (String arg : input) {
+			if (arg.startsWith(Transport.OPTION)) {
+				transportName = arg.substring(Transport.OPTION.length());
+			} else if (arg.startsWith(DispatchMode.OPTION)) {
+				dispatchName = arg.substring(DispatchMode.OPTION.length());
+			} else if (arg.startsWith(DrawBatching.OPTION)) {
+				batchingValue = arg.substring(DrawBatching.OPTION.length());
+			} else {
+				(arg.startsWith("--") ? options : positional).add(arg);
+			}
+		}
+		if (positional.size() != 2 && positional.size() != 3) {
+			System.out.println("java -jar CreateWhiteBoard.jar <server-port> <username> [journal-file] "
+					+ TunedSocketFactory.USAGE + " " + Transport.USAGE + " " + DispatchMode.USAGE + " "
+					+ DrawBatching.USAGE);
+			return false;
+		}
+		String[] args = positional.toArray(new String[0]);
+		try {
+			this.sockets = TunedSocketFactory.fromOptions(options);
+			this.transport = Transport.forName(transportName);
+			this.dispatch = DispatchMode.forName(dispatchName);
+			if (batchingValue != null) {
+				this.batching = DrawBatching.fromOption(batchingValue);
+			}
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
 			return false;
 		}
 		
@@ -104,6 +164,7 @@ public class CreateWhiteBoard {
 			return false;
 		}
 		this.username = args[1];
+		this.journal = Path.of(args.length == 3 ? args[2] : "whiteboard-" + this.port + ".journal");
 		return true;
 	}
 
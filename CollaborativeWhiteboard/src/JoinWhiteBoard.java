@@ -8,15 +8,19 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.rmi.registry.LocateRegistry;
-import java.rmi.registry.Registry;
-import java.rmi.server.UnicastRemoteObject;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.JFrame;
 
+import client.WhiteboardClient;
 import client.WhiteboardClientServant;
 import remote.IWhiteboardServer;
+import remote.TunedSocketFactory;
+import transport.Transport;
 import whiteboardapp.WhiteboardApp;
+import whiteboardapp.WhiteboardConstants;
 
 /**
  * This class contains the entry point of the Dictionary Client.
@@ -33,10 +37,18 @@ public class JoinWhiteBoard {
     
     /** The username of the client to connect to the server as. */
     private String username;
+    
+    /** Socket options of the calls from the server, null for the default sockets. */
+    private TunedSocketFactory sockets;
+    
+    /** The transport the server is reached over. */
+    private Transport transport;
 	/**
-     * The entry point of a Whiteboard Client, it connects to a server registered on the RMI registry.
+     * The entry point of a Whiteboard Client, it connects to a server registered on the RMI registry, or
+     * served over the NIO transport.
      *
-     * @param args Command line arguments, it should be in the order server-address, server-port, username.
+     * @param args Command line arguments, it should be in the order server-address, server-port, username,
+     * followed by socket and transport options.
      */
 	public static void main(String[] args) {
 		JoinWhiteBoard joinWB = new JoinWhiteBoard();
@@ -44,22 +56,16 @@ public class JoinWhiteBoard {
 			System.exit(1);
 		}
 		
-		Registry registry;
 		try {
-			registry = LocateRegistry.getRegistry(joinWB.serverAddress, joinWB.port);
-			IWhiteboardServer server = (IWhiteboardServer) registry.lookup("WhiteboardService");
+			IWhiteboardServer server = joinWB.transport.connect(joinWB.serverAddress, joinWB.port);
 			
-			WhiteboardClientServant client = new WhiteboardClientServant();
+			WhiteboardClient client = joinWB.newClient();
 			
 			boolean approved = server.requestJoin(client, joinWB.username);
             if (!approved) {
                 System.out.println("Join request denied.");
-                try {
-                    UnicastRemoteObject.unexportObject(client, true);
-                    System.out.println("Client shutdown cleanly.");
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                }
+                client.shutdown();
+                System.out.println("Client shutdown cleanly.");
                 System.exit(0);
             }
             
@@ -72,7 +78,8 @@ public class JoinWhiteBoard {
     					WhiteboardApp app = new WhiteboardApp(server, joinWB.username, false);
     					System.out.println("Join Whiteboard!");
     					client.initialise(app.getWhiteBoard(), app.getChatArea(), app.getUserList());
-    					app.getWhiteBoard().setDrawHistory(server.getDrawHistory());
+    					client.showChatHistory(server.getChatHistory(WhiteboardConstants.CHAT_HISTORY_ON_JOIN));
+    					app.getWhiteBoard().synchronise();
     					server.broadcastUserList();
     					server.broadcastMessage(joinWB.username + " joined.");
     					JFrame frame = app.getFrame();
@@ -81,7 +88,7 @@ public class JoinWhiteBoard {
     	                    public void windowClosed(WindowEvent e) {
     	                        try {
     	                            server.removeClient(client, joinWB.username);
-    	                            UnicastRemoteObject.unexportObject(client, true);
+    	                            client.shutdown();
     	                            System.out.println("Client shutdown cleanly.");
     	                        } catch (Exception ex) {
     	                            ex.printStackTrace();
@@ -101,14 +108,45 @@ public class JoinWhiteBoard {
 		}
 	}
 	
+	/**
+     * The function creates the client the server calls back. Only a transport that calls back over RMI
+     * needs it exported, the socket options are for those calls.
+     */
+	private WhiteboardClient newClient() throws RemoteException {
+		if (!transport.callsBackExportedClients()) {
+			return new WhiteboardClient();
+		}
+		return sockets == null ? new WhiteboardClientServant() : new WhiteboardClientServant(sockets);
+	}
+	
 	/**
      * The function checks for valid arguments.
      *
-     * @param args Command line arguments, it should be in the order server-IP, port number, client username.
+     * @param args Command line arguments, it should be in the order server-IP, port number, client username,
+     * followed by socket and transport options.
      */
-	private Boolean isValidArgs(String[] args) {
-		if (args.length != 3) {
-			System.out.println("java -jar JoinWhiteBoard.jar <server-IP-address> <server-port> <username>");
+	private Boolean isValidArgs(String[] input) {
+		List<String> positional = new ArrayList<>();
+		List<String> options = new ArrayList<>();
+		String transportName = "rmi";
+		for (String arg : input) {
+			if (arg.startsWith(Transport.OPTION)) {
+				transportName = arg.substring(Transport.OPTION.length());
+			} else {
+				(arg.startsWith("--") ? options : positional).add(arg);
+			}
+		}
+		if (positional.size() != 3) {
+			System.out.println("java -jar JoinWhiteBoard.jar <server-IP-address> <server-port> <username> "
+					+ TunedSocketFactory.USAGE + " " + Transport.USAGE);
+			return false;
+		}
+		String[] args = positional.toArray(new String[0]);
+		try {
+			this.sockets = TunedSocketFactory.fromOptions(options);
+			this.transport = Transport.forName(transportName);
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
 			return false;
 		}
 		
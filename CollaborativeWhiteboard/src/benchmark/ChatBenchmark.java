@@ -0,0 +1,217 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package benchmark;
+
+import java.awt.Color;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import remote.ChatMessage;
+import remote.DrawEvent;
+import remote.IWhiteboardClient;
+import scene.PointBuffer;
+import server.WhiteboardServerServant;
+import whiteboardapp.WhiteboardConstants;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class measures chat delivered to clients connected over RMI on loopback while the host draws: the
+ * calls made per chat message during a burst of chat, and the time for a lone draw event to reach every
+ * client on a quiet board and during the burst. It also times fetching the recent chat, as a client does
+ * when it joins.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class ChatBenchmark {
+
+	/** Number of clients connected to the host. */
+	private static final int CLIENTS = 20;
+
+	/** Number of chat messages sent in the burst. */
+	private static final int CHAT_MESSAGES = 2000;
+
+	/** Number of lone draw events timed one at a time. */
+	private static final int LONE_EVENTS = 30;
+
+	/** Most chat messages the slowest client may be behind by, kept well under its chat queue. */
+	private static final int MAX_IN_FLIGHT = WhiteboardConstants.CHAT_QUEUE_CAPACITY / 2;
+
+	/**
+	 * A client that counts the draw events, chat messages and chat calls it receives.
+	 */
+	private static class CountingClient implements IWhiteboardClient {
+		final AtomicLong events = new AtomicLong();
+		final AtomicLong messages = new AtomicLong();
+		final AtomicLong chatCalls = new AtomicLong();
+
+		@Override
+		public void receiveDrawEvent(DrawEvent event) {
+			events.incrementAndGet();
+		}
+
+		@Override
+		public void receiveDrawEvents(List<DrawEvent> batch) {
+			events.addAndGet(batch.size());
+		}
+
+		@Override
+		public void receiveStrokeBegin(long strokeId, DrawEvent header) {
+		}
+
+		@Override
+		public void receiveStrokeAppend(long strokeId, PointBuffer points) {
+		}
+
+		@Override
+		public void receiveStrokeEnd(long strokeId, long seq) {
+		}
+
+		@Override
+		public void notify(String message) {
+		}
+
+		@Override
+		public void receiveChatMessages(List<ChatMessage> batch) {
+			chatCalls.incrementAndGet();
+			messages.addAndGet(batch.size());
+		}
+
+		@Override
+		public void notifyKicked() {
+		}
+
+		@Override
+		public void heartbeat() {
+		}
+
+		@Override
+		public void notifyManagerLeft() {
+		}
+
+		@Override
+		public void updateUserList(List<String> userList) {
+		}
+
+		@Override
+		public void updateJoinRequests(List<String> usernames) {
+		}
+
+		@Override
+		public void resetWhiteboard(long seq) {
+		}
+	}
+
+	/**
+	 * Entry point of the benchmark.
+	 * @param args unused.
+	 */
+	public static void main(String[] args) throws Exception {
+		WhiteboardServerServant host = new WhiteboardServerServant("host");
+		List<CountingClient> clients = new ArrayList<>();
+		for (int i = 0; i < CLIENTS; i++) {
+			CountingClient client = new CountingClient();
+			IWhiteboardClient stub = (IWhiteboardClient) UnicastRemoteObject.exportObject(client, 0);
+			host.registerClient(stub, "user" + i);
+			clients.add(client);
+		}
+		AtomicLong drawn = new AtomicLong();
+		long quiet = loneDrawP50(host, clients, drawn);
+
+		long messages = totalMessages(clients);
+		long chatCalls = totalChatCalls(clients);
+		Thread chatter = new Thread(() -> {
+			try {
+				for (int i = 0; i < CHAT_MESSAGES; i++) {
+					while (i - slowestMessages(clients) >= MAX_IN_FLIGHT) {
+						Thread.yield(); // the clients may need this core to catch up
+					}
+					host.broadcastChatMessage("user0", "message " + i);
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}, "chatter");
+		long start = System.nanoTime();
+		chatter.start();
+		long busy = loneDrawP50(host, clients, drawn);
+		chatter.join();
+		while (totalMessages(clients) - messages < (long) CHAT_MESSAGES * CLIENTS) {
+			Thread.yield();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		double callsPerMessage = (double) (totalChatCalls(clients) - chatCalls) / ((long) CHAT_MESSAGES * CLIENTS);
+
+		long fetchStart = System.nanoTime();
+		int fetched = host.getChatHistory(WhiteboardConstants.CHAT_HISTORY_ON_JOIN).size();
+		double fetchMillis = (System.nanoTime() - fetchStart) / 1e6;
+
+		System.out.printf("chat messages/s delivered   %12.0f%n", (double) CHAT_MESSAGES * CLIENTS / seconds);
+		System.out.printf("chat calls per message      %12.3f%n", callsPerMessage);
+		System.out.printf("lone draw p50 ms, quiet     %12.2f%n", quiet / 1e6);
+		System.out.printf("lone draw p50 ms, chatting  %12.2f%n", busy / 1e6);
+		System.out.printf("history fetch ms (%d msgs) %12.3f%n", fetched, fetchMillis);
+
+		host.broadcastManagerLeft();
+		System.exit(0); // RMI keeps non-daemon threads alive
+	}
+
+	/**
+	 * Times lone draw events one at a time.
+	 * @return the median time for an event to reach every client, in nanoseconds.
+	 */
+	private static long loneDrawP50(WhiteboardServerServant host, List<CountingClient> clients, AtomicLong drawn)
+			throws Exception {
+		long[] nanos = new long[LONE_EVENTS];
+		for (int i = 0; i < LONE_EVENTS; i++) {
+			long start = System.nanoTime();
+			host.broadcastDrawEvent(stroke(i));
+			long sent = drawn.incrementAndGet();
+			for (CountingClient client : clients) {
+				while (client.events.get() < sent) {
+					Thread.yield();
+				}
+			}
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		return nanos[LONE_EVENTS / 2];
+	}
+
+	private static long slowestMessages(List<CountingClient> clients) {
+		long slowest = Long.MAX_VALUE;
+		for (CountingClient client : clients) {
+			slowest = Math.min(slowest, client.messages.get());
+		}
+		return slowest;
+	}
+
+	private static long totalMessages(List<CountingClient> clients) {
+		long messages = 0;
+		for (CountingClient client : clients) {
+			messages += client.messages.get();
+		}
+		return messages;
+	}
+
+	private static long totalChatCalls(List<CountingClient> clients) {
+		long calls = 0;
+		for (CountingClient client : clients) {
+			calls += client.chatCalls.get();
+		}
+		return calls;
+	}
+
+	private static DrawEvent stroke(int i) {
+		PointBuffer points = new PointBuffer(2);
+		points.add(i, i);
+		points.add(i + 10, i + 10);
+		return new DrawEvent(ShapeType.LINE, points, null, 2, Color.BLACK);
+	}
+}
@@ -0,0 +1,125 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package benchmark;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import remote.DrawEvent;
+import scene.PointBuffer;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class compares the compact DrawEvent wire format against default Java serialization of the same
+ * fields. It reports bytes per point and encode/decode time per event for freehand strokes of
+ * different lengths.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class CodecBenchmark {
+
+	/** Stroke lengths to measure. */
+	private static final int[] STROKE_LENGTHS = { 2, 50, 500, 5000 };
+
+	/** Number of timed round trips per stroke length. */
+	private static final int ITERATIONS = 2000;
+
+	/**
+	 * Same fields as DrawEvent before it had a custom wire format, written with default serialization.
+	 */
+	private static class LegacyDrawEvent implements Serializable {
+		private static final long serialVersionUID = 1L;
+		ShapeType type;
+		List<Point> points;
+		String text;
+		Color colour;
+		int size;
+		int fontSize;
+	}
+
+	/**
+	 * Entry point of the benchmark.
+	 * @param args unused.
+	 */
+	public static void main(String[] args) throws Exception {
+		System.out.printf("%8s %10s %10s %12s %12s %12s %12s%n", "points", "B/pt old", "B/pt new",
+				"enc ns old", "enc ns new", "dec ns old", "dec ns new");
+		for (int length : STROKE_LENGTHS) {
+			List<Point> points = freehand(length);
+			DrawEvent event = new DrawEvent(ShapeType.FREEHAND, PointBuffer.of(points), null, 4, new Color(139, 69, 19));
+			LegacyDrawEvent legacy = new LegacyDrawEvent();
+			legacy.type = event.type;
+			legacy.points = new ArrayList<>(points);
+			legacy.colour = event.colour;
+			legacy.size = event.size;
+
+			// warm up both paths before timing them
+			for (int i = 0; i < ITERATIONS; i++) {
+				deserialize(serialize(legacy));
+				deserialize(serialize(event));
+			}
+			byte[] oldBytes = serialize(legacy);
+			byte[] newBytes = serialize(event);
+			System.out.printf("%8d %10.2f %10.2f %12d %12d %12d %12d%n", length,
+					(double) oldBytes.length / length, (double) newBytes.length / length,
+					encodeNanos(legacy), encodeNanos(event), decodeNanos(oldBytes), decodeNanos(newBytes));
+		}
+	}
+
+	/**
+	 * Builds a wandering stroke like the ones produced by mouseDragged.
+	 */
+	private static List<Point> freehand(int length) {
+		List<Point> points = new ArrayList<>(length);
+		int x = 300;
+		int y = 200;
+		for (int i = 0; i < length; i++) {
+			x += (i % 7) - 3;
+			y += (i % 5) - 2;
+			points.add(new Point(x, y));
+		}
+		return points;
+	}
+
+	private static long encodeNanos(Object value) throws IOException {
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			serialize(value);
+		}
+		return (System.nanoTime() - start) / ITERATIONS;
+	}
+
+	private static long decodeNanos(byte[] bytes) throws Exception {
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			deserialize(bytes);
+		}
+		return (System.nanoTime() - start) / ITERATIONS;
+	}
+
+	private static byte[] serialize(Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(value);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Object deserialize(byte[] bytes) throws Exception {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		}
+	}
+}
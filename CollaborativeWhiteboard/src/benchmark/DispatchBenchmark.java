@@ -0,0 +1,207 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package benchmark;
+
+import java.awt.Color;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import remote.ChatMessage;
+import remote.DrawEvent;
+import remote.IWhiteboardClient;
+import scene.PointBuffer;
+import server.DispatchMode;
+import server.DrawBatching;
+import server.WhiteboardServerServant;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class compares the kinds of threads the server delivers calls to clients on, with many clients on
+ * slow links: each call to a client blocks for a while before it returns. It reports the platform threads
+ * the server needs, the processor time it uses while the board is quiet, the time for an event to reach
+ * every client, the time for a burst of events to reach every client, and how long shutting down takes.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class DispatchBenchmark {
+
+	/** Numbers of clients connected to the server. */
+	private static final int[] CLIENT_COUNTS = { 100, 1000, 4000 };
+
+	/** How long each call to a client blocks, as a round trip over a slow link would. */
+	private static final long CALL_MS = 20;
+
+	/** Number of events whose fan-out is timed one at a time. */
+	private static final int LATENCY_EVENTS = 10;
+
+	/** Number of events broadcast at once. */
+	private static final int BURST_EVENTS = 20;
+
+	/** How long the quiet board is watched for the processor time it uses. */
+	private static final long IDLE_MS = 2000;
+
+	/**
+	 * A client whose calls block before returning, counting the events it receives.
+	 */
+	private static class SlowClient implements IWhiteboardClient {
+		final AtomicLong received = new AtomicLong();
+
+		private static void block() {
+			try {
+				Thread.sleep(CALL_MS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public void receiveDrawEvent(DrawEvent event) {
+			block();
+			received.incrementAndGet();
+		}
+
+		@Override
+		public void receiveDrawEvents(List<DrawEvent> events) {
+			block();
+			received.addAndGet(events.size());
+		}
+
+		@Override
+		public void receiveStrokeBegin(long strokeId, DrawEvent header) {
+		}
+
+		@Override
+		public void receiveStrokeAppend(long strokeId, PointBuffer points) {
+		}
+
+		@Override
+		public void receiveStrokeEnd(long strokeId, long seq) {
+		}
+
+		@Override
+		public void notify(String message) {
+			block();
+		}
+
+		@Override
+		public void receiveChatMessages(List<ChatMessage> messages) {
+			block();
+		}
+
+		@Override
+		public void notifyKicked() {
+		}
+
+		@Override
+		public void heartbeat() {
+			block();
+		}
+
+		@Override
+		public void notifyManagerLeft() {
+			block();
+		}
+
+		@Override
+		public void updateUserList(List<String> userList) {
+			block();
+		}
+
+		@Override
+		public void updateJoinRequests(List<String> usernames) {
+		}
+
+		@Override
+		public void resetWhiteboard(long seq) {
+		}
+	}
+
+	/**
+	 * Entry point of the benchmark.
+	 * @param args unused.
+	 */
+	public static void main(String[] args) throws Exception {
+		System.out.printf("%-9s %8s %17s %12s %14s %9s %12s%n", "dispatch", "clients", "platform threads",
+				"idle cpu %", "fan-out p50 ms", "burst ms", "shutdown ms");
+		for (int clients : CLIENT_COUNTS) {
+			for (DispatchMode mode : DispatchMode.values()) {
+				run(mode, clients);
+			}
+		}
+		System.exit(0); // RMI keeps non-daemon threads alive
+	}
+
+	private static void run(DispatchMode mode, int count) throws Exception {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		com.sun.management.OperatingSystemMXBean os = (com.sun.management.OperatingSystemMXBean) ManagementFactory
+				.getOperatingSystemMXBean();
+		Path journal = Files.createTempFile("dispatch", ".journal");
+		Files.delete(journal);
+		int baseline = threads.getThreadCount();
+		WhiteboardServerServant host = new WhiteboardServerServant("host", journal, null, mode);
+		host.setDrawBatching(DrawBatching.OFF); // one call per event, so only the threads differ
+		List<SlowClient> clients = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			SlowClient client = new SlowClient();
+			host.registerClient(client, "user" + i);
+			clients.add(client);
+		}
+		int platformThreads = threads.getThreadCount() - baseline;
+
+		long cpuStart = os.getProcessCpuTime();
+		Thread.sleep(IDLE_MS);
+		double idleCpu = 100.0 * (os.getProcessCpuTime() - cpuStart) / (IDLE_MS * 1_000_000);
+
+		long sent = 0;
+		long[] nanos = new long[LATENCY_EVENTS];
+		for (int i = 0; i < LATENCY_EVENTS; i++) {
+			long start = System.nanoTime();
+			host.broadcastDrawEvent(stroke(i));
+			awaitAll(clients, ++sent);
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < BURST_EVENTS; i++) {
+			host.broadcastDrawEvent(stroke(i));
+		}
+		sent += BURST_EVENTS;
+		awaitAll(clients, sent);
+		double burstMillis = (System.nanoTime() - start) / 1e6;
+
+		start = System.nanoTime();
+		host.broadcastManagerLeft();
+		double shutdownMillis = (System.nanoTime() - start) / 1e6;
+		host.discardJournal();
+
+		System.out.printf("%-9s %8d %17d %12.1f %14.1f %9.0f %12.0f%n", mode.name().toLowerCase(), count,
+				platformThreads, idleCpu, nanos[LATENCY_EVENTS / 2] / 1e6, burstMillis, shutdownMillis);
+		Thread.sleep(500); // let the dispatchers of this run finish
+	}
+
+	private static void awaitAll(List<SlowClient> clients, long sent) throws InterruptedException {
+		for (SlowClient client : clients) {
+			while (client.received.get() < sent) {
+				Thread.sleep(1);
+			}
+		}
+	}
+
+	private static DrawEvent stroke(int i) {
+		PointBuffer points = new PointBuffer(2);
+		points.add(i, i);
+		points.add(i + 10, i + 10);
+		return new DrawEvent(ShapeType.LINE, points, null, 2, Color.BLACK);
+	}
+}
@@ -0,0 +1,221 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package benchmark;
+
+import java.awt.Color;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import remote.ChatMessage;
+import remote.DrawEvent;
+import remote.IWhiteboardClient;
+import scene.PointBuffer;
+import server.DrawBatching;
+import server.WhiteboardServerServant;
+import whiteboardapp.WhiteboardConstants;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class measures batching of draw events on their way to clients connected over RMI on loopback,
+ * with several settings of the batch size and window: the events delivered per second and the calls made
+ * per event during a burst, how long the events of the burst were held back to batch them, and the time
+ * for a lone event to reach every client, which the window adds to.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class DrawBatchingBenchmark {
+
+	/** Number of clients connected to the host. */
+	private static final int CLIENTS = 20;
+
+	/** Number of events broadcast back to back. */
+	private static final int BURST_EVENTS = 4000;
+
+	/** Number of lone events timed one at a time. */
+	private static final int LONE_EVENTS = 30;
+
+	/** Most events the slowest client may be behind by, kept well under the outbox's capacity. */
+	private static final int MAX_IN_FLIGHT = WhiteboardConstants.OUTBOUND_QUEUE_CAPACITY / 2;
+
+	/**
+	 * A client that counts the events and the calls it receives.
+	 */
+	private static class CountingClient implements IWhiteboardClient {
+		final AtomicLong received = new AtomicLong();
+		final AtomicLong calls = new AtomicLong();
+
+		@Override
+		public void receiveDrawEvent(DrawEvent event) {
+			calls.incrementAndGet();
+			received.incrementAndGet();
+		}
+
+		@Override
+		public void receiveDrawEvents(List<DrawEvent> events) {
+			calls.incrementAndGet();
+			received.addAndGet(events.size());
+		}
+
+		@Override
+		public void receiveStrokeBegin(long strokeId, DrawEvent header) {
+		}
+
+		@Override
+		public void receiveStrokeAppend(long strokeId, PointBuffer points) {
+		}
+
+		@Override
+		public void receiveStrokeEnd(long strokeId, long seq) {
+		}
+
+		@Override
+		public void notify(String message) {
+		}
+
+		@Override
+		public void receiveChatMessages(List<ChatMessage> messages) {
+		}
+
+		@Override
+		public void notifyKicked() {
+		}
+
+		@Override
+		public void heartbeat() {
+		}
+
+		@Override
+		public void notifyManagerLeft() {
+		}
+
+		@Override
+		public void updateUserList(List<String> userList) {
+		}
+
+		@Override
+		public void updateJoinRequests(List<String> usernames) {
+		}
+
+		@Override
+		public void resetWhiteboard(long seq) {
+		}
+	}
+
+	/**
+	 * Entry point of the benchmark.
+	 * @param args unused.
+	 */
+	public static void main(String[] args) throws Exception {
+		DrawBatching[] settings = { DrawBatching.OFF, new DrawBatching(64, 0), DrawBatching.DEFAULT,
+				new DrawBatching(64, 5), new DrawBatching(64, 20) };
+		System.out.printf("%-28s %14s %12s %16s %14s%n", "batching", "deliveries/s", "calls/event",
+				"held ms/event", "lone p50 ms");
+		for (DrawBatching batching : settings) {
+			run(batching);
+		}
+		System.exit(0); // RMI keeps non-daemon threads alive
+	}
+
+	private static void run(DrawBatching batching) throws Exception {
+		WhiteboardServerServant host = new WhiteboardServerServant("host");
+		host.setDrawBatching(batching);
+		List<CountingClient> clients = new ArrayList<>();
+		for (int i = 0; i < CLIENTS; i++) {
+			CountingClient client = new CountingClient();
+			IWhiteboardClient stub = (IWhiteboardClient) UnicastRemoteObject.exportObject(client, 0);
+			host.registerClient(stub, "user" + i);
+			clients.add(client);
+		}
+		Random random = new Random(11);
+		long sent = 0;
+		for (int i = 0; i < BURST_EVENTS / 4; i++) {
+			sent = broadcast(host, randomStroke(random), clients, sent); // warm up
+		}
+		awaitAll(clients, sent);
+
+		long calls = totalCalls(clients);
+		long heldNanos = host.getDrawBatchHeldNanos();
+		long batched = host.getDrawBatchEvents();
+		long start = System.nanoTime();
+		for (int i = 0; i < BURST_EVENTS; i++) {
+			sent = broadcast(host, randomStroke(random), clients, sent);
+		}
+		awaitAll(clients, sent);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		double callsPerEvent = (double) (totalCalls(clients) - calls) / ((long) BURST_EVENTS * CLIENTS);
+		long heldEvents = host.getDrawBatchEvents() - batched;
+		double heldMillis = heldEvents == 0 ? 0 : (host.getDrawBatchHeldNanos() - heldNanos) / 1e6 / heldEvents;
+
+		long[] nanos = new long[LONE_EVENTS];
+		for (int i = 0; i < LONE_EVENTS; i++) {
+			long loneStart = System.nanoTime();
+			sent = broadcast(host, randomStroke(random), clients, sent);
+			awaitAll(clients, sent);
+			nanos[i] = System.nanoTime() - loneStart;
+		}
+		Arrays.sort(nanos);
+
+		System.out.printf("%-28s %14.0f %12.3f %16.2f %14.2f%n", batching,
+				(double) BURST_EVENTS * CLIENTS / seconds, callsPerEvent, heldMillis, nanos[LONE_EVENTS / 2] / 1e6);
+
+		host.broadcastManagerLeft();
+		for (CountingClient client : clients) {
+			UnicastRemoteObject.unexportObject(client, true);
+		}
+	}
+
+	/**
+	 * Broadcasts an event as the host, first waiting while the slowest client is too far behind.
+	 * @return the number of events sent.
+	 */
+	private static long broadcast(WhiteboardServerServant host, DrawEvent event, List<CountingClient> clients,
+			long sent) throws Exception {
+		while (sent - slowest(clients) >= MAX_IN_FLIGHT) {
+			Thread.yield(); // the clients may need this core to catch up
+		}
+		host.broadcastDrawEvent(event);
+		return sent + 1;
+	}
+
+	private static void awaitAll(List<CountingClient> clients, long sent) {
+		while (slowest(clients) < sent) {
+			Thread.yield();
+		}
+	}
+
+	private static long slowest(List<CountingClient> clients) {
+		long slowest = Long.MAX_VALUE;
+		for (CountingClient client : clients) {
+			slowest = Math.min(slowest, client.received.get());
+		}
+		return slowest;
+	}
+
+	private static long totalCalls(List<CountingClient> clients) {
+		long calls = 0;
+		for (CountingClient client : clients) {
+			calls += client.calls.get();
+		}
+		return calls;
+	}
+
+	private static DrawEvent randomStroke(Random random) {
+		PointBuffer points = new PointBuffer(16);
+		int x = random.nextInt(WhiteboardConstants.BOARD_WIDTH);
+		int y = random.nextInt(WhiteboardConstants.BOARD_HEIGHT);
+		for (int k = 0; k < 16; k++) {
+			x += random.nextInt(9) - 4;
+			y += random.nextInt(9) - 4;
+			points.add(x, y);
+		}
+		return new DrawEvent(ShapeType.FREEHAND, points, null, 2, Color.BLACK);
+	}
+}
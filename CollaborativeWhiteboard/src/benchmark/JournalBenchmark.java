@@ -0,0 +1,124 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package benchmark;
+
+import java.awt.Color;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import remote.DrawEvent;
+import scene.BaseImage;
+import scene.PointBuffer;
+import server.BoardJournal;
+import whiteboardapp.WhiteboardConstants;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class measures the server's journal: how fast a million draw events can be appended with group
+ * commits, how long replaying them takes when the server recovers, and what syncing after every event
+ * would cost instead.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class JournalBenchmark {
+
+	/** Number of events in the journal. */
+	private static final int EVENTS = 1_000_000;
+
+	/** Number of events appended with a sync after each one, which is too slow to do a million times. */
+	private static final int SYNCED_EVENTS = 2_000;
+
+	/** Points in each freehand stroke, about what a short stroke keeps once simplified. */
+	private static final int POINTS = 16;
+
+	/**
+	 * Entry point of the benchmark.
+	 * @param args optional directory to put the journal in, the temporary directory otherwise.
+	 */
+	public static void main(String[] args) throws Exception {
+		Path dir = args.length > 0 ? Path.of(args[0]) : Path.of(System.getProperty("java.io.tmpdir"));
+		Path file = Files.createTempFile(dir, "benchmark", ".journal");
+		Files.delete(file);
+		Random random = new Random(42);
+		DrawEvent[] events = new DrawEvent[EVENTS];
+		for (int i = 0; i < EVENTS; i++) {
+			events[i] = randomStroke(random);
+			events[i].seq = i + 1;
+			events[i].id = i + 1;
+		}
+
+		BoardJournal journal = BoardJournal.open(file, WhiteboardConstants.JOURNAL_GROUP_COMMIT_MS, new Counter());
+		journal.checkpoint(0, 0, new BaseImage(), List.of());
+		long start = System.nanoTime();
+		for (DrawEvent event : events) {
+			journal.append(event);
+		}
+		long appendNanos = System.nanoTime() - start;
+		journal.sync();
+		long durableNanos = System.nanoTime() - start;
+		long commits = journal.getCommitCount();
+		journal.close();
+		long bytes = Files.size(file);
+
+		Counter replayed = new Counter();
+		start = System.nanoTime();
+		BoardJournal recovered = BoardJournal.open(file, WhiteboardConstants.JOURNAL_GROUP_COMMIT_MS, replayed);
+		long recoveryNanos = System.nanoTime() - start;
+		recovered.discard();
+
+		BoardJournal synced = BoardJournal.open(file, WhiteboardConstants.JOURNAL_GROUP_COMMIT_MS, new Counter());
+		start = System.nanoTime();
+		for (int i = 0; i < SYNCED_EVENTS; i++) {
+			synced.append(events[i]);
+			synced.sync();
+		}
+		long syncedNanos = System.nanoTime() - start;
+		synced.discard();
+
+		System.out.printf("events: %d, %d points each, journal %.1f MB (%.1f bytes per event)%n", EVENTS, POINTS,
+				bytes / 1e6, (double) bytes / EVENTS);
+		System.out.printf("append to memory:              %10.0f events/s%n", EVENTS / (appendNanos / 1e9));
+		System.out.printf("append until durable:          %10.0f events/s (%d group commits)%n",
+				EVENTS / (durableNanos / 1e9), commits);
+		System.out.printf("sync after every event:        %10.0f events/s%n", SYNCED_EVENTS / (syncedNanos / 1e9));
+		System.out.printf("recovery (replay %d events):   %8.0f ms%n", replayed.events, recoveryNanos / 1e6);
+	}
+
+	/**
+	 * Counts the events replayed from a journal.
+	 */
+	private static class Counter implements BoardJournal.Visitor {
+		int events = 0;
+
+		@Override
+		public void checkpoint(long resetSeq, long latestSeq) {
+		}
+
+		@Override
+		public void tile(long key, byte[] png) {
+		}
+
+		@Override
+		public void event(DrawEvent event) {
+			events++;
+		}
+	}
+
+	private static DrawEvent randomStroke(Random random) {
+		PointBuffer points = new PointBuffer(POINTS);
+		int x = random.nextInt(WhiteboardConstants.BOARD_WIDTH);
+		int y = random.nextInt(WhiteboardConstants.BOARD_HEIGHT);
+		for (int k = 0; k < POINTS; k++) {
+			x += random.nextInt(9) - 4;
+			y += random.nextInt(9) - 4;
+			points.add(x, y);
+		}
+		return new DrawEvent(ShapeType.FREEHAND, points, null, 1 + random.nextInt(4), new Color(random.nextInt(0xFFFFFF)));
+	}
+}
@@ -0,0 +1,155 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package benchmark;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import remote.DrawEvent;
+import remote.DrawEventCodec;
+import scene.PointBuffer;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class compares storing the points of a 10k-point stroke as a list of Point objects against a
+ * PointBuffer of interleaved ints. It reports bytes allocated to build the stroke one point at a time
+ * as mouseDragged does, to copy it, and to decode it from the wire format, and the heap retained by
+ * the finished stroke.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class PointStorageBenchmark {
+
+	/** Number of points in the stroke. */
+	private static final int POINTS = 10_000;
+
+	/** Number of strokes kept alive to measure retained heap. */
+	private static final int COPIES = 100;
+
+	/** Number of warm up repetitions. */
+	private static final int WARMUP = 200;
+
+	/**
+	 * Allocation counter of the current thread.
+	 */
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	/**
+	 * Entry point of the benchmark.
+	 * @param args unused.
+	 */
+	public static void main(String[] args) throws Exception {
+		byte[] encoded = encode(buildBuffer());
+		for (int i = 0; i < WARMUP; i++) {
+			copyList(buildList());
+			buildBuffer().copy();
+			decode(encoded);
+		}
+
+		long start = allocated();
+		List<Point> list = buildList();
+		long listBuild = allocated() - start;
+		start = allocated();
+		copyList(list);
+		long listCopy = allocated() - start;
+
+		start = allocated();
+		PointBuffer buffer = buildBuffer();
+		long bufferBuild = allocated() - start;
+		start = allocated();
+		buffer.copy();
+		long bufferCopy = allocated() - start;
+		start = allocated();
+		decode(encoded);
+		long bufferDecode = allocated() - start;
+
+		System.out.printf("stroke of %d points, wire format %d bytes%n", POINTS, encoded.length);
+		System.out.printf("%-28s %14s %14s%n", "", "List<Point>", "PointBuffer");
+		System.out.printf("%-28s %14d %14d%n", "allocated to build (bytes)", listBuild, bufferBuild);
+		System.out.printf("%-28s %14d %14d%n", "allocated to copy (bytes)", listCopy, bufferCopy);
+		System.out.printf("%-28s %14s %14d%n", "allocated to decode (bytes)", "-", bufferDecode);
+		System.out.printf("%-28s %14.1f %14.1f%n", "retained per point (bytes)",
+				retainedPerPoint(() -> copyList(buildList())), retainedPerPoint(() -> buildBuffer().copy()));
+	}
+
+	private static List<Point> buildList() {
+		List<Point> points = new ArrayList<>();
+		for (int i = 0; i < POINTS; i++) {
+			points.add(new Point(300 + (i % 7) - 3, 200 + (i % 5) - 2));
+		}
+		return points;
+	}
+
+	private static PointBuffer buildBuffer() {
+		PointBuffer points = new PointBuffer();
+		for (int i = 0; i < POINTS; i++) {
+			points.add(300 + (i % 7) - 3, 200 + (i % 5) - 2);
+		}
+		return points;
+	}
+
+	/**
+	 * Copies a list of points the way drawables used to, cloning every point.
+	 */
+	private static List<Point> copyList(List<Point> points) {
+		List<Point> copy = new ArrayList<>(points.size());
+		for (Point p : points) {
+			copy.add(new Point(p));
+		}
+		return copy;
+	}
+
+	private static byte[] encode(PointBuffer points) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DrawEventCodec.write(new DataOutputStream(bytes), new DrawEvent(ShapeType.FREEHAND, points, null, 3, Color.BLACK));
+		return bytes.toByteArray();
+	}
+
+	private static DrawEvent decode(byte[] bytes) throws IOException {
+		DrawEvent event = new DrawEvent();
+		DrawEventCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)), event);
+		return event;
+	}
+
+	private static long allocated() {
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().threadId());
+	}
+
+	/**
+	 * Heap retained per point by strokes kept alive, averaged over several strokes.
+	 */
+	private static double retainedPerPoint(java.util.function.Supplier<Object> stroke) throws InterruptedException {
+		Object[] kept = new Object[COPIES];
+		long before = usedHeap();
+		for (int i = 0; i < COPIES; i++) {
+			kept[i] = stroke.get();
+		}
+		long after = usedHeap();
+		if (kept[COPIES - 1] == null) {
+			throw new IllegalStateException();
+		}
+		return (after - before) / (double) COPIES / POINTS;
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
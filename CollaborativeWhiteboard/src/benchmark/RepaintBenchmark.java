@@ -0,0 +1,156 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package benchmark;
+
+import java.awt.Color;
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+
+import remote.DrawEvent;
+import scene.Drawable;
+import scene.PointBuffer;
+import whiteboardapp.SpatialIndex;
+import whiteboardapp.Whiteboard;
+import whiteboardapp.WhiteboardConstants;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class measures repaint cost on a whiteboard holding 100k drawables. It compares repainting the
+ * whole board against repainting a small dirty rectangle, and a spatial index query against a scan of
+ * the whole draw history.
+ *
+ * Run with -Djava.awt.headless=true on machines without a display.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class RepaintBenchmark {
+
+	/** Number of drawables on the board. */
+	private static final int DRAWABLES = 100_000;
+
+	/** Size of the board, the same as the whiteboard in the application window. */
+	private static final int WIDTH = 750;
+	private static final int HEIGHT = 500;
+
+	/** Size of the dirty rectangle, about what a single mouse drag repaints. */
+	private static final int DIRTY_SIZE = 32;
+
+	/** Number of timed repetitions. */
+	private static final int ROUNDS = 20;
+
+	/**
+	 * Entry point of the benchmark.
+	 * @param args unused.
+	 */
+	public static void main(String[] args) throws Exception {
+		EventQueue.invokeAndWait(() -> run());
+		System.exit(0);
+	}
+
+	private static void run() {
+		Whiteboard whiteboard = new Whiteboard(null, "benchmark");
+		whiteboard.setSize(WIDTH, HEIGHT);
+		Random random = new Random(42);
+
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		for (int i = 0; i < DRAWABLES; i++) {
+			whiteboard.addDrawableFromNetwork(randomStroke(random));
+		}
+		System.setOut(out);
+		List<Drawable> history = whiteboard.getDrawHistory();
+		BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+		long fullNanos = 0;
+		long dirtyNanos = 0;
+		long rebuildNanos = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			long start = System.nanoTime();
+			whiteboard.setDrawHistory(history);
+			rebuildNanos += System.nanoTime() - start;
+			fullNanos += paint(whiteboard, screen, new Rectangle(0, 0, WIDTH, HEIGHT));
+
+			whiteboard.setDrawHistory(history);
+			Rectangle dirty = new Rectangle(random.nextInt(WIDTH - DIRTY_SIZE), random.nextInt(HEIGHT - DIRTY_SIZE),
+					DIRTY_SIZE, DIRTY_SIZE);
+			dirtyNanos += paint(whiteboard, screen, dirty);
+		}
+
+		long appendNanos = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			DrawEvent event = randomStroke(random);
+			System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+			whiteboard.addDrawableFromNetwork(event);
+			System.setOut(out);
+			Drawable added = history.get(history.size() - 1);
+			appendNanos += paint(whiteboard, screen, added.getBounds());
+		}
+
+		SpatialIndex<Drawable> index = new SpatialIndex<>(WhiteboardConstants.INDEX_CELL_SIZE,
+				WhiteboardConstants.INDEX_MAX_CELLS_PER_ITEM);
+		for (Drawable item : history) {
+			index.insert(item, item.getBounds());
+		}
+		long queryNanos = 0;
+		long scanNanos = 0;
+		int found = 0;
+		for (int i = 0; i < ROUNDS * 50; i++) {
+			Rectangle region = new Rectangle(random.nextInt(WIDTH - DIRTY_SIZE), random.nextInt(HEIGHT - DIRTY_SIZE),
+					DIRTY_SIZE, DIRTY_SIZE);
+			long start = System.nanoTime();
+			found += index.query(region).size();
+			queryNanos += System.nanoTime() - start;
+			start = System.nanoTime();
+			for (Drawable item : history) {
+				if (item.getBounds().intersects(region)) {
+					found--;
+				}
+			}
+			scanNanos += System.nanoTime() - start;
+		}
+
+		System.out.printf("drawables: %d, board %dx%d, dirty rectangle %dx%d%n", history.size(), WIDTH, HEIGHT,
+				DIRTY_SIZE, DIRTY_SIZE);
+		System.out.printf("full board repaint:            %8.2f ms%n", fullNanos / 1e6 / ROUNDS);
+		System.out.printf("dirty rectangle repaint:       %8.2f ms%n", dirtyNanos / 1e6 / ROUNDS);
+		System.out.printf("repaint of one new drawable:   %8.2f ms%n", appendNanos / 1e6 / ROUNDS);
+		System.out.printf("index rebuild (setDrawHistory):%8.2f ms%n", rebuildNanos / 1e6 / ROUNDS);
+		System.out.printf("index query:                   %8.2f us%n", queryNanos / 1e3 / (ROUNDS * 50));
+		System.out.printf("linear scan of bounds:         %8.2f us%n", scanNanos / 1e3 / (ROUNDS * 50));
+		if (found != 0) {
+			System.out.println("index and scan disagree by " + found);
+		}
+	}
+
+	private static long paint(Whiteboard whiteboard, BufferedImage screen, Rectangle clip) {
+		Graphics2D g = screen.createGraphics();
+		g.setClip(clip);
+		long start = System.nanoTime();
+		whiteboard.paint(g);
+		long elapsed = System.nanoTime() - start;
+		g.dispose();
+		return elapsed;
+	}
+
+	private static DrawEvent randomStroke(Random random) {
+		PointBuffer points = new PointBuffer(8);
+		int x = random.nextInt(WIDTH);
+		int y = random.nextInt(HEIGHT);
+		for (int k = 0; k < 8; k++) {
+			x += random.nextInt(9) - 4;
+			y += random.nextInt(9) - 4;
+			points.add(x, y);
+		}
+		return new DrawEvent(ShapeType.FREEHAND, points, null, 1 + random.nextInt(4), new Color(random.nextInt(0xFFFFFF)));
+	}
+}
@@ -0,0 +1,182 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package benchmark;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.JPanel;
+
+import scene.Drawable;
+import scene.NormalStroke;
+import scene.PointBuffer;
+import scene.ShapeInfo;
+import scene.TextField;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class measures the snapshot of a board as it is sent to joining users and saved to file. It
+ * compares drawables as inner classes of the whiteboard panel, which drag the panel into every
+ * snapshot, against the scene model. It reports snapshot bytes, serialize/deserialize time and heap
+ * retained per drawable.
+ *
+ * Run with -Djava.awt.headless=true on machines without a display.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class SnapshotBenchmark {
+
+	/** Board sizes to measure. */
+	private static final int[] BOARD_SIZES = { 1, 2000, 20_000 };
+
+	/** Number of timed round trips per board size. */
+	private static final int ROUNDS = 10;
+
+	/** Number of deserialized copies kept alive to measure retained heap. */
+	private static final int COPIES = 5;
+
+	/**
+	 * Same layout as the whiteboard before the scene model: drawables are inner classes of the panel.
+	 */
+	private static class LegacyBoard extends JPanel {
+		private static final long serialVersionUID = 1L;
+		List<LegacyDrawable> drawHistory = new ArrayList<>();
+
+		class LegacyDrawable implements Serializable {
+			private static final long serialVersionUID = 1L;
+			ShapeType type;
+			List<Point> points;
+			String text;
+			Color color;
+			int size;
+		}
+	}
+
+	/**
+	 * Entry point of the benchmark.
+	 * @param args unused.
+	 */
+	public static void main(String[] args) throws Exception {
+		System.out.printf("%9s %10s %10s %10s %10s %10s %10s %10s %10s%n", "drawables", "B/d old", "B/d new",
+				"ser ms old", "ser ms new", "deser old", "deser new", "heap old", "heap new");
+		for (int count : BOARD_SIZES) {
+			LegacyBoard board = new LegacyBoard();
+			List<Drawable> scene = new ArrayList<>();
+			Random random = new Random(7);
+			for (int i = 0; i < count; i++) {
+				ShapeType type = i % 10 == 0 ? ShapeType.RECTANGLE : i % 25 == 1 ? ShapeType.TEXT : ShapeType.FREEHAND;
+				List<Point> points = randomStroke(random, type == ShapeType.RECTANGLE ? 2 : type == ShapeType.TEXT ? 1 : 50);
+				Color colour = new Color(random.nextInt(0xFFFFFF));
+				String text = type == ShapeType.TEXT ? "note " + i : null;
+
+				LegacyBoard.LegacyDrawable legacy = board.new LegacyDrawable();
+				legacy.type = type;
+				legacy.points = points;
+				legacy.text = text;
+				legacy.color = colour;
+				legacy.size = 3;
+				board.drawHistory.add(legacy);
+
+				if (type == ShapeType.FREEHAND) {
+					scene.add(new NormalStroke(PointBuffer.of(points), colour, 3));
+				} else if (type == ShapeType.TEXT) {
+					scene.add(new TextField(text, points.get(0).x, points.get(0).y, colour, 3));
+				} else {
+					scene.add(new ShapeInfo(type, points.get(0), points.get(1), colour, 3));
+				}
+			}
+
+			// warm up both paths before timing them
+			for (int i = 0; i < ROUNDS; i++) {
+				deserialize(serialize(board.drawHistory));
+				deserialize(serialize(scene));
+			}
+			byte[] oldBytes = serialize(board.drawHistory);
+			byte[] newBytes = serialize(scene);
+			System.out.printf("%9d %10.1f %10.1f %10.2f %10.2f %10.2f %10.2f %10.0f %10.0f%n", count,
+					(double) oldBytes.length / count, (double) newBytes.length / count,
+					encodeMillis(board.drawHistory), encodeMillis(scene), decodeMillis(oldBytes), decodeMillis(newBytes),
+					retainedBytes(oldBytes) / count, retainedBytes(newBytes) / count);
+		}
+	}
+
+	private static List<Point> randomStroke(Random random, int length) {
+		List<Point> points = new ArrayList<>(length);
+		int x = random.nextInt(750);
+		int y = random.nextInt(500);
+		for (int k = 0; k < length; k++) {
+			x += random.nextInt(9) - 4;
+			y += random.nextInt(9) - 4;
+			points.add(new Point(x, y));
+		}
+		return points;
+	}
+
+	private static double encodeMillis(Object value) throws IOException {
+		long start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			serialize(value);
+		}
+		return (System.nanoTime() - start) / 1e6 / ROUNDS;
+	}
+
+	private static double decodeMillis(byte[] bytes) throws Exception {
+		long start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			deserialize(bytes);
+		}
+		return (System.nanoTime() - start) / 1e6 / ROUNDS;
+	}
+
+	/**
+	 * Heap used by one deserialized copy of a snapshot, averaged over several copies kept alive.
+	 */
+	private static double retainedBytes(byte[] bytes) throws Exception {
+		Object[] copies = new Object[COPIES];
+		long before = usedHeap();
+		for (int i = 0; i < COPIES; i++) {
+			copies[i] = deserialize(bytes);
+		}
+		long after = usedHeap();
+		if (copies[COPIES - 1] == null) {
+			throw new IllegalStateException();
+		}
+		return (after - before) / (double) COPIES;
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static byte[] serialize(Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(value);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Object deserialize(byte[] bytes) throws Exception {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package benchmark;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import remote.DrawEvent;
+import remote.DrawEventCodec;
+import remote.SnapshotPage;
+import scene.PointBuffer;
+import whiteboardapp.WhiteboardConstants;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class measures compressing the events of snapshot pages: the size they are sent at and the CPU
+ * time spent compressing a whole snapshot and decompressing and decoding it, per compression level, and how much
+ * pages of different sizes shrink, to choose {@link WhiteboardConstants#SNAPSHOT_DEFLATE_MIN_BYTES}.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class SnapshotCompressionBenchmark {
+
+	/** Board sizes to measure, in drawables. */
+	private static final int[] BOARD_SIZES = { 1000, 10_000 };
+
+	/** Compression levels to measure. */
+	private static final int[] LEVELS = { 1, 6, 9 };
+
+	/** Page sizes to measure how much they shrink. */
+	private static final int[] PAGE_SIZES = { 256, 1024, 4096, 16 * 1024, 64 * 1024 };
+
+	/** Number of timed rounds per measurement. */
+	private static final int ROUNDS = 20;
+
+	/**
+	 * Entry point of the benchmark.
+	 * @param args unused.
+	 */
+	public static void main(String[] args) throws Exception {
+		System.out.printf("%9s %6s %10s %10s %7s %12s %12s%n", "drawables", "level", "raw KB", "sent KB", "ratio",
+				"deflate ms", "decode ms");
+		for (int count : BOARD_SIZES) {
+			List<SnapshotPage> pages = paginate(randomBoard(new Random(11), count),
+					WhiteboardConstants.SNAPSHOT_PAGE_BYTES);
+			long raw = 0;
+			for (SnapshotPage page : pages) {
+				raw += page.getRawByteCount();
+			}
+			for (int level : LEVELS) {
+				List<SnapshotPage> deflated = new ArrayList<>();
+				for (int i = 0; i < ROUNDS; i++) {
+					deflated = deflate(pages, level); // warm up
+				}
+				long start = System.nanoTime();
+				for (int i = 0; i < ROUNDS; i++) {
+					deflate(pages, level);
+				}
+				double deflateMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+				for (int i = 0; i < ROUNDS; i++) {
+					inflate(deflated);
+				}
+				start = System.nanoTime();
+				for (int i = 0; i < ROUNDS; i++) {
+					inflate(deflated);
+				}
+				double inflateMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+				long sent = 0;
+				for (SnapshotPage page : deflated) {
+					sent += page.getByteCount();
+				}
+				System.out.printf("%9d %6d %10.1f %10.1f %6.0f%% %12.2f %12.2f%n", count, level, raw / 1024.0,
+						sent / 1024.0, 100.0 * sent / raw, deflateMillis, inflateMillis);
+			}
+		}
+
+		System.out.println();
+		System.out.printf("%10s %10s %7s %14s%n", "page bytes", "sent", "ratio", "deflate us");
+		List<DrawEvent> board = randomBoard(new Random(13), 2000);
+		for (int size : PAGE_SIZES) {
+			SnapshotPage page = paginate(board, size).get(0);
+			SnapshotPage deflated = page;
+			for (int i = 0; i < ROUNDS * 50; i++) {
+				deflated = page.deflate(WhiteboardConstants.SNAPSHOT_DEFLATE_LEVEL);
+			}
+			long start = System.nanoTime();
+			for (int i = 0; i < ROUNDS * 50; i++) {
+				page.deflate(WhiteboardConstants.SNAPSHOT_DEFLATE_LEVEL);
+			}
+			double micros = (System.nanoTime() - start) / 1e3 / (ROUNDS * 50);
+			System.out.printf("%10d %10d %6.0f%% %14.1f%n", page.getRawByteCount(), deflated.getByteCount(),
+					100.0 * deflated.getByteCount() / page.getRawByteCount(), micros);
+		}
+	}
+
+	private static List<SnapshotPage> deflate(List<SnapshotPage> pages, int level) {
+		List<SnapshotPage> deflated = new ArrayList<>(pages.size());
+		for (SnapshotPage page : pages) {
+			deflated.add(page.deflate(level));
+		}
+		return deflated;
+	}
+
+	private static void inflate(List<SnapshotPage> pages) throws IOException {
+		for (SnapshotPage page : pages) {
+			page.getEvents();
+		}
+	}
+
+	/**
+	 * Cuts events into pages of about the given size, as the server does.
+	 */
+	private static List<SnapshotPage> paginate(List<DrawEvent> events, int pageBytes) throws IOException {
+		List<SnapshotPage> pages = new ArrayList<>();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		int count = 0;
+		for (int i = 0; i < events.size(); i++) {
+			DrawEventCodec.write(out, events.get(i));
+			count++;
+			if (out.size() >= pageBytes || i == events.size() - 1) {
+				pages.add(new SnapshotPage(1, i + 1, i == events.size() - 1, new long[0], new byte[0][], count,
+						bytes.toByteArray()));
+				bytes.reset();
+				out = new DataOutputStream(bytes);
+				count = 0;
+			}
+		}
+		return pages;
+	}
+
+	/**
+	 * A board of mostly freehand strokes with some shapes and text, in the colours of the palette.
+	 */
+	private static List<DrawEvent> randomBoard(Random random, int count) {
+		Color[] palette = { Color.BLACK, Color.RED, Color.BLUE, Color.GREEN, Color.ORANGE };
+		List<DrawEvent> events = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			ShapeType type = i % 10 == 0 ? ShapeType.RECTANGLE : i % 25 == 1 ? ShapeType.TEXT : ShapeType.FREEHAND;
+			int length = type == ShapeType.RECTANGLE ? 2 : type == ShapeType.TEXT ? 1 : 16 + random.nextInt(48);
+			PointBuffer points = new PointBuffer(length);
+			int x = random.nextInt(WhiteboardConstants.BOARD_WIDTH);
+			int y = random.nextInt(WhiteboardConstants.BOARD_HEIGHT);
+			for (int k = 0; k < length; k++) {
+				x += random.nextInt(9) - 4;
+				y += random.nextInt(9) - 4;
+				points.add(x, y);
+			}
+			DrawEvent event = new DrawEvent(type, points, type == ShapeType.TEXT ? "note " + i : null,
+					1 + random.nextInt(4), palette[random.nextInt(palette.length)]);
+			event.seq = i + 1;
+			event.id = i + 1;
+			events.add(event);
+		}
+		return events;
+	}
+}
@@ -0,0 +1,116 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package benchmark;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.Arrays;
+import java.util.Random;
+
+import remote.DrawEvent;
+import remote.DrawEventCodec;
+import remote.TunedSocketFactory;
+import scene.PointBuffer;
+import whiteboardapp.WhiteboardConstants;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class measures remote calls over loopback with each socket option the command line offers: the
+ * round trip of a call carrying a single draw event, and of one carrying a snapshot page of events.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class SocketLatencyBenchmark {
+
+	/** Number of timed calls carrying a draw event. */
+	private static final int SMALL_CALLS = 5000;
+
+	/** Number of timed calls carrying a snapshot page. */
+	private static final int LARGE_CALLS = 200;
+
+	/**
+	 * A remote object that takes a payload and answers with its size.
+	 */
+	public interface Sink extends Remote {
+		int receive(DrawEvent event, byte[] page) throws RemoteException;
+	}
+
+	/**
+	 * Entry point of the benchmark.
+	 * @param args unused.
+	 */
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(5);
+		DrawEvent event = randomStroke(random);
+		byte[] page = snapshotPage(random, WhiteboardConstants.SNAPSHOT_PAGE_BYTES);
+		TunedSocketFactory[] factories = {
+				null,
+				new TunedSocketFactory(true, 0, false, 0),
+				new TunedSocketFactory(true, 256 * 1024, false, 0),
+				new TunedSocketFactory(true, 0, true, 0),
+		};
+		System.out.printf("%-24s %12s %12s %12s %14s%n", "sockets", "event p50 us", "event p99 us", "event mean us",
+				"page mean ms");
+		for (TunedSocketFactory factory : factories) {
+			Sink sink = (event1, page1) -> (page1 == null ? 0 : page1.length) + (event1 == null ? 0 : 1);
+			Sink stub = (Sink) UnicastRemoteObject.exportObject(sink, 0, factory, factory);
+			for (int i = 0; i < SMALL_CALLS; i++) {
+				stub.receive(event, null); // warm up
+			}
+			long[] nanos = new long[SMALL_CALLS];
+			long total = 0;
+			for (int i = 0; i < SMALL_CALLS; i++) {
+				long start = System.nanoTime();
+				stub.receive(event, null);
+				nanos[i] = System.nanoTime() - start;
+				total += nanos[i];
+			}
+			Arrays.sort(nanos);
+			for (int i = 0; i < LARGE_CALLS / 4; i++) {
+				stub.receive(null, page);
+			}
+			long start = System.nanoTime();
+			for (int i = 0; i < LARGE_CALLS; i++) {
+				stub.receive(null, page);
+			}
+			double pageMillis = (System.nanoTime() - start) / 1e6 / LARGE_CALLS;
+			System.out.printf("%-24s %12.1f %12.1f %12.1f %14.2f%n", factory == null ? "default" : factory,
+					nanos[SMALL_CALLS / 2] / 1e3, nanos[SMALL_CALLS * 99 / 100] / 1e3, total / 1e3 / SMALL_CALLS,
+					pageMillis);
+			UnicastRemoteObject.unexportObject(sink, true);
+		}
+		System.exit(0); // RMI keeps non-daemon threads alive
+	}
+
+	/**
+	 * A page of events in the compact format, as a snapshot is sent.
+	 */
+	private static byte[] snapshotPage(Random random, int bytes) throws Exception {
+		ByteArrayOutputStream page = new ByteArrayOutputStream(bytes + 1024);
+		DataOutputStream out = new DataOutputStream(page);
+		while (out.size() < bytes) {
+			DrawEventCodec.write(out, randomStroke(random));
+		}
+		return page.toByteArray();
+	}
+
+	private static DrawEvent randomStroke(Random random) {
+		PointBuffer points = new PointBuffer(16);
+		int x = random.nextInt(WhiteboardConstants.BOARD_WIDTH);
+		int y = random.nextInt(WhiteboardConstants.BOARD_HEIGHT);
+		for (int k = 0; k < 16; k++) {
+			x += random.nextInt(9) - 4;
+			y += random.nextInt(9) - 4;
+			points.add(x, y);
+		}
+		return new DrawEvent(ShapeType.FREEHAND, points, null, 2, Color.BLACK);
+	}
+}
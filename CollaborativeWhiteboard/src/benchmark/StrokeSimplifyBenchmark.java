@@ -0,0 +1,106 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package benchmark;
+
+import java.util.Random;
+
+import scene.PointBuffer;
+import whiteboardapp.DouglasPeuckerFilter;
+import whiteboardapp.PointFilter;
+
+/**
+ * This class measures how many points of a freehand stroke are left after simplification. Strokes are
+ * simplified in windows the way they are streamed, each window starting at the last point kept, and as
+ * a whole for comparison. It reports the reduction ratio and time per point for slow and fast drags.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class StrokeSimplifyBenchmark {
+
+	/** Tolerances to measure, in pixels. */
+	private static final double[] TOLERANCES = { 0.5, 1.0, 2.0 };
+
+	/** Mouse samples per second. */
+	private static final int SAMPLE_RATE = 125;
+
+	/** Points in a window of the streamed stroke, the samples of 48 ms. */
+	private static final int WINDOW_POINTS = SAMPLE_RATE * 48 / 1000;
+
+	/** Number of timed repetitions. */
+	private static final int ITERATIONS = 200;
+
+	/**
+	 * Entry point of the benchmark.
+	 * @param args unused.
+	 */
+	public static void main(String[] args) {
+		PointBuffer slow = drag(5000, 60);
+		PointBuffer fast = drag(5000, 900);
+		System.out.printf("%10s %6s %14s %14s %14s%n", "drag", "tol", "kept windowed", "kept whole", "ns/pt windowed");
+		for (double tolerance : TOLERANCES) {
+			PointFilter filter = new DouglasPeuckerFilter(tolerance);
+			report("slow", tolerance, filter, slow);
+			report("fast", tolerance, filter, fast);
+		}
+	}
+
+	private static void report(String name, double tolerance, PointFilter filter, PointBuffer stroke) {
+		for (int i = 0; i < ITERATIONS; i++) {
+			windowed(filter, stroke);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			windowed(filter, stroke);
+		}
+		double nsPerPoint = (System.nanoTime() - start) / (double) ITERATIONS / stroke.size();
+		System.out.printf("%10s %6.1f %14.3f %14.3f %14.1f%n", name, tolerance,
+				(double) windowed(filter, stroke).size() / stroke.size(),
+				(double) filter.apply(stroke).size() / stroke.size(), nsPerPoint);
+	}
+
+	/**
+	 * Simplifies a stroke one window at a time, as DrawEventSender does while it is drawn.
+	 */
+	private static PointBuffer windowed(PointFilter filter, PointBuffer stroke) {
+		PointBuffer sent = new PointBuffer();
+		sent.add(stroke.getX(0), stroke.getY(0));
+		for (int from = 1; from < stroke.size(); from += WINDOW_POINTS) {
+			int to = Math.min(stroke.size(), from + WINDOW_POINTS);
+			PointBuffer run = new PointBuffer(to - from + 1);
+			run.add(sent.getX(sent.size() - 1), sent.getY(sent.size() - 1));
+			for (int i = from; i < to; i++) {
+				run.add(stroke.getX(i), stroke.getY(i));
+			}
+			PointBuffer simplified = filter.apply(run);
+			for (int i = 1; i < simplified.size(); i++) {
+				sent.add(simplified.getX(i), simplified.getY(i));
+			}
+		}
+		return sent;
+	}
+
+	/**
+	 * Mouse samples of a wandering drag.
+	 * @param count number of samples.
+	 * @param speed pixels per second.
+	 */
+	private static PointBuffer drag(int count, double speed) {
+		Random random = new Random(7);
+		PointBuffer points = new PointBuffer(count);
+		double x = 500;
+		double y = 500;
+		double heading = 0;
+		double step = speed / SAMPLE_RATE;
+		for (int i = 0; i < count; i++) {
+			points.add((int) Math.round(x), (int) Math.round(y));
+			heading += random.nextGaussian() * 0.05;
+			x += Math.cos(heading) * step;
+			y += Math.sin(heading) * step;
+		}
+		return points;
+	}
+}
@@ -0,0 +1,227 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package benchmark;
+
+import java.awt.Color;
+import java.io.Closeable;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import remote.ChatMessage;
+import remote.DrawEvent;
+import remote.IWhiteboardClient;
+import remote.IWhiteboardServer;
+import scene.PointBuffer;
+import server.DrawBatching;
+import server.WhiteboardServerServant;
+import transport.NioTransport;
+import transport.RmiTransport;
+import transport.Transport;
+import whiteboardapp.WhiteboardConstants;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class measures how fast the host's strokes reach every client over each transport, with many
+ * clients simulated in one process over loopback: the time for a single event to reach all clients, and
+ * the number of events delivered per second while the host draws as fast as the clients keep up.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class TransportFanoutBenchmark {
+
+	/** Numbers of clients connected to the host. */
+	private static final int[] CLIENT_COUNTS = { 50, 200 };
+
+	/** Number of events whose fan-out is timed one at a time. */
+	private static final int LATENCY_EVENTS = 50;
+
+	/** Number of events broadcast to time the throughput. */
+	private static final int THROUGHPUT_EVENTS = 2000;
+
+	/** Most events the slowest client may be behind by, kept well under the outbox's capacity. */
+	private static final int MAX_IN_FLIGHT = WhiteboardConstants.OUTBOUND_QUEUE_CAPACITY / 2;
+
+	/** First port the host is served on, each run takes the next. */
+	private static final int BASE_PORT = 21990;
+
+	/**
+	 * A client that only counts the events it receives.
+	 */
+	private static class CountingClient implements IWhiteboardClient {
+		final AtomicLong received = new AtomicLong();
+
+		@Override
+		public void receiveDrawEvent(DrawEvent event) {
+			received.incrementAndGet();
+		}
+
+		@Override
+		public void receiveDrawEvents(List<DrawEvent> events) {
+			received.addAndGet(events.size());
+		}
+
+		@Override
+		public void receiveStrokeBegin(long strokeId, DrawEvent header) {
+		}
+
+		@Override
+		public void receiveStrokeAppend(long strokeId, PointBuffer points) {
+		}
+
+		@Override
+		public void receiveStrokeEnd(long strokeId, long seq) {
+		}
+
+		@Override
+		public void notify(String message) {
+		}
+
+		@Override
+		public void receiveChatMessages(List<ChatMessage> messages) {
+		}
+
+		@Override
+		public void notifyKicked() {
+		}
+
+		@Override
+		public void heartbeat() {
+		}
+
+		@Override
+		public void notifyManagerLeft() {
+		}
+
+		@Override
+		public void updateUserList(List<String> userList) {
+		}
+
+		@Override
+		public void updateJoinRequests(List<String> usernames) {
+		}
+
+		@Override
+		public void resetWhiteboard(long seq) {
+		}
+	}
+
+	/**
+	 * Entry point of the benchmark.
+	 * @param args unused.
+	 */
+	public static void main(String[] args) throws Exception {
+		Transport[] transports = { new RmiTransport(), new NioTransport() };
+		System.out.printf("%-10s %8s %14s %14s %18s%n", "transport", "clients", "fan-out p50 ms", "fan-out p99 ms",
+				"deliveries/s");
+		int port = BASE_PORT;
+		for (int clients : CLIENT_COUNTS) {
+			for (Transport transport : transports) {
+				run(transport, clients, port++);
+			}
+		}
+		System.exit(0); // RMI keeps non-daemon threads alive
+	}
+
+	private static void run(Transport transport, int count, int port) throws Exception {
+		WhiteboardServerServant host = new WhiteboardServerServant("host");
+		host.setDrawBatching(DrawBatching.OFF); // one call per event, so only the transport differs
+		Closeable endpoint = transport.serve(host, port);
+		boolean rmi = transport instanceof RmiTransport;
+		List<CountingClient> clients = new ArrayList<>();
+		List<IWhiteboardServer> servers = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			CountingClient client = new CountingClient();
+			if (rmi) {
+				UnicastRemoteObject.exportObject(client, 0);
+			}
+			IWhiteboardServer server = transport.connect("localhost", port);
+			server.registerClient(client, "user" + i);
+			clients.add(client);
+			servers.add(server);
+		}
+		Random random = new Random(7);
+		long sent = 0;
+		for (int i = 0; i < THROUGHPUT_EVENTS / 10; i++) {
+			sent = broadcast(host, randomStroke(random), clients, sent); // warm up
+		}
+		awaitAll(clients, sent);
+
+		long[] nanos = new long[LATENCY_EVENTS];
+		for (int i = 0; i < LATENCY_EVENTS; i++) {
+			long start = System.nanoTime();
+			sent = broadcast(host, randomStroke(random), clients, sent);
+			awaitAll(clients, sent);
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < THROUGHPUT_EVENTS; i++) {
+			sent = broadcast(host, randomStroke(random), clients, sent);
+		}
+		awaitAll(clients, sent);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%-10s %8d %14.2f %14.2f %18.0f%n", rmi ? "rmi" : "nio", count,
+				nanos[LATENCY_EVENTS / 2] / 1e6, nanos[LATENCY_EVENTS * 99 / 100] / 1e6,
+				(double) THROUGHPUT_EVENTS * count / seconds);
+
+		for (int i = 0; i < count; i++) {
+			servers.get(i).removeClient(clients.get(i), "user" + i);
+			if (rmi) {
+				UnicastRemoteObject.unexportObject(clients.get(i), true);
+			} else {
+				((Closeable) servers.get(i)).close();
+			}
+		}
+		endpoint.close();
+	}
+
+	/**
+	 * Broadcasts an event as the host, first waiting while the slowest client is too far behind.
+	 * @return the number of events sent.
+	 */
+	private static long broadcast(WhiteboardServerServant host, DrawEvent event, List<CountingClient> clients,
+			long sent) throws RemoteException {
+		while (sent - slowest(clients) >= MAX_IN_FLIGHT) {
+			Thread.yield(); // the clients may need this core to catch up
+		}
+		host.broadcastDrawEvent(event);
+		return sent + 1;
+	}
+
+	private static void awaitAll(List<CountingClient> clients, long sent) {
+		while (slowest(clients) < sent) {
+			Thread.yield(); // the clients may need this core to catch up
+		}
+	}
+
+	private static long slowest(List<CountingClient> clients) {
+		long slowest = Long.MAX_VALUE;
+		for (CountingClient client : clients) {
+			slowest = Math.min(slowest, client.received.get());
+		}
+		return slowest;
+	}
+
+	private static DrawEvent randomStroke(Random random) {
+		PointBuffer points = new PointBuffer(16);
+		int x = random.nextInt(WhiteboardConstants.BOARD_WIDTH);
+		int y = random.nextInt(WhiteboardConstants.BOARD_HEIGHT);
+		for (int k = 0; k < 16; k++) {
+			x += random.nextInt(9) - 4;
+			y += random.nextInt(9) - 4;
+			points.add(x, y);
+		}
+		return new DrawEvent(ShapeType.FREEHAND, points, null, 2, Color.BLACK);
+	}
+}
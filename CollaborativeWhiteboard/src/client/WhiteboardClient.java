@@ -0,0 +1,309 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package client;
+
+import java.awt.EventQueue;
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.TreeMap;
+
+import javax.swing.DefaultListModel;
+import javax.swing.JOptionPane;
+import javax.swing.JTextArea;
+
+import remote.ChatMessage;
+import remote.DrawEvent;
+import remote.IWhiteboardClient;
+import remote.IWhiteboardServer;
+import scene.PointBuffer;
+import whiteboardapp.Whiteboard;
+
+/**
+ * This class contains the implementation of the client interface. It implements client behavior and 
+ * receives updates from the server to update the local canvas.
+ * 
+ * It is not exported on its own, so it only receives calls that reach it without RMI: over the
+ * connection of the NIO transport, or in the host's own process. {@link WhiteboardClientServant} is
+ * the client exported for servers that call back over RMI.
+ * 
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class WhiteboardClient implements IWhiteboardClient {
+	
+	/** Keeps a reference of the server to make calls */
+	private IWhiteboardServer server;
+    
+	/** Reference of the client whiteboard */
+    private Whiteboard whiteboard;
+    
+    /** Reference of the client chat area */
+    private JTextArea chatArea;
+    
+    /** Reference of the client user list model */
+    private DefaultListModel<String> userListModel;
+    
+    /** Reference of the join requests list model, only the manager has one */
+    private DefaultListModel<String> joinRequestModel;
+    
+    /** Chat messages received before the history was shown, by seq, used on the event thread only */
+    private final TreeMap<Long, ChatMessage> pendingChat = new TreeMap<>();
+    
+    /** Whether the chat history was shown, used on the event thread only */
+    private boolean chatHistoryShown = false;
+    
+    /** Seq of the last chat message shown, used on the event thread only */
+    private long lastChatSeq = 0;
+
+    /**
+     * The function initialises the client servant program.
+     *
+     * @param whiteboard
+     * @param chatArea
+     * @param userListModel
+     */
+    public void initialise(Whiteboard whiteboard, JTextArea chatArea, DefaultListModel<String> userListModel) {
+    	this.whiteboard = whiteboard;
+        this.chatArea = chatArea;
+        this.userListModel = userListModel;
+    }
+    
+    /**
+     * The function gives the manager's client the list of join requests to keep up to date.
+     *
+     * @param joinRequestModel
+     */
+    public void initialiseJoinRequests(DefaultListModel<String> joinRequestModel) {
+    	this.joinRequestModel = joinRequestModel;
+    }
+    
+    /**
+     * This function stops the client receiving calls from the server, before the application exits.
+     * Nothing is exported, so there is nothing to stop.
+     */
+    public void shutdown() {
+    }
+    
+    /**
+     * This function sends a client's draw event to the server to broadcast.
+     * @param event Client's DrawEvent 
+     */
+    public void sendDrawEvent(DrawEvent event) throws RemoteException {
+        server.broadcastDrawEvent(event);
+    }
+
+    /**
+     * This function receives a a draw event from the server and updates the whiteboard.
+     * @param event
+     */
+	@Override
+	public void receiveDrawEvent(DrawEvent event) throws RemoteException {
+		if (this.whiteboard != null) {
+//			System.out.println("Received Draw Event from Server");
+			EventQueue.invokeLater(() -> this.whiteboard.addDrawableFromNetwork(event));
+		}
+	}
+	
+	/**
+     * This function receives a batch of draw events from the server and updates the whiteboard once
+     * for all of them.
+     * @param events
+     */
+	@Override
+	public void receiveDrawEvents(List<DrawEvent> events) throws RemoteException {
+		if (this.whiteboard != null) {
+			EventQueue.invokeLater(() -> this.whiteboard.addDrawablesFromNetwork(events));
+		}
+	}
+	
+	/**
+     * This function starts rendering a stroke another client is drawing.
+     * @param strokeId
+     * @param header
+     */
+	@Override
+	public void receiveStrokeBegin(long strokeId, DrawEvent header) throws RemoteException {
+		if (this.whiteboard != null) {
+			EventQueue.invokeLater(() -> this.whiteboard.beginRemoteStroke(strokeId, header));
+		}
+	}
+	
+	/**
+     * This function adds newly drawn points to a stroke another client is drawing.
+     * @param strokeId
+     * @param points
+     */
+	@Override
+	public void receiveStrokeAppend(long strokeId, PointBuffer points) throws RemoteException {
+		if (this.whiteboard != null) {
+			EventQueue.invokeLater(() -> this.whiteboard.appendRemoteStroke(strokeId, points));
+		}
+	}
+	
+	/**
+     * This function marks a stroke as finished.
+     * @param strokeId
+     * @param seq
+     */
+	@Override
+	public void receiveStrokeEnd(long strokeId, long seq) throws RemoteException {
+		if (this.whiteboard != null) {
+			EventQueue.invokeLater(() -> this.whiteboard.endRemoteStroke(strokeId, seq));
+		}
+	}
+	
+	/**
+     * This function replaces the entire client's whiteboard with the board on the server.
+     * @param seq
+     */
+	@Override
+	public void resetWhiteboard(long seq) throws RemoteException {
+		if (this.whiteboard != null) {
+			EventQueue.invokeLater(() -> this.whiteboard.resetFromNetwork(seq));
+		}
+	}
+
+	/**
+     * This function notifies the client with a message in the chat area.
+     * @param message
+     */
+	@Override
+	public void notify(String message) throws RemoteException {
+		System.out.println("Server Message: " + message);
+		if (chatArea != null) {
+	        EventQueue.invokeLater(() -> {
+	            chatArea.append(message + "\n");
+	        });
+	    }
+		
+	}
+
+	/**
+     * This function shows chat messages in the chat area.
+     * @param messages in the order they were sent.
+     */
+	@Override
+	public void receiveChatMessages(List<ChatMessage> messages) throws RemoteException {
+		for (ChatMessage message : messages) {
+			System.out.println("Chat: " + message);
+		}
+		if (chatArea != null) {
+			EventQueue.invokeLater(() -> showChat(messages));
+		}
+	}
+	
+	/**
+     * This function shows the recent chat when joining. Messages that were pushed meanwhile are shown
+     * after it, each message only once.
+     * @param history oldest first.
+     */
+	public void showChatHistory(List<ChatMessage> history) {
+		EventQueue.invokeLater(() -> {
+			chatHistoryShown = true;
+			showChat(history);
+		});
+	}
+	
+	/**
+	 * Shows chat messages in the order of their seq, holding them back until the history was shown.
+	 * Runs on the event thread.
+	 * @param messages
+	 */
+	private void showChat(List<ChatMessage> messages) {
+		for (ChatMessage message : messages) {
+			pendingChat.put(message.seq, message);
+		}
+		if (!chatHistoryShown || chatArea == null) {
+			return;
+		}
+		for (ChatMessage message : pendingChat.values()) {
+			if (message.seq > lastChatSeq) {
+				chatArea.append(message + "\n");
+				lastChatSeq = message.seq;
+			}
+		}
+		pendingChat.clear();
+	}
+
+	/**
+     * This function notifies the client with a message that they were kicked.
+     */
+	@Override
+	public void notifyKicked() throws RemoteException {
+		EventQueue.invokeLater(() -> {
+			JOptionPane.showMessageDialog(null, "You have been kicked.");
+			shutdown();
+            System.out.println("Client shutdown cleanly.");
+            System.exit(0);
+		});
+	}
+	
+	/**
+     * This function answers the server's heartbeat.
+     */
+	@Override
+	public void heartbeat() throws RemoteException {
+	}
+	
+	/**
+     * This function notifies the client that the whiteboard manager left and will close the application cleanly.
+     */
+	@Override
+    public void notifyManagerLeft() throws RemoteException {
+		EventQueue.invokeLater(() -> {
+			JOptionPane.showMessageDialog(null, "Manager has exited. The application will now close.");
+			shutdown();
+            System.out.println("Client shutdown cleanly.");
+            System.exit(0);
+		});
+
+    }
+	
+	/**
+     * This function updates the user list of the whiteboard.
+     * @param userList
+     */
+	@Override
+	public void updateUserList(List<String> userList) throws RemoteException {
+		EventQueue.invokeLater(() -> {
+			this.userListModel.clear();
+			for (String user : userList) {
+				this.userListModel.addElement(user);
+	        }
+		});
+	}
+
+	/**
+     * This function updates the join requests waiting for the manager.
+     * @param usernames
+     */
+	@Override
+	public void updateJoinRequests(List<String> usernames) throws RemoteException {
+		EventQueue.invokeLater(() -> {
+			if (this.joinRequestModel == null) {
+				return;
+			}
+			// removing only the decided requests keeps the manager's selection of the others
+			for (int i = this.joinRequestModel.size() - 1; i >= 0; i--) {
+				if (!usernames.contains(this.joinRequestModel.get(i))) {
+					this.joinRequestModel.remove(i);
+				}
+			}
+			for (String username : usernames) {
+				if (!this.joinRequestModel.contains(username)) {
+					this.joinRequestModel.addElement(username);
+				}
+			}
+		});
+	}
+
+	/**
+     * This is the getter for the client's whiteboard reference in this class.
+     */
+	public Whiteboard getWhiteboard() {
+		return this.whiteboard;
+	}
+}
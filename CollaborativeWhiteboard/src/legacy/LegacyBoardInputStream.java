@@ -0,0 +1,85 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package legacy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.rmi.server.RemoteObject;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class reads boards saved with Java serialization, before the .wbd format had a version.
+ *
+ * Boards saved before the scene model are lists of drawables that were inner classes of the whiteboard
+ * panel. These are read as the stand-ins of {@link Whiteboard}, which resolve to drawables of the scene
+ * model. Each of them also refers to the panel it was drawn on, and through it to the server and client
+ * objects of the session that saved it. Those classes have changed or are remote objects, so they are
+ * not resolved: serialization reads past them, and nothing that is kept refers to them.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class LegacyBoardInputStream extends ObjectInputStream {
+
+	/** Stand-ins for the drawables of old boards, by the name they were saved under. */
+	private static final Map<String, Class<?>> STAND_INS = Map.of(
+			"whiteboardapp.Whiteboard$Drawable", Whiteboard.Drawable.class,
+			"whiteboardapp.Whiteboard$NormalStroke", Whiteboard.NormalStroke.class,
+			"whiteboardapp.Whiteboard$EraserStroke", Whiteboard.EraserStroke.class,
+			"whiteboardapp.Whiteboard$TextField", Whiteboard.TextField.class,
+			"whiteboardapp.Whiteboard$ShapeInfo", Whiteboard.ShapeInfo.class);
+
+	/** Classes of the application that old boards are read into as they are. */
+	private static final Set<String> KEPT = Set.of(
+			"whiteboardapp.WhiteboardConstants$ShapeType",
+			"scene.DrawableProxy",
+			"scene.BaseImage");
+
+	/**
+	 * Constructor
+	 * @param in
+	 */
+	public LegacyBoardInputStream(InputStream in) throws IOException {
+		super(in);
+	}
+
+	@Override
+	protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+		String name = desc.getName();
+		Class<?> standIn = STAND_INS.get(name);
+		if (standIn != null) {
+			return standIn;
+		}
+		if (!isPlatformClass(name) && !KEPT.contains(name)) {
+			throw new ClassNotFoundException(name + " is not read from saved boards");
+		}
+		Class<?> cl = super.resolveClass(desc);
+		if (RemoteObject.class.isAssignableFrom(cl)) {
+			throw new ClassNotFoundException(name + " is not read from saved boards");
+		}
+		return cl;
+	}
+
+	@Override
+	protected Class<?> resolveProxyClass(String[] interfaces) throws ClassNotFoundException {
+		// the only proxies in old boards are RMI stubs of the session that saved them
+		throw new ClassNotFoundException("Remote stubs are not read from saved boards");
+	}
+
+	private static boolean isPlatformClass(String name) {
+		if (name.startsWith("[")) {
+			String element = name.substring(name.lastIndexOf('[') + 1);
+			if (element.length() == 1) {
+				return true; // array of a primitive type
+			}
+			name = element.substring(1, element.length() - 1);
+		}
+		return name.startsWith("java.") || name.startsWith("javax.");
+	}
+}
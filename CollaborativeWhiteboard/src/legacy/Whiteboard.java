@@ -0,0 +1,129 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package legacy;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.List;
+
+import scene.PointBuffer;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class holds stand-ins for the drawables that used to be inner classes of
+ * {@code whiteboardapp.Whiteboard}, which boards saved before the scene model are made of. Each has the
+ * serialized fields of the class it stands in for and resolves to the matching drawable of the scene
+ * model once read.
+ *
+ * The classes keep the old nested names, deserialization only accepts a local class whose name ends
+ * like the one in the stream. Only used through {@link LegacyBoardInputStream}.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class Whiteboard {
+
+	private Whiteboard() {
+	}
+
+	/**
+	 * Stand-in for the old base class of every drawable. The reference it held to the enclosing panel
+	 * is not kept.
+	 */
+	abstract static class Drawable implements Serializable {
+		/** The version identifier */
+		private static final long serialVersionUID = 1L;
+
+		/** The sequence of points that make up the drawable shape or stroke. */
+		List<Point> points;
+
+		/** Colour of the drawable, not set on eraser strokes. */
+		Color color;
+
+		/** Line width, or font size for text. */
+		int size;
+
+		/**
+		 * Points of the drawable, checking there are at least as many as it needs.
+		 * @param count
+		 */
+		PointBuffer points(int count) throws InvalidObjectException {
+			if (points == null || points.size() < count) {
+				throw new InvalidObjectException("Saved " + getClass().getSimpleName() + " is missing points");
+			}
+			return PointBuffer.of(points);
+		}
+
+		/**
+		 * Colour of the drawable, checking it was saved.
+		 */
+		Color colour() throws InvalidObjectException {
+			if (color == null) {
+				throw new InvalidObjectException("Saved " + getClass().getSimpleName() + " has no colour");
+			}
+			return color;
+		}
+	}
+
+	/**
+	 * Stand-in for a freehand stroke.
+	 */
+	static final class NormalStroke extends Drawable {
+		/** The version identifier */
+		private static final long serialVersionUID = 1L;
+
+		private Object readResolve() throws ObjectStreamException {
+			return new scene.NormalStroke(points(1), colour(), size);
+		}
+	}
+
+	/**
+	 * Stand-in for an eraser stroke.
+	 */
+	static final class EraserStroke extends Drawable {
+		/** The version identifier */
+		private static final long serialVersionUID = 1L;
+
+		private Object readResolve() throws ObjectStreamException {
+			return new scene.EraserStroke(points(1), size);
+		}
+	}
+
+	/**
+	 * Stand-in for a text field.
+	 */
+	static final class TextField extends Drawable {
+		/** The version identifier */
+		private static final long serialVersionUID = 1L;
+
+		/** The text for the text field. */
+		String text;
+
+		private Object readResolve() throws ObjectStreamException {
+			PointBuffer at = points(1);
+			return new scene.TextField(text, at.getX(0), at.getY(0), colour(), size);
+		}
+	}
+
+	/**
+	 * Stand-in for a line, rectangle, oval or triangle.
+	 */
+	static final class ShapeInfo extends Drawable {
+		/** The version identifier */
+		private static final long serialVersionUID = 1L;
+
+		/** The type of shape. */
+		ShapeType type;
+
+		private Object readResolve() throws ObjectStreamException {
+			PointBuffer corners = points(2);
+			return new scene.ShapeInfo(type, corners.getPoint(0), corners.getPoint(1), colour(), size);
+		}
+	}
+}
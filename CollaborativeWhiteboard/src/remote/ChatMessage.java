@@ -0,0 +1,64 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package remote;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * This class contains a message of the chat, either written by a user or sent by the server, such as
+ * a user joining or leaving. Messages are numbered in the order the server received them, so a client
+ * shows each once and in order however they reach it.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class ChatMessage implements Serializable {
+
+	/** The version identifier */
+	private static final long serialVersionUID = 1L;
+
+	/** Format of the time shown before a message. */
+	private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm")
+			.withZone(ZoneId.systemDefault());
+
+	/** Sequence number of the message, from 1 up. */
+	public final long seq;
+
+	/** When the server received the message, in milliseconds since the epoch. */
+	public final long timestamp;
+
+	/** Username of the user who wrote the message, or null for a message of the server. */
+	public final String username;
+
+	/** Text of the message. */
+	public final String text;
+
+	/**
+	 * Constructor of ChatMessage.
+	 * @param seq
+	 * @param timestamp
+	 * @param username null for a message of the server.
+	 * @param text
+	 */
+	public ChatMessage(long seq, long timestamp, String username, String text) {
+		this.seq = seq;
+		this.timestamp = timestamp;
+		this.username = username;
+		this.text = text;
+	}
+
+	/**
+	 * The message as it is shown in the chat area.
+	 */
+	@Override
+	public String toString() {
+		String time = TIME.format(Instant.ofEpochMilli(timestamp));
+		return "[" + time + "] " + (username == null ? text : username + ": " + text);
+	}
+}
@@ -5,20 +5,28 @@
 */
 package remote;
 
-import java.io.Serializable;
-import java.util.List;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import scene.Drawable;
+import scene.EraserStroke;
+import scene.NormalStroke;
+import scene.PointBuffer;
+import scene.ShapeInfo;
+import scene.TextField;
 import whiteboardapp.WhiteboardConstants.ShapeType;
 import java.awt.Color;
-import java.awt.Point;
 
 /**
  * This class contains the serializable class for the Draw Event which will be sent across the network
- * using RMI.
+ * using RMI. It is written in the compact format of {@link DrawEventCodec} rather than with default
+ * Java serialization.
  * 
  * @version 1.0
  * @author Matthias Si En Ong
  */
-public class DrawEvent implements Serializable {
+public class DrawEvent implements Externalizable {
 	
 	/** The version identifier */
 	private static final long serialVersionUID = 1L;
@@ -26,8 +34,8 @@ public class DrawEvent implements Serializable {
 	/** type of shape of the draw event */
     public ShapeType type;
     
-    /** list of points associated with the draw event */
-    public List<Point> points;
+    /** points associated with the draw event */
+    public PointBuffer points;
     
     /** text if it is a text type draw event */
     public String text;
@@ -41,6 +49,21 @@ public class DrawEvent implements Serializable {
     /** font size if it is a text type draw event */
     public int fontSize;
     
+    /** position of the event in the server's log, assigned by the server when it is broadcast */
+    public long seq;
+    
+    /** id of the drawable, 0 for a drawable created from an event without one */
+    public long id;
+    
+    /** ids of the drawables removed by an object eraser event, or moved into the base image by a flatten event */
+    public long[] targets;
+    
+    /**
+     * Constructor used by deserialization.
+     */
+    public DrawEvent() {
+    }
+    
     /**
      * Constructor
      * 
@@ -50,11 +73,82 @@ public class DrawEvent implements Serializable {
      * @param size
      * @param color
      */
-    public DrawEvent(ShapeType type, List<Point> points, String text, int size, Color color) {
+    public DrawEvent(ShapeType type, PointBuffer points, String text, int size, Color color) {
         this.type = type;
         this.points = points;
         this.text = text;
         this.size = size;
         this.colour = color;
     }
+    
+    /**
+     * Converts a drawable to a draw event to send over the network.
+     * @param d
+     */
+    public static DrawEvent fromDrawable(Drawable d) {
+    	String text = d instanceof TextField ? ((TextField) d).getText() : null;
+    	DrawEvent event = new DrawEvent(d.getType(), d.copyPoints(), text, d.getSize(), d.getColour());
+    	event.id = d.getId();
+    	return event;
+    }
+    
+    /**
+     * Creates an object eraser event that removes drawables from the whiteboard.
+     * @param ids of the drawables to remove.
+     */
+    public static DrawEvent removal(long[] ids) {
+    	DrawEvent event = new DrawEvent(ShapeType.OBJECT_ERASER, new PointBuffer(), null, 0, null);
+    	event.targets = ids;
+    	return event;
+    }
+    
+    /**
+     * Creates a flatten event that moves drawables into the base image of the whiteboard.
+     * @param ids of the drawables to flatten, in the order they are drawn.
+     */
+    public static DrawEvent flatten(long[] ids) {
+    	DrawEvent event = new DrawEvent(ShapeType.FLATTEN, new PointBuffer(), null, 0, null);
+    	event.targets = ids;
+    	return event;
+    }
+    
+    /**
+     * Creates the drawable described by this event.
+     * @return the drawable, or null if the shape type is unknown.
+     */
+    public Drawable toDrawable() {
+    	switch (type) {
+		case FREEHAND:
+			return new NormalStroke(id, points, colour, size);
+		case ERASER:
+			return new EraserStroke(id, points, size);
+		case TEXT:
+			return new TextField(id, text, points.getX(0), points.getY(0), colour, size);
+		case LINE: // all other shapes
+		case RECTANGLE:
+		case OVAL:
+		case TRIANGLE:
+			return new ShapeInfo(id, type, points.getPoint(0), points.getPoint(1), colour, size);
+		default: // object eraser and flatten events change existing drawables instead
+			return null;
+		}
+    }
+    
+    /**
+     * Writes the event using the compact wire format.
+     * @param out
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+    	DrawEventCodec.write(out, this);
+    }
+    
+    /**
+     * Reads the event from the compact wire format.
+     * @param in
+     */
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+    	DrawEventCodec.read(in, this);
+    }
 }
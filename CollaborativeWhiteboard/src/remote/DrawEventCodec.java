@@ -0,0 +1,301 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package remote;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.nio.charset.StandardCharsets;
+
+import scene.PointBuffer;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class contains the compact wire format of a DrawEvent. Colours are packed into a single int,
+ * the shape type into a byte tag, and points are written as zig-zag varint deltas from the previous
+ * point, so a freehand sample usually costs two bytes instead of a serialized Point object.
+ *
+ * Every event starts with a version byte. From version 4 on it is followed by the length of the rest of
+ * the event, so a reader skips the fields that versions newer than its own added after the ones it
+ * knows. Newer versions must therefore only ever add fields after the existing ones. Readers older than
+ * version 4 reject every newer version.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class DrawEventCodec {
+
+	/**
+	 * Version written by this codec. Version 2 added the sequence number, version 3 the drawable id and
+	 * the ids of erased drawables, version 4 the length of the event after its version, version 5 text of
+	 * any length.
+	 */
+	public static final int VERSION = 5;
+
+	/** First version whose events carry their length. */
+	private static final int LENGTH_VERSION = 4;
+
+	/**
+	 * First version whose text is its UTF-8 length and bytes. Earlier versions used writeUTF, which only
+	 * holds up to 65535 bytes.
+	 */
+	private static final int UTF8_TEXT_VERSION = 5;
+
+	/** Shape type for each tag. Tags are part of the wire format, so new shapes must be appended. */
+	private static final ShapeType[] SHAPE_TAGS = {
+			ShapeType.LINE, ShapeType.RECTANGLE, ShapeType.OVAL, ShapeType.TRIANGLE,
+			ShapeType.FREEHAND, ShapeType.ERASER, ShapeType.TEXT, ShapeType.OBJECT_ERASER, ShapeType.FLATTEN
+	};
+
+	/** Flag set when the event has a colour. */
+	private static final int HAS_COLOUR = 1;
+
+	/** Flag set when the event has text. */
+	private static final int HAS_TEXT = 1 << 1;
+
+	/** Flag set when the event erases or flattens drawables. */
+	private static final int HAS_TARGETS = 1 << 2;
+
+	private DrawEventCodec() {
+	}
+
+	/** Buffer each thread writes the fields of an event to before their length is known. */
+	private static final ThreadLocal<FieldBuffer> FIELDS = ThreadLocal.withInitial(FieldBuffer::new);
+
+	/**
+	 * Writes a draw event in the compact format.
+	 * @param out
+	 * @param event
+	 */
+	public static void write(DataOutput out, DrawEvent event) throws IOException {
+		FieldBuffer fields = FIELDS.get();
+		fields.reset();
+		writeFields(fields.data, event);
+		out.writeByte(VERSION);
+		writeVarInt(out, fields.size());
+		fields.writeTo(out);
+	}
+
+	private static void writeFields(DataOutput out, DrawEvent event) throws IOException {
+		out.writeByte(shapeTag(event.type));
+		int flags = (event.colour != null ? HAS_COLOUR : 0) | (event.text != null ? HAS_TEXT : 0)
+				| (event.targets != null ? HAS_TARGETS : 0);
+		out.writeByte(flags);
+		if (event.colour != null) {
+			out.writeInt(event.colour.getRGB());
+		}
+		writeVarInt(out, event.size);
+		writeVarInt(out, event.fontSize);
+		writePoints(out, event.points);
+		if (event.text != null) {
+			byte[] text = event.text.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(out, text.length);
+			out.write(text);
+		}
+		writeVarLong(out, event.seq);
+		out.writeLong(event.id);
+		if (event.targets != null) {
+			writeVarInt(out, event.targets.length);
+			for (long target : event.targets) {
+				out.writeLong(target);
+			}
+		}
+	}
+
+	/**
+	 * Reads a draw event written by any version into the given event. Fields added by versions newer
+	 * than {@link #VERSION} are skipped.
+	 * @param in
+	 * @param event the event whose fields are filled in.
+	 */
+	public static void read(DataInput in, DrawEvent event) throws IOException {
+		int version = in.readUnsignedByte();
+		if (version < 1) {
+			throw new InvalidObjectException("Unsupported draw event version " + version);
+		}
+		if (version < LENGTH_VERSION) {
+			readFields(in, version, event);
+			return;
+		}
+		int length = readVarInt(in);
+		if (length < 0) {
+			throw new InvalidObjectException("Negative draw event length " + length);
+		}
+		byte[] fields = new byte[length];
+		in.readFully(fields);
+		// anything after the fields of this version was added by a newer one
+		readFields(new DataInputStream(new ByteArrayInputStream(fields)), Math.min(version, VERSION), event);
+	}
+
+	private static void readFields(DataInput in, int version, DrawEvent event) throws IOException {
+		int tag = in.readUnsignedByte();
+		if (tag >= SHAPE_TAGS.length) {
+			throw new InvalidObjectException("Unknown shape tag " + tag);
+		}
+		event.type = SHAPE_TAGS[tag];
+		int flags = in.readUnsignedByte();
+		event.colour = (flags & HAS_COLOUR) != 0 ? new Color(in.readInt(), true) : null;
+		event.size = readVarInt(in);
+		event.fontSize = readVarInt(in);
+		event.points = readPoints(in);
+		event.text = (flags & HAS_TEXT) == 0 ? null : version >= UTF8_TEXT_VERSION ? readText(in) : in.readUTF();
+		event.seq = version >= 2 ? readVarLong(in) : 0;
+		// drawables from before version 3 get a new id when they are created
+		event.id = version >= 3 ? in.readLong() : 0;
+		event.targets = null;
+		if (version >= 3 && (flags & HAS_TARGETS) != 0) {
+			int count = readVarInt(in);
+			if (count < 0) {
+				throw new InvalidObjectException("Negative target count " + count);
+			}
+			event.targets = new long[count];
+			for (int i = 0; i < count; i++) {
+				event.targets[i] = in.readLong();
+			}
+		}
+	}
+
+	private static String readText(DataInput in) throws IOException {
+		int length = readVarInt(in);
+		if (length < 0) {
+			throw new InvalidObjectException("Negative text length " + length);
+		}
+		byte[] text = new byte[length];
+		in.readFully(text);
+		return new String(text, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes the point count followed by each point as a delta from the previous one.
+	 * @param out
+	 * @param points null is written as no points.
+	 */
+	public static void writePoints(DataOutput out, PointBuffer points) throws IOException {
+		if (points == null) {
+			writeVarInt(out, 0);
+			return;
+		}
+		int count = points.size();
+		writeVarInt(out, count);
+		int lastX = 0;
+		int lastY = 0;
+		for (int i = 0; i < count; i++) {
+			int x = points.getX(i);
+			int y = points.getY(i);
+			writeVarInt(out, zigZag(x - lastX));
+			writeVarInt(out, zigZag(y - lastY));
+			lastX = x;
+			lastY = y;
+		}
+	}
+
+	/**
+	 * Reads points written by {@link #writePoints}.
+	 * @param in
+	 */
+	public static PointBuffer readPoints(DataInput in) throws IOException {
+		int count = readVarInt(in);
+		if (count < 0) {
+			throw new InvalidObjectException("Negative point count " + count);
+		}
+		PointBuffer points = new PointBuffer(count);
+		int x = 0;
+		int y = 0;
+		for (int i = 0; i < count; i++) {
+			x += unZigZag(readVarInt(in));
+			y += unZigZag(readVarInt(in));
+			points.add(x, y);
+		}
+		return points;
+	}
+
+	private static int shapeTag(ShapeType type) throws IOException {
+		for (int i = 0; i < SHAPE_TAGS.length; i++) {
+			if (SHAPE_TAGS[i] == type) {
+				return i;
+			}
+		}
+		throw new InvalidObjectException("Shape type has no wire tag: " + type);
+	}
+
+	/**
+	 * Writes an unsigned int using 7 bits per byte, low bits first.
+	 */
+	static void writeVarInt(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * Reads an int written by {@link #writeVarInt}.
+	 */
+	static int readVarInt(DataInput in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new InvalidObjectException("Malformed varint");
+	}
+
+	/**
+	 * Writes an unsigned long using 7 bits per byte, low bits first.
+	 */
+	static void writeVarLong(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Reads a long written by {@link #writeVarLong}.
+	 */
+	static long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new InvalidObjectException("Malformed varlong");
+	}
+
+	/** Maps signed values to unsigned so small negative deltas stay small. */
+	static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Byte array stream that can be written out without copying its contents.
+	 */
+	private static final class FieldBuffer extends ByteArrayOutputStream {
+		final DataOutputStream data = new DataOutputStream(this);
+
+		void writeTo(DataOutput out) throws IOException {
+			out.write(buf, 0, count);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package remote;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * This class contains the answer of the server to a client catching up with the board. It holds
+ * either the events the client missed, or tells the client to fetch the whole board page by page
+ * when the missed events are older than the server still keeps.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class EventDelta implements Serializable {
+
+	/** The version identifier */
+	private static final long serialVersionUID = 1L;
+
+	/** Sequence number of the latest event the delta brings the client up to. */
+	public final long latestSeq;
+
+	/** Missed events in sequence order, or null if the client must fetch the whole board. */
+	public final List<DrawEvent> events;
+
+	private EventDelta(long latestSeq, List<DrawEvent> events) {
+		this.latestSeq = latestSeq;
+		this.events = events;
+	}
+
+	/**
+	 * Creates a delta of missed events.
+	 * @param latestSeq
+	 * @param events
+	 */
+	public static EventDelta ofEvents(long latestSeq, List<DrawEvent> events) {
+		return new EventDelta(latestSeq, events);
+	}
+
+	/**
+	 * Creates a delta telling the client to fetch the whole board with
+	 * {@link IWhiteboardServer#getSnapshotPage}.
+	 * @param latestSeq
+	 */
+	public static EventDelta snapshotRequired(long latestSeq) {
+		return new EventDelta(latestSeq, null);
+	}
+
+	/**
+	 * Whether the client must fetch the whole board.
+	 */
+	public boolean isSnapshotRequired() {
+		return events == null;
+	}
+}
@@ -7,8 +7,8 @@ package remote;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.util.List;
-import whiteboardapp.Whiteboard;
-import whiteboardapp.Whiteboard.Drawable;
+
+import scene.PointBuffer;
 
 /**
  * RMI Remote interface - must be shared between client and server.
@@ -26,16 +26,55 @@ public interface IWhiteboardClient extends Remote {
      */
     void receiveDrawEvent(DrawEvent event) throws RemoteException;
     
+    /**
+     * Draw events received from the server in a single call, in the order they were drawn.
+     * @param events
+     */
+    void receiveDrawEvents(List<DrawEvent> events) throws RemoteException;
+    
+    /**
+     * A stroke another client started drawing.
+     * @param strokeId
+     * @param header type, colour, size and first points of the stroke.
+     */
+    void receiveStrokeBegin(long strokeId, DrawEvent header) throws RemoteException;
+    
+    /**
+     * Points added to a stroke that is still being drawn.
+     * @param strokeId
+     * @param points
+     */
+    void receiveStrokeAppend(long strokeId, PointBuffer points) throws RemoteException;
+    
+    /**
+     * A streamed stroke was finished. Also sent to the client that drew it, so it can keep track of
+     * the sequence numbers it has seen.
+     * @param strokeId
+     * @param seq sequence number of the finished stroke in the server's log.
+     */
+    void receiveStrokeEnd(long strokeId, long seq) throws RemoteException;
+    
     /**
      * @param message received from server
      */
     void notify(String message) throws RemoteException;
     
+    /**
+     * Chat messages received from the server in a single call, in the order of their sequence numbers.
+     * @param messages
+     */
+    void receiveChatMessages(List<ChatMessage> messages) throws RemoteException;
+    
     /**
      * Notifies the client that they were kicked.
      */
     void notifyKicked() throws RemoteException;
     
+    /**
+     * Does nothing, sent when the client was not called for a while to check it still answers.
+     */
+	void heartbeat() throws RemoteException;
+	
     /**
      * Notifies the client that the manager left.
      */
@@ -48,13 +87,14 @@ public interface IWhiteboardClient extends Remote {
 	void updateUserList(List<String> userList) throws RemoteException;
 	
 	/**
-     * Updates the whole client's whiteboard.
-     * @param drawHistory from the server.
+     * Updates the join requests waiting for the manager, only sent to the manager.
+     * @param usernames of the users waiting to join, oldest first.
      */
-	void updateWhiteboard(List<Drawable> drawHistory) throws RemoteException;
+	void updateJoinRequests(List<String> usernames) throws RemoteException;
 	
 	/**
-     * Getter for the whiteboard reference.
+     * Tells the client the whole board was replaced. The client fetches the new board page by page.
+     * @param seq sequence number of the reset in the server's log.
      */
-	Whiteboard getWhiteboard() throws RemoteException;
+	void resetWhiteboard(long seq) throws RemoteException;
 }
@@ -8,7 +8,9 @@ import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.util.List;
 
-import whiteboardapp.Whiteboard.Drawable;
+import scene.BaseImage;
+import scene.Drawable;
+import scene.PointBuffer;
 
 /**
  * RMI Remote interface - must be shared between client and server.
@@ -27,6 +29,29 @@ public interface IWhiteboardServer extends Remote {
      */
 	void broadcastDrawEvent(DrawEvent event) throws RemoteException;
 	
+	/**
+	 * Starts streaming a freehand or eraser stroke to the other clients.
+     * @param username of the client drawing the stroke.
+     * @param strokeId id chosen by the drawing client, used by the append and end calls.
+     * @param header type, colour, size and first points of the stroke.
+     */
+	void beginStroke(String username, long strokeId, DrawEvent header) throws RemoteException;
+	
+	/**
+	 * Streams the points added to a stroke since the previous call.
+     * @param username of the client drawing the stroke.
+     * @param strokeId
+     * @param points new points only, never the ones already sent.
+     */
+	void appendStroke(String username, long strokeId, PointBuffer points) throws RemoteException;
+	
+	/**
+	 * Marks a streamed stroke as finished.
+     * @param username of the client drawing the stroke.
+     * @param strokeId
+     */
+	void endStroke(String username, long strokeId) throws RemoteException;
+	
 	/**
 	 * Registers client on the server.
      * @param client
@@ -42,12 +67,20 @@ public interface IWhiteboardServer extends Remote {
     void removeClient(IWhiteboardClient client, String username) throws RemoteException;
     
     /**
-	 * Client requests to join server.
+	 * Client requests to join server. The request waits in a queue until the manager decides on it,
+	 * and is denied if the manager has not decided within a time limit.
      * @param client
      * @param username
      */
     Boolean requestJoin(IWhiteboardClient client, String username) throws RemoteException;
     
+    /**
+	 * Decides on join requests waiting for the manager. Usernames that are not waiting are ignored.
+     * @param approved usernames to let in.
+     * @param denied usernames to turn away.
+     */
+    void decideJoins(List<String> approved, List<String> denied) throws RemoteException;
+    
     /**
 	 * Client is kicked from server.
      * @param username
@@ -73,23 +106,42 @@ public interface IWhiteboardServer extends Remote {
 	void broadcastUserList() throws RemoteException;
 	
 	/**
-	 * Broadcasts the entire whiteboard history to all clients.
+	 * Tells all clients the whole whiteboard was replaced, they fetch it page by page.
      */
 	void broadcastWhiteboardHistory() throws RemoteException;
 	
 	/**
-	 * Getter for the entire draw history of the server.
+	 * Getter for a page of the whole board, for clients too far behind to fetch only what they missed.
+	 * @param snapshotSeq 0 for the first page, then the snapshot sequence number of the first page.
+	 * @param cursor 0 for the first page, then the next cursor of the previous page.
+	 * @param maxBytes size after which no more drawables are added to the page.
+	 * @param acceptEncodings bits of the encodings the client can decode, 0 to receive the events raw.
      */
-	List<Drawable> getDrawHistory() throws RemoteException;
+	SnapshotPage getSnapshotPage(long snapshotSeq, int cursor, int maxBytes, int acceptEncodings) throws RemoteException;
+	
+	/**
+	 * Getter for the events a client missed. Falls back to the whole board when the missed events are
+	 * older than the server keeps.
+	 * @param seq sequence number of the latest event the client has, 0 for a client with an empty board.
+     */
+	EventDelta getEventsSince(long seq) throws RemoteException;
 	
 	/**
 	 * Getter for user list of the server.
      */
     List<String> getUserList() throws RemoteException;
     
+    /**
+	 * Getter for the recent chat, so a client that joins sees the conversation so far.
+	 * @param max most messages returned.
+	 * @return the latest messages, oldest first.
+     */
+    List<ChatMessage> getChatHistory(int max) throws RemoteException;
+    
     /**
 	 * Setter for draw history of the server.
 	 * @param drawHistory
+	 * @param base flattened part of the board, drawn below the draw history.
      */
-	void setDrawHistory(List<Drawable> drawHistory) throws RemoteException;
+	void setDrawHistory(List<Drawable> drawHistory, BaseImage base) throws RemoteException;
 }
\ No newline at end of file
@@ -0,0 +1,236 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package remote;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * This class contains one page of the whole board, sent to a client that is too far behind to catch
+ * up from the server's recent events. A page holds the next tiles of the board's base image, then the
+ * next drawables in the compact format of {@link DrawEventCodec}, up to a byte budget chosen by the
+ * client, so neither side ever holds the whole serialized board.
+ *
+ * The events of a page may be compressed with {@link Deflater} when the client accepts it and they are
+ * large enough to be worth it. The tiles are PNG data, which is compressed already, and are always sent
+ * as they are.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class SnapshotPage implements Serializable {
+
+	/** The version identifier */
+	private static final long serialVersionUID = 1L;
+
+	/** Encoding of events sent as they are. */
+	public static final int RAW = 0;
+
+	/** Encoding of events compressed with {@link Deflater}, also its bit in the encodings a client accepts. */
+	public static final int DEFLATE = 1;
+
+	/** Sequence number the snapshot is taken at, pass it back to fetch the following pages. */
+	public final long snapshotSeq;
+
+	/** Cursor of the following page. */
+	public final int nextCursor;
+
+	/** Whether this is the last page of the snapshot. */
+	public final boolean last;
+
+	/** Whether the board was replaced since the snapshot was taken, the client must start over. */
+	public final boolean stale;
+
+	/** Keys of the base image tiles on the page. */
+	private final long[] tileKeys;
+
+	/** PNG data of the base image tiles on the page. */
+	private final byte[][] tiles;
+
+	/** Number of events on the page. */
+	private final int count;
+
+	/** Encoding of the events on the page. */
+	private final int encoding;
+
+	/** Size of the events on the page in the compact format, before they were encoded. */
+	private final int rawLength;
+
+	/** Events on the page in the compact format, encoded. */
+	private final byte[] data;
+
+	/**
+	 * Constructor of SnapshotPage.
+	 * @param snapshotSeq
+	 * @param nextCursor
+	 * @param last
+	 * @param tileKeys
+	 * @param tiles
+	 * @param count
+	 * @param data
+	 */
+	public SnapshotPage(long snapshotSeq, int nextCursor, boolean last, long[] tileKeys, byte[][] tiles,
+			int count, byte[] data) {
+		this(snapshotSeq, nextCursor, last, false, tileKeys, tiles, count, RAW, data.length, data);
+	}
+
+	private SnapshotPage(long snapshotSeq, int nextCursor, boolean last, boolean stale, long[] tileKeys,
+			byte[][] tiles, int count, int encoding, int rawLength, byte[] data) {
+		this.snapshotSeq = snapshotSeq;
+		this.nextCursor = nextCursor;
+		this.last = last;
+		this.stale = stale;
+		this.tileKeys = tileKeys;
+		this.tiles = tiles;
+		this.count = count;
+		this.encoding = encoding;
+		this.rawLength = rawLength;
+		this.data = data;
+	}
+
+	/**
+	 * Creates the page returned when the board was replaced since the snapshot was taken.
+	 */
+	public static SnapshotPage stale() {
+		return new SnapshotPage(0, 0, false, true, new long[0], new byte[0][], 0, RAW, 0, new byte[0]);
+	}
+
+	/**
+	 * Creates a copy of the page with its events compressed. The page is returned as it is if the
+	 * compressed events would not be smaller.
+	 * @param level compression level of {@link Deflater}.
+	 */
+	public SnapshotPage deflate(int level) {
+		if (encoding != RAW || data.length == 0) {
+			return this;
+		}
+		Deflater deflater = new Deflater(level, true);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			byte[] out = new byte[data.length];
+			int length = 0;
+			while (!deflater.finished() && length < out.length) {
+				length += deflater.deflate(out, length, out.length - length);
+			}
+			if (!deflater.finished() || length >= data.length) {
+				return this;
+			}
+			byte[] compressed = new byte[length];
+			System.arraycopy(out, 0, compressed, 0, length);
+			return new SnapshotPage(snapshotSeq, nextCursor, last, stale, tileKeys, tiles, count, DEFLATE,
+					data.length, compressed);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Decodes the events on the page.
+	 */
+	public List<DrawEvent> getEvents() throws IOException {
+		List<DrawEvent> events = new ArrayList<>(count);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(decodeData()));
+		for (int i = 0; i < count; i++) {
+			DrawEvent event = new DrawEvent();
+			DrawEventCodec.read(in, event);
+			events.add(event);
+		}
+		return events;
+	}
+
+	/**
+	 * Number of base image tiles on the page.
+	 */
+	public int getTileCount() {
+		return tileKeys.length;
+	}
+
+	/**
+	 * Key of a base image tile on the page.
+	 * @param i
+	 */
+	public long getTileKey(int i) {
+		return tileKeys[i];
+	}
+
+	/**
+	 * PNG data of a base image tile on the page.
+	 * @param i
+	 */
+	public byte[] getTile(int i) {
+		return tiles[i];
+	}
+
+	/**
+	 * Encoding of the events on the page, {@link #RAW} or {@link #DEFLATE}.
+	 */
+	public int getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * Size of the tiles and events on the page in bytes, as sent.
+	 */
+	public int getByteCount() {
+		return data.length + getTileByteCount();
+	}
+
+	/**
+	 * Size of the tiles and events on the page in bytes, before the events were compressed.
+	 */
+	public int getRawByteCount() {
+		return rawLength + getTileByteCount();
+	}
+
+	private int getTileByteCount() {
+		int bytes = 0;
+		for (byte[] tile : tiles) {
+			bytes += tile.length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Events on the page in the compact format, decompressed if they were compressed.
+	 */
+	private byte[] decodeData() throws IOException {
+		if (encoding == RAW) {
+			return data;
+		}
+		if (encoding != DEFLATE) {
+			throw new IOException("Unknown snapshot encoding " + encoding);
+		}
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(data);
+			byte[] out = new byte[rawLength];
+			int length = 0;
+			while (length < rawLength && !inflater.finished()) {
+				int n = inflater.inflate(out, length, rawLength - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += n;
+			}
+			if (length != rawLength) {
+				throw new IOException("Snapshot page is cut short");
+			}
+			return out;
+		} catch (DataFormatException e) {
+			throw new IOException("Snapshot page is corrupt", e);
+		} finally {
+			inflater.end();
+		}
+	}
+}
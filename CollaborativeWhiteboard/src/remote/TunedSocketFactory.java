@@ -0,0 +1,220 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package remote;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * This class creates the sockets remote calls to an object are made over, with the TCP options set
+ * for small interactive calls: Nagle's algorithm off, chosen buffer sizes, optionally a stream
+ * compressed with {@link Deflater}, and a bound on how long connecting and waiting for an answer may
+ * take. A remote object exported with it hands the factory to whoever calls it along with its stub, so
+ * both ends of every connection to it use the same options without the caller choosing them.
+ *
+ * Compressed streams are flushed with {@link Deflater#SYNC_FLUSH}, so every call and answer arrives
+ * whole as soon as RMI flushes it.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class TunedSocketFactory implements RMIClientSocketFactory, RMIServerSocketFactory, Serializable {
+
+	/** The version identifier */
+	private static final long serialVersionUID = 1L;
+
+	/** Options understood by {@link #fromOptions}. */
+	public static final String USAGE = "[--nodelay] [--buffer=<bytes>] [--deflate]";
+
+	/** Whether Nagle's algorithm is turned off. */
+	private final boolean tcpNoDelay;
+
+	/** Size of the send and receive buffers, 0 for the system's default. */
+	private final int bufferSize;
+
+	/** Whether the streams are compressed. */
+	private final boolean deflate;
+
+	/** Time after which connecting or reading fails in milliseconds, 0 to wait for as long as TCP does. */
+	private final int timeoutMs;
+
+	/**
+	 * Constructor of TunedSocketFactory.
+	 * @param tcpNoDelay whether Nagle's algorithm is turned off.
+	 * @param bufferSize size of the send and receive buffers, 0 for the system's default.
+	 * @param deflate whether the streams are compressed.
+	 * @param timeoutMs time after which connecting or reading fails, 0 for no limit.
+	 */
+	public TunedSocketFactory(boolean tcpNoDelay, int bufferSize, boolean deflate, int timeoutMs) {
+		this.tcpNoDelay = tcpNoDelay;
+		this.bufferSize = bufferSize;
+		this.deflate = deflate;
+		this.timeoutMs = timeoutMs;
+	}
+
+	/**
+	 * Creates a factory from command line options.
+	 * @param options such as --nodelay, --buffer=65536 and --deflate, see {@link #USAGE}.
+	 * @return the factory, or null if there are no options and the default sockets should be used.
+	 * @throws IllegalArgumentException if an option is not understood.
+	 */
+	public static TunedSocketFactory fromOptions(List<String> options) {
+		if (options.isEmpty()) {
+			return null;
+		}
+		boolean tcpNoDelay = false;
+		int bufferSize = 0;
+		boolean deflate = false;
+		for (String option : options) {
+			if (option.equals("--nodelay")) {
+				tcpNoDelay = true;
+			} else if (option.equals("--deflate")) {
+				deflate = true;
+			} else if (option.startsWith("--buffer=")) {
+				try {
+					bufferSize = Integer.parseInt(option.substring("--buffer=".length()));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid buffer size: " + option);
+				}
+			} else {
+				throw new IllegalArgumentException("Unknown option: " + option);
+			}
+		}
+		return new TunedSocketFactory(tcpNoDelay, bufferSize, deflate, 0);
+	}
+
+	/**
+	 * Creates a factory with the same options and a different timeout.
+	 * @param timeoutMs time after which connecting or reading fails, 0 for no limit.
+	 */
+	public TunedSocketFactory withTimeout(int timeoutMs) {
+		return new TunedSocketFactory(tcpNoDelay, bufferSize, deflate, timeoutMs);
+	}
+
+	/**
+	 * Creates a socket connected to the remote object.
+	 * @param host
+	 * @param port
+	 */
+	@Override
+	public Socket createSocket(String host, int port) throws IOException {
+		Socket socket = deflate ? new DeflateSocket() : new Socket();
+		try {
+			if (bufferSize > 0) {
+				// set before connecting so the window scale is agreed on
+				socket.setReceiveBufferSize(bufferSize);
+				socket.setSendBufferSize(bufferSize);
+			}
+			socket.connect(new InetSocketAddress(host, port), timeoutMs);
+			socket.setTcpNoDelay(tcpNoDelay);
+			socket.setSoTimeout(timeoutMs);
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+		return socket;
+	}
+
+	/**
+	 * Creates the socket the remote object accepts calls on.
+	 * @param port
+	 */
+	@Override
+	public ServerSocket createServerSocket(int port) throws IOException {
+		ServerSocket server = new ServerSocket() {
+			@Override
+			public Socket accept() throws IOException {
+				Socket socket = deflate ? new DeflateSocket() : new Socket();
+				implAccept(socket);
+				socket.setTcpNoDelay(tcpNoDelay);
+				if (bufferSize > 0) {
+					socket.setSendBufferSize(bufferSize);
+				}
+				return socket;
+			}
+		};
+		if (bufferSize > 0) {
+			// accepted sockets take their receive buffer from the server socket
+			server.setReceiveBufferSize(bufferSize);
+		}
+		server.bind(new InetSocketAddress(port));
+		return server;
+	}
+
+	/**
+	 * Factories with the same options are equal, so RMI reuses connections between them.
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if (other == null || other.getClass() != getClass()) {
+			return false;
+		}
+		TunedSocketFactory factory = (TunedSocketFactory) other;
+		return factory.tcpNoDelay == tcpNoDelay && factory.bufferSize == bufferSize && factory.deflate == deflate
+				&& factory.timeoutMs == timeoutMs;
+	}
+
+	@Override
+	public int hashCode() {
+		return ((Boolean.hashCode(tcpNoDelay) * 31 + bufferSize) * 31 + Boolean.hashCode(deflate)) * 31 + timeoutMs;
+	}
+
+	@Override
+	public String toString() {
+		return (tcpNoDelay ? "nodelay" : "nagle") + (bufferSize > 0 ? ", buffers " + bufferSize : "")
+				+ (deflate ? ", deflate" : "") + (timeoutMs > 0 ? ", timeout " + timeoutMs + " ms" : "");
+	}
+
+	/**
+	 * A socket whose streams are compressed.
+	 */
+	private static class DeflateSocket extends Socket {
+		private InputStream in;
+		private OutputStream out;
+
+		@Override
+		public synchronized InputStream getInputStream() throws IOException {
+			if (in == null) {
+				in = new InflaterInputStream(super.getInputStream(), new Inflater()) {
+					@Override
+					public void close() throws IOException {
+						super.close();
+						inf.end();
+					}
+				};
+			}
+			return in;
+		}
+
+		@Override
+		public synchronized OutputStream getOutputStream() throws IOException {
+			if (out == null) {
+				Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+				out = new DeflaterOutputStream(super.getOutputStream(), deflater, true) {
+					@Override
+					public void close() throws IOException {
+						super.close();
+						deflater.end();
+					}
+				};
+			}
+			return out;
+		}
+	}
+}
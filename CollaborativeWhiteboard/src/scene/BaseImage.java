@@ -0,0 +1,197 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package scene;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+import javax.imageio.ImageIO;
+
+/**
+ * This class contains the flattened part of the whiteboard: old drawables rasterised into an image that
+ * is drawn below the drawables still kept as vectors. The image is split into square tiles that are
+ * stored PNG compressed, and tiles nothing was drawn on are not stored at all.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class BaseImage implements Serializable {
+
+	/** The version identifier */
+	private static final long serialVersionUID = 1L;
+
+	/** Width and height of a tile. */
+	public static final int TILE_SIZE = 256;
+
+	/** PNG data of each tile, by tile key. */
+	private final TreeMap<Long, byte[]> tiles = new TreeMap<>();
+
+	/**
+	 * Whether nothing was flattened.
+	 */
+	public boolean isEmpty() {
+		return tiles.isEmpty();
+	}
+
+	/**
+	 * Keys of the stored tiles, in a fixed order.
+	 */
+	public Set<Long> getTileKeys() {
+		return Collections.unmodifiableSet(tiles.keySet());
+	}
+
+	/**
+	 * PNG data of a tile.
+	 * @param key
+	 * @return the data, or null if nothing was drawn on the tile.
+	 */
+	public byte[] getTile(long key) {
+		return tiles.get(key);
+	}
+
+	/**
+	 * Replaces a tile.
+	 * @param key
+	 * @param png PNG data of the tile, not modified afterwards.
+	 */
+	public void putTile(long key, byte[] png) {
+		tiles.put(key, png);
+	}
+
+	/**
+	 * Copy of the image that is drawn on separately, the tile data itself is shared.
+	 */
+	public BaseImage copy() {
+		BaseImage copy = new BaseImage();
+		copy.tiles.putAll(tiles);
+		return copy;
+	}
+
+	/**
+	 * Total size of the stored tiles in bytes.
+	 */
+	public long getByteCount() {
+		long bytes = 0;
+		for (byte[] png : tiles.values()) {
+			bytes += png.length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Area of the board covered by a tile.
+	 * @param key
+	 */
+	public static Rectangle tileBounds(long key) {
+		return new Rectangle((int) (key >> 32) * TILE_SIZE, (int) key * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+	}
+
+	/**
+	 * Keys of the tiles a region of the board falls on, whether they are stored or not.
+	 * @param region
+	 */
+	public static List<Long> tilesIn(Rectangle region) {
+		List<Long> keys = new ArrayList<>();
+		if (region.isEmpty()) {
+			return keys;
+		}
+		int minX = Math.floorDiv(region.x, TILE_SIZE);
+		int minY = Math.floorDiv(region.y, TILE_SIZE);
+		int maxX = Math.floorDiv(region.x + region.width - 1, TILE_SIZE);
+		int maxY = Math.floorDiv(region.y + region.height - 1, TILE_SIZE);
+		for (int tx = minX; tx <= maxX; tx++) {
+			for (int ty = minY; ty <= maxY; ty++) {
+				keys.add(((long) tx << 32) | (ty & 0xFFFFFFFFL));
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Rasterises drawables onto the image, in order.
+	 * @param drawables
+	 * @param renderer draws a drawable.
+	 */
+	public void draw(List<Drawable> drawables, BiConsumer<Graphics2D, Drawable> renderer) {
+		TreeMap<Long, List<Drawable>> byTile = new TreeMap<>();
+		for (Drawable d : drawables) {
+			for (long key : tilesIn(d.getBounds())) {
+				byTile.computeIfAbsent(key, _ -> new ArrayList<>()).add(d);
+			}
+		}
+		for (Map.Entry<Long, List<Drawable>> entry : byTile.entrySet()) {
+			Rectangle bounds = tileBounds(entry.getKey());
+			BufferedImage tile = decode(entry.getKey());
+			Graphics2D g2 = tile.createGraphics();
+			g2.translate(-bounds.x, -bounds.y);
+			for (Drawable d : entry.getValue()) {
+				renderer.accept(g2, d);
+			}
+			g2.dispose();
+			tiles.put(entry.getKey(), encode(tile));
+		}
+	}
+
+	/**
+	 * Draws the stored tiles that fall inside a region.
+	 * @param g2 Graphics2D in board coordinates.
+	 * @param region
+	 */
+	public void drawTo(Graphics2D g2, Rectangle region) {
+		for (long key : tilesIn(region)) {
+			if (tiles.containsKey(key)) {
+				Rectangle bounds = tileBounds(key);
+				g2.drawImage(decode(key), bounds.x, bounds.y, null);
+			}
+		}
+	}
+
+	/**
+	 * Decodes a tile, or creates a blank one if it is not stored.
+	 * @param key
+	 */
+	public BufferedImage decode(long key) {
+		BufferedImage tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+		byte[] png = tiles.get(key);
+		Graphics2D g2 = tile.createGraphics();
+		if (png == null) {
+			g2.setColor(Color.WHITE);
+			g2.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+		} else {
+			try {
+				g2.drawImage(ImageIO.read(new ByteArrayInputStream(png)), 0, 0, null);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e); // reading from memory
+			}
+		}
+		g2.dispose();
+		return tile;
+	}
+
+	private static byte[] encode(BufferedImage tile) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			ImageIO.write(tile, "png", bytes);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // writing to memory
+		}
+		return bytes.toByteArray();
+	}
+}
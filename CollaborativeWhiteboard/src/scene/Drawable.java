@@ -0,0 +1,156 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package scene;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * An abstract base class of the scene model: an immutable shape or stroke on the whiteboard. A drawable
+ * only holds its geometry, colour and size and no reference to the user interface, so it can be sent
+ * over RMI and saved to file on its own. Rendering is done by the whiteboard.
+ *
+ * Drawables are serialized in the compact format of {@link remote.DrawEventCodec} through
+ * {@link DrawableProxy} instead of default serialization.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public abstract class Drawable implements Serializable {
+
+	/** The version identifier */
+	private static final long serialVersionUID = 1L;
+
+	/** Identifies the drawable on every client, so it can be erased. */
+	private final long id;
+
+	/** Colour of the drawable as packed ARGB. */
+	private final int colour;
+
+	/** Line width, or font size for text. */
+	private final int size;
+
+	/** Points of the drawable, never modified after construction. */
+	private final PointBuffer points;
+
+	/** Bounding box, computed on first use. */
+	private transient Rectangle bounds;
+
+	/**
+	 * Constructor of Drawable.
+	 * @param id identifier shared by every copy of the drawable, 0 for a new one.
+	 * @param points copied, later changes to the buffer do not affect the drawable.
+	 * @param colour
+	 * @param size
+	 */
+	Drawable(long id, PointBuffer points, Color colour, int size) {
+		this.id = id != 0 ? id : newId();
+		this.points = points.copy();
+		this.colour = colour.getRGB();
+		this.size = size;
+	}
+
+	/**
+	 * Creates a random identifier for a new drawable.
+	 */
+	public static long newId() {
+		long id;
+		do {
+			id = ThreadLocalRandom.current().nextLong();
+		} while (id == 0);
+		return id;
+	}
+
+	/**
+	 * Getter for the identifier.
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Getter for the type of shape.
+	 */
+	public abstract ShapeType getType();
+
+	/**
+	 * Computes the bounding box of everything the drawable paints.
+	 */
+	Rectangle computeBounds() {
+		return points.getBounds(size);
+	}
+
+	/**
+	 * Number of points of the drawable.
+	 */
+	public int getPointCount() {
+		return points.size();
+	}
+
+	/**
+	 * X coordinate of a point.
+	 * @param i index of the point.
+	 */
+	public int getX(int i) {
+		return points.getX(i);
+	}
+
+	/**
+	 * Y coordinate of a point.
+	 * @param i index of the point.
+	 */
+	public int getY(int i) {
+		return points.getY(i);
+	}
+
+	/**
+	 * Copy of the points of the drawable.
+	 */
+	public PointBuffer copyPoints() {
+		return points.copy();
+	}
+
+	/**
+	 * Getter for the colour.
+	 */
+	public Color getColour() {
+		return new Color(colour, true);
+	}
+
+	/**
+	 * Getter for the line width, or font size for text.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Bounding box of everything the drawable paints, including the width of its outline.
+	 */
+	public Rectangle getBounds() {
+		if (bounds == null) {
+			bounds = computeBounds();
+		}
+		return new Rectangle(bounds);
+	}
+
+	/**
+	 * Serializes the drawable through its compact proxy.
+	 */
+	protected final Object writeReplace() {
+		return new DrawableProxy(this);
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("Drawables are deserialized through DrawableProxy");
+	}
+}
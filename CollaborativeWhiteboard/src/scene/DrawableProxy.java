@@ -0,0 +1,66 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package scene;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import remote.DrawEvent;
+import remote.DrawEventCodec;
+
+/**
+ * This class is the serialized form of a {@link Drawable}. It writes the drawable in the compact
+ * DrawEvent wire format and resolves back to an immutable drawable when read.
+ *
+ * Only used by serialization.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class DrawableProxy implements Externalizable {
+
+	/** The version identifier */
+	private static final long serialVersionUID = 1L;
+
+	/** The drawable being written or read. */
+	private Drawable drawable;
+
+	/**
+	 * Constructor used by deserialization.
+	 */
+	public DrawableProxy() {
+	}
+
+	/**
+	 * Constructor
+	 * @param drawable
+	 */
+	DrawableProxy(Drawable drawable) {
+		this.drawable = drawable;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		DrawEventCodec.write(out, DrawEvent.fromDrawable(drawable));
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		DrawEvent event = new DrawEvent();
+		DrawEventCodec.read(in, event);
+		drawable = event.toDrawable();
+		if (drawable == null) {
+			throw new InvalidObjectException("Unknown shape type " + event.type);
+		}
+	}
+
+	private Object readResolve() {
+		return drawable;
+	}
+}
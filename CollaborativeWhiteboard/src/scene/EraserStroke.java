@@ -0,0 +1,46 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package scene;
+
+import java.awt.Color;
+
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * An class extends drawable to implement an eraser stroke, painted in the background colour.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class EraserStroke extends Drawable {
+
+	/** The version identifier */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructor of EraserStroke.
+	 * @param points copied, later changes to the buffer do not affect the stroke.
+	 * @param size
+	 */
+	public EraserStroke(PointBuffer points, int size) {
+		this(0, points, size);
+	}
+
+	/**
+	 * Constructor of EraserStroke.
+	 * @param id identifier of the stroke, 0 for a new one.
+	 * @param points copied, later changes to the buffer do not affect the stroke.
+	 * @param size
+	 */
+	public EraserStroke(long id, PointBuffer points, int size) {
+		super(id, points, Color.WHITE, size);
+	}
+
+	@Override
+	public ShapeType getType() {
+		return ShapeType.ERASER;
+	}
+}
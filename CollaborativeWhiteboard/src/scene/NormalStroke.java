@@ -0,0 +1,48 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package scene;
+
+import java.awt.Color;
+
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * An class extends Drawable to implement a freehand stroke.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class NormalStroke extends Drawable {
+
+	/** The version identifier */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructor of NormalStroke.
+	 * @param points copied, later changes to the buffer do not affect the stroke.
+	 * @param color
+	 * @param size
+	 */
+	public NormalStroke(PointBuffer points, Color color, int size) {
+		this(0, points, color, size);
+	}
+
+	/**
+	 * Constructor of NormalStroke.
+	 * @param id identifier of the stroke, 0 for a new one.
+	 * @param points copied, later changes to the buffer do not affect the stroke.
+	 * @param color
+	 * @param size
+	 */
+	public NormalStroke(long id, PointBuffer points, Color color, int size) {
+		super(id, points, color, size);
+	}
+
+	@Override
+	public ShapeType getType() {
+		return ShapeType.FREEHAND;
+	}
+}
@@ -0,0 +1,211 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package scene;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+import remote.DrawEventCodec;
+
+/**
+ * This class contains a growable sequence of points stored as interleaved x and y ints in a single
+ * array, so a stroke costs 8 bytes per point instead of a Point object and a list slot each. It is
+ * serialized in the compact point format of {@link DrawEventCodec}.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class PointBuffer implements Serializable {
+
+	/** The version identifier */
+	private static final long serialVersionUID = 1L;
+
+	/** Capacity of a buffer created without one, in points. */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/** Coordinates as x0, y0, x1, y1, ... */
+	private transient int[] coords;
+
+	/** Number of points. */
+	private transient int size;
+
+	/**
+	 * Constructor of an empty PointBuffer.
+	 */
+	public PointBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor of an empty PointBuffer.
+	 * @param capacity number of points it holds before it grows.
+	 */
+	public PointBuffer(int capacity) {
+		this.coords = new int[Math.max(1, capacity) * 2];
+	}
+
+	/**
+	 * Creates a buffer holding the given points.
+	 * @param points
+	 */
+	public static PointBuffer of(List<Point> points) {
+		PointBuffer buffer = new PointBuffer(points.size());
+		for (Point p : points) {
+			buffer.add(p.x, p.y);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Creates a buffer holding the given points.
+	 * @param points
+	 */
+	public static PointBuffer of(Point... points) {
+		return of(Arrays.asList(points));
+	}
+
+	/**
+	 * Appends a point.
+	 * @param x
+	 * @param y
+	 */
+	public void add(int x, int y) {
+		if (size * 2 == coords.length) {
+			coords = Arrays.copyOf(coords, coords.length * 2);
+		}
+		coords[size * 2] = x;
+		coords[size * 2 + 1] = y;
+		size++;
+	}
+
+	/**
+	 * Appends every point of another buffer.
+	 * @param other
+	 */
+	public void addAll(PointBuffer other) {
+		int needed = (size + other.size) * 2;
+		if (needed > coords.length) {
+			coords = Arrays.copyOf(coords, Math.max(needed, coords.length * 2));
+		}
+		System.arraycopy(other.coords, 0, coords, size * 2, other.size * 2);
+		size += other.size;
+	}
+
+	/**
+	 * Number of points.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Whether the buffer holds no points.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * X coordinate of a point.
+	 * @param i index of the point.
+	 */
+	public int getX(int i) {
+		return coords[checkIndex(i) * 2];
+	}
+
+	/**
+	 * Y coordinate of a point.
+	 * @param i index of the point.
+	 */
+	public int getY(int i) {
+		return coords[checkIndex(i) * 2 + 1];
+	}
+
+	/**
+	 * A point as a new Point object.
+	 * @param i index of the point.
+	 */
+	public Point getPoint(int i) {
+		return new Point(getX(i), getY(i));
+	}
+
+	/**
+	 * Copy of the buffer without spare capacity.
+	 */
+	public PointBuffer copy() {
+		PointBuffer copy = new PointBuffer(size);
+		System.arraycopy(coords, 0, copy.coords, 0, size * 2);
+		copy.size = size;
+		return copy;
+	}
+
+	/**
+	 * Removes every point, keeping the capacity.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Bounding box of all points drawn with the given line width.
+	 * @param lineWidth
+	 */
+	public Rectangle getBounds(int lineWidth) {
+		return getBounds(0, size, lineWidth);
+	}
+
+	/**
+	 * Bounding box of a range of points drawn with the given line width.
+	 * @param from index of the first point.
+	 * @param to index after the last point.
+	 * @param lineWidth
+	 */
+	public Rectangle getBounds(int from, int to, int lineWidth) {
+		if (from >= to) {
+			return new Rectangle();
+		}
+		checkIndex(from);
+		checkIndex(to - 1);
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		for (int i = from * 2; i < to * 2; i += 2) {
+			minX = Math.min(minX, coords[i]);
+			minY = Math.min(minY, coords[i + 1]);
+			maxX = Math.max(maxX, coords[i]);
+			maxY = Math.max(maxY, coords[i + 1]);
+		}
+		// half the line width on each side, plus a pixel for rounding
+		int pad = lineWidth / 2 + 2;
+		return new Rectangle(minX - pad, minY - pad, maxX - minX + 2 * pad, maxY - minY + 2 * pad);
+	}
+
+	private int checkIndex(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Point " + i + " of " + size);
+		}
+		return i;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		DrawEventCodec.writePoints(out, this);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		PointBuffer read = DrawEventCodec.readPoints(in);
+		coords = read.coords;
+		size = read.size;
+	}
+}
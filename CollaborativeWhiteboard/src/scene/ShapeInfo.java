@@ -0,0 +1,57 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package scene;
+
+import java.awt.Color;
+import java.awt.Point;
+
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * An class extends drawable to implement different shape types, defined by two corner points.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class ShapeInfo extends Drawable {
+
+	/** The version identifier */
+	private static final long serialVersionUID = 1L;
+
+	/** The type of shape. */
+	private final ShapeType type;
+
+	/**
+	 * Constructor of ShapeInfo.
+	 * @param type Type of shape
+	 * @param p1
+	 * @param p2
+	 * @param color
+	 * @param size
+	 */
+	public ShapeInfo(ShapeType type, Point p1, Point p2, Color color, int size) {
+		this(0, type, p1, p2, color, size);
+	}
+
+	/**
+	 * Constructor of ShapeInfo.
+	 * @param id identifier of the shape, 0 for a new one.
+	 * @param type Type of shape
+	 * @param p1
+	 * @param p2
+	 * @param color
+	 * @param size
+	 */
+	public ShapeInfo(long id, ShapeType type, Point p1, Point p2, Color color, int size) {
+		super(id, PointBuffer.of(p1, p2), color, size);
+		this.type = type;
+	}
+
+	@Override
+	public ShapeType getType() {
+		return type;
+	}
+}
@@ -0,0 +1,86 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package scene;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Rectangle2D;
+
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * An class extends Drawable to implement a text drawable.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class TextField extends Drawable {
+
+	/** The version identifier */
+	private static final long serialVersionUID = 1L;
+
+	/** Name of the font text is drawn with. */
+	public static final String FONT_NAME = "Arial";
+
+	/** The text for the text field. */
+	private final String text;
+
+	/**
+	 * Constructor of TextField.
+	 * @param text
+	 * @param x
+	 * @param y
+	 * @param color
+	 * @param size font size.
+	 */
+	public TextField(String text, int x, int y, Color color, int size) {
+		this(0, text, x, y, color, size);
+	}
+
+	/**
+	 * Constructor of TextField.
+	 * @param id identifier of the text, 0 for a new one.
+	 * @param text
+	 * @param x
+	 * @param y
+	 * @param color
+	 * @param size font size.
+	 */
+	public TextField(long id, String text, int x, int y, Color color, int size) {
+		// the only point is the baseline position of the text
+		super(id, PointBuffer.of(new Point(x, y)), color, size);
+		this.text = text;
+	}
+
+	/**
+	 * Getter for the text.
+	 */
+	public String getText() {
+		return text;
+	}
+
+	@Override
+	public ShapeType getType() {
+		return ShapeType.TEXT;
+	}
+
+	/**
+	 * Bounds of the rendered text, measured from the baseline point.
+	 */
+	@Override
+	Rectangle computeBounds() {
+		int x = getX(0);
+		int y = getY(0);
+		Rectangle2D extent = new Font(FONT_NAME, Font.PLAIN, getSize())
+				.getStringBounds(text, new FontRenderContext(null, true, true));
+		int pad = 2 + getSize() / 8;
+		return new Rectangle(x + (int) Math.floor(extent.getX()) - pad, y + (int) Math.floor(extent.getY()) - pad,
+				(int) Math.ceil(extent.getWidth()) + 2 * pad, (int) Math.ceil(extent.getHeight()) + 2 * pad);
+	}
+}
@@ -0,0 +1,492 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package server;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import remote.DrawEvent;
+import remote.DrawEventCodec;
+import scene.BaseImage;
+
+/**
+ * This class contains the write-ahead journal of the server's board. Every event the log accepts is
+ * appended to a file, and the board is recovered on startup by replaying it. The journal starts with a
+ * checkpoint of the whole board, which is rewritten whenever the board is reset or flattened so that
+ * the file stays about the size of the board. A checkpoint is begun while the board is as it describes
+ * and can be encoded later on another thread, events appended in between are kept after it.
+ *
+ * Appends only copy the record into memory. A background thread writes what was appended and forces it
+ * to disk once per group commit interval, so one sync covers every event of that window and the server
+ * never waits on the disk. A crash loses at most the last window.
+ *
+ * Each record is framed with its length and a CRC32. Replay streams through the file one record at a
+ * time, so it needs no more memory than the largest record. It stops at the first record that is cut
+ * short or fails its CRC, and the file is truncated there before new records are appended.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class BoardJournal implements Closeable {
+
+	/**
+	 * Receives the records of a journal as it is replayed.
+	 */
+	public interface Visitor {
+
+		/**
+		 * Starts a checkpoint, the board is empty until its tiles and events follow.
+		 * @param resetSeq sequence number of the last reset.
+		 * @param latestSeq sequence number of the latest event when the checkpoint was taken.
+		 */
+		void checkpoint(long resetSeq, long latestSeq);
+
+		/**
+		 * A tile of the base image.
+		 * @param key
+		 * @param png
+		 */
+		void tile(long key, byte[] png);
+
+		/**
+		 * An event, in the order they were accepted.
+		 * @param event
+		 */
+		void event(DrawEvent event);
+	}
+
+	/** First bytes of a journal file, "WBJ1". */
+	private static final int MAGIC = 0x57424A31;
+
+	/** Record type of a checkpoint header. */
+	private static final int RECORD_CHECKPOINT = 1;
+
+	/** Record type of a base image tile. */
+	private static final int RECORD_TILE = 2;
+
+	/** Record type of a draw event. */
+	private static final int RECORD_EVENT = 3;
+
+	/** Size of the length and CRC in front of every record. */
+	private static final int FRAME_BYTES = 2 * Integer.BYTES;
+
+	/** Size of the buffer a journal is replayed through, and of the first record buffer. */
+	private static final int REPLAY_BUFFER_BYTES = 64 * 1024;
+
+	/** Path of the journal file. */
+	private final Path file;
+
+	/** Interval in milliseconds between group commits. */
+	private final int groupCommitMs;
+
+	/** Channel the journal is appended through, replaced when a checkpoint rewrites the file. */
+	private FileChannel channel;
+
+	/** Records appended since the last group commit. */
+	private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+	/** Checkpoint waiting to replace the file at the next group commit, or null. */
+	private byte[] pendingCheckpoint;
+
+	/** Records appended since the latest checkpoint was begun, or null if it was written. */
+	private ByteArrayOutputStream sinceCheckpoint;
+
+	/** Number of checkpoints begun, only the latest of them is written. */
+	private long checkpointCount = 0;
+
+	/** Held while writing to the file, by the committing thread or a caller waiting for a sync. */
+	private final Object commitLock = new Object();
+
+	/** Writes the pending records to disk. */
+	private final Thread committer;
+
+	/** Whether the journal was closed. */
+	private boolean closed = false;
+
+	/** Number of group commits written so far. */
+	private long commitCount = 0;
+
+	/** Number of records appended so far. */
+	private long recordCount = 0;
+
+	private BoardJournal(Path file, int groupCommitMs, FileChannel channel) {
+		this.file = file;
+		this.groupCommitMs = groupCommitMs;
+		this.channel = channel;
+		this.committer = new Thread(this::commitLoop, "journal-" + file.getFileName());
+		this.committer.setDaemon(true);
+	}
+
+	/**
+	 * Opens a journal, replaying the records already in it.
+	 * @param file created if it does not exist.
+	 * @param groupCommitMs interval in milliseconds between group commits.
+	 * @param visitor receives the records already in the journal.
+	 */
+	public static BoardJournal open(Path file, int groupCommitMs, Visitor visitor) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		long valid;
+		try {
+			valid = replay(channel, visitor);
+			if (valid == 0) {
+				channel.truncate(0);
+				writeFully(channel, header(), 0);
+				valid = Integer.BYTES;
+			} else if (valid < channel.size()) {
+				System.out.println("Journal " + file + " ends with a torn record, truncating it");
+				channel.truncate(valid);
+			}
+			channel.force(true);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		channel.position(valid);
+		BoardJournal journal = new BoardJournal(file, groupCommitMs, channel);
+		journal.committer.start();
+		return journal;
+	}
+
+	/**
+	 * Appends an accepted event, it is written to disk with the next group commit.
+	 * @param event
+	 */
+	public synchronized void append(DrawEvent event) {
+		if (closed) {
+			return;
+		}
+		if (sinceCheckpoint == null) {
+			writeRecord(new DataOutputStream(pending), RECORD_EVENT, out -> DrawEventCodec.write(out, event));
+		} else {
+			// also kept for the checkpoint being encoded, it goes after it
+			ByteArrayOutputStream record = new ByteArrayOutputStream();
+			writeRecord(new DataOutputStream(record), RECORD_EVENT, out -> DrawEventCodec.write(out, event));
+			byte[] bytes = record.toByteArray();
+			pending.writeBytes(bytes);
+			sinceCheckpoint.writeBytes(bytes);
+		}
+		recordCount++;
+	}
+
+	/**
+	 * Replaces the journal with a checkpoint of the whole board at the next group commit. Events appended
+	 * after this call are kept after the checkpoint.
+	 * @param resetSeq sequence number of the last reset.
+	 * @param latestSeq sequence number of the latest event.
+	 * @param base flattened part of the board.
+	 * @param events events on the board, in order.
+	 */
+	public void checkpoint(long resetSeq, long latestSeq, BaseImage base, List<DrawEvent> events) {
+		checkpoint(beginCheckpoint(), resetSeq, latestSeq, base, events);
+	}
+
+	/**
+	 * Begins a checkpoint of the board as it is now, so that it can be encoded while events are still
+	 * appended. Events appended from now on are kept after it.
+	 * @return the checkpoint to pass to {@link #checkpoint(long, long, long, BaseImage, List)}.
+	 */
+	public synchronized long beginCheckpoint() {
+		sinceCheckpoint = new ByteArrayOutputStream();
+		return ++checkpointCount;
+	}
+
+	/**
+	 * Replaces the journal with a begun checkpoint at the next group commit. The checkpoint is encoded
+	 * without holding the journal, and dropped if a later one was begun meanwhile.
+	 * @param checkpoint returned by {@link #beginCheckpoint()}.
+	 * @param resetSeq sequence number of the last reset.
+	 * @param latestSeq sequence number of the latest event.
+	 * @param base flattened part of the board, not changed while it is encoded.
+	 * @param events events on the board when the checkpoint was begun, in order.
+	 */
+	public void checkpoint(long checkpoint, long resetSeq, long latestSeq, BaseImage base, List<DrawEvent> events) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		writeRecord(out, RECORD_CHECKPOINT, record -> {
+			record.writeLong(resetSeq);
+			record.writeLong(latestSeq);
+		});
+		for (long key : base.getTileKeys()) {
+			byte[] png = base.getTile(key);
+			writeRecord(out, RECORD_TILE, record -> {
+				record.writeLong(key);
+				record.writeInt(png.length);
+				record.write(png);
+			});
+		}
+		for (DrawEvent event : events) {
+			writeRecord(out, RECORD_EVENT, record -> DrawEventCodec.write(record, event));
+		}
+		synchronized (this) {
+			if (closed || checkpoint != checkpointCount) {
+				return; // a later checkpoint covers this one
+			}
+			// the checkpoint covers everything appended before it was begun
+			pendingCheckpoint = bytes.toByteArray();
+			pending = sinceCheckpoint;
+			sinceCheckpoint = null;
+			recordCount += 1 + base.getTileKeys().size() + events.size();
+		}
+	}
+
+	/**
+	 * Writes everything appended so far to disk and waits for it.
+	 */
+	public void sync() throws IOException {
+		commit();
+	}
+
+	/**
+	 * Writes everything appended so far to disk and stops the journal.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		committer.interrupt();
+		try {
+			committer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			commit();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Closes the journal and deletes its file, for when the board is closed on purpose and there is
+	 * nothing to recover.
+	 */
+	public void discard() throws IOException {
+		close();
+		Files.deleteIfExists(file);
+	}
+
+	/**
+	 * Getter for the number of group commits written so far.
+	 */
+	public synchronized long getCommitCount() {
+		return commitCount;
+	}
+
+	/**
+	 * Getter for the number of records appended so far, including the records of checkpoints.
+	 */
+	public synchronized long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * Getter for the size of the journal file in bytes, not counting records waiting to be committed.
+	 */
+	public long getByteCount() throws IOException {
+		return Files.size(file);
+	}
+
+	private void commitLoop() {
+		while (true) {
+			try {
+				Thread.sleep(groupCommitMs);
+			} catch (InterruptedException e) {
+				return;
+			}
+			try {
+				commit();
+			} catch (IOException e) {
+				// the records stay pending and are tried again with the next commit
+				System.out.println("Error writing journal " + file + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Writes the pending checkpoint and records to disk in one sync.
+	 */
+	private void commit() throws IOException {
+		synchronized (commitLock) {
+			byte[] checkpoint;
+			byte[] records;
+			synchronized (this) {
+				checkpoint = pendingCheckpoint;
+				records = pending.toByteArray();
+				if (checkpoint == null && records.length == 0) {
+					return;
+				}
+				pendingCheckpoint = null;
+				pending = new ByteArrayOutputStream();
+			}
+			try {
+				if (checkpoint != null) {
+					rewrite(checkpoint, records);
+				} else {
+					channel.position(writeFully(channel, ByteBuffer.wrap(records), channel.position()));
+					channel.force(false);
+				}
+			} catch (IOException e) {
+				requeue(checkpoint, records);
+				throw e;
+			}
+			synchronized (this) {
+				commitCount++;
+			}
+		}
+	}
+
+	/**
+	 * Replaces the file with a checkpoint and the records after it, through a temporary file so that a
+	 * crash leaves either the old journal or the new one.
+	 */
+	private void rewrite(byte[] checkpoint, byte[] records) throws IOException {
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			long position = writeFully(out, header(), 0);
+			position = writeFully(out, ByteBuffer.wrap(checkpoint), position);
+			writeFully(out, ByteBuffer.wrap(records), position);
+			out.force(true);
+		}
+		channel.close();
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		channel.position(channel.size());
+	}
+
+	/**
+	 * Puts back records whose commit failed, in front of anything appended since.
+	 */
+	private synchronized void requeue(byte[] checkpoint, byte[] records) {
+		if (pendingCheckpoint != null) {
+			return; // a newer checkpoint covers them
+		}
+		ByteArrayOutputStream restored = new ByteArrayOutputStream();
+		restored.writeBytes(records);
+		restored.writeBytes(pending.toByteArray());
+		pending = restored;
+		pendingCheckpoint = checkpoint;
+	}
+
+	/**
+	 * Replays the records of a journal.
+	 * @return length of the valid part of the file, or 0 if it is empty or not a journal.
+	 */
+	private static long replay(FileChannel channel, Visitor visitor) throws IOException {
+		long size = channel.size();
+		if (size < Integer.BYTES) {
+			return 0;
+		}
+		// not closed, that would close the channel
+		DataInputStream file = new DataInputStream(
+				new BufferedInputStream(Channels.newInputStream(channel.position(0)), REPLAY_BUFFER_BYTES));
+		if (file.readInt() != MAGIC) {
+			System.out.println("Not a whiteboard journal, starting a new one");
+			return 0;
+		}
+		long position = Integer.BYTES;
+		CRC32 crc = new CRC32();
+		byte[] record = new byte[REPLAY_BUFFER_BYTES];
+		while (size - position >= FRAME_BYTES) {
+			int length = file.readInt();
+			int checksum = file.readInt();
+			if (length <= 0 || length > size - position - FRAME_BYTES) {
+				break; // cut short while it was written
+			}
+			if (length > record.length) {
+				record = new byte[Math.max(length, 2 * record.length)];
+			}
+			file.readFully(record, 0, length);
+			crc.reset();
+			crc.update(record, 0, length);
+			if ((int) crc.getValue() != checksum) {
+				break;
+			}
+			position += FRAME_BYTES + length;
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 0, length));
+			int type = in.readUnsignedByte();
+			switch (type) {
+			case RECORD_CHECKPOINT:
+				visitor.checkpoint(in.readLong(), in.readLong());
+				break;
+			case RECORD_TILE:
+				long key = in.readLong();
+				byte[] png = new byte[in.readInt()];
+				in.readFully(png);
+				visitor.tile(key, png);
+				break;
+			case RECORD_EVENT:
+				DrawEvent event = new DrawEvent();
+				DrawEventCodec.read(in, event);
+				visitor.event(event);
+				break;
+			default:
+				System.out.println("Unknown journal record " + type + ", skipping it");
+				break;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Body of a record.
+	 */
+	@FunctionalInterface
+	private interface RecordWriter {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/**
+	 * Writes a record framed with its length and CRC32.
+	 */
+	private static void writeRecord(DataOutputStream out, int type, RecordWriter body) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream record = new DataOutputStream(bytes);
+		CRC32 crc = new CRC32();
+		try {
+			record.writeByte(type);
+			body.write(record);
+			byte[] data = bytes.toByteArray();
+			crc.update(data);
+			out.writeInt(data.length);
+			out.writeInt((int) crc.getValue());
+			out.write(data);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // writing to memory
+		}
+	}
+
+	private static ByteBuffer header() {
+		return ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC).flip();
+	}
+
+	private static long writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+		return position;
+	}
+}
@@ -0,0 +1,640 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import remote.DrawEvent;
+import remote.DrawEventCodec;
+import remote.EventDelta;
+import remote.SnapshotPage;
+import scene.BaseImage;
+import scene.Drawable;
+import scene.PointBuffer;
+import whiteboardapp.DrawableRenderer;
+import whiteboardapp.WhiteboardConstants;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class contains the canonical whiteboard state kept by the server: an append-only log of every
+ * draw event broadcast to the clients. Streamed strokes are assembled here and only appended once
+ * they are finished, so joining users are served from the log without asking the manager's client.
+ *
+ * Every appended event gets the next sequence number. The most recent events are also kept in a
+ * bounded window, so a client that missed some of them can fetch just those instead of the board.
+ * Clients further behind fetch the board page by page. Pages are cut from the log itself, so a page is
+ * encoded on demand and the whole board never is. The events of a page are compressed when the client
+ * accepts it and they are at least {@link WhiteboardConstants#SNAPSHOT_DEFLATE_MIN_BYTES}.
+ *
+ * Object eraser events are not kept in the log, the events they erase are left out of later pages
+ * instead. Erased events are dropped from the log once they are half of it, which invalidates
+ * snapshots being fetched in the same way as a reset.
+ *
+ * So that the log does not grow for as long as the session runs, the oldest drawables are flattened
+ * into a base image once the board holds more than {@link WhiteboardConstants#FLATTEN_MAX_ITEMS}
+ * drawables or {@link WhiteboardConstants#FLATTEN_MAX_POINTS} points. Snapshots start with the tiles
+ * of the base image, and clients flatten the same drawables when they apply the flatten event. The
+ * server rasterises them into a copy of the base image without its lock, see {@link Flatten}. Until
+ * that copy is published they stay in the log and snapshots serve them as events.
+ *
+ * When a journal is opened every accepted event is also written to it, with a checkpoint of the whole
+ * board after each reset and flatten, so the board survives the server process dying.
+ *
+ * Not thread safe, the server servant guards it with its own lock.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+class BoardLog {
+
+	/** Finished draw events in the order they were broadcast, including erased ones. */
+	private final List<DrawEvent> events = new ArrayList<>();
+
+	/** Events in the log that were not erased, by id. */
+	private final Map<Long, DrawEvent> live = new HashMap<>();
+
+	/** Number of points of the events in the log that were not erased. */
+	private long livePoints = 0;
+
+	/** Ids of the events in the log that were erased. */
+	private final Set<Long> erased = new HashSet<>();
+
+	/** Drawables flattened out of the log, not changed once published. */
+	private BaseImage base = new BaseImage();
+
+	/** Flatten whose drawables are being rasterised, or null. */
+	private Flatten flattening;
+
+	/** Strokes that are still being streamed, by stroke id. */
+	private final Map<Long, PendingStroke> pending = new HashMap<>();
+
+	/** The most recent events, with consecutive sequence numbers ending at latestSeq. */
+	private final ArrayDeque<DrawEvent> recent = new ArrayDeque<>();
+
+	/** Maximum number of recent events kept. */
+	private final int capacity;
+
+	/** Sequence number of the latest event, or of the last reset. */
+	private long latestSeq = 0;
+
+	/** Clients at or after this sequence number can be caught up from the recent events. */
+	private long oldestSeq = 0;
+
+	/** Sequence number of the last reset, snapshots taken before it are stale. */
+	private long resetSeq = 0;
+
+	/** Sequence number of the last time events were dropped from the log, snapshots taken before it are stale. */
+	private long compactSeq = 0;
+
+	/** Journal the accepted events are written to, or null if the board is not journaled. */
+	private BoardJournal journal;
+
+	/** Number of snapshots whose last page was served. */
+	private long snapshotCount = 0;
+
+	/** Size of the snapshot pages served, before their events were compressed. */
+	private long snapshotRawBytes = 0;
+
+	/** Size of the snapshot pages served, as sent. */
+	private long snapshotSentBytes = 0;
+
+	/** Time spent compressing snapshot pages. */
+	private long snapshotDeflateNanos = 0;
+
+	/**
+	 * A stroke that is still being streamed and the user drawing it.
+	 */
+	private static class PendingStroke {
+		final String username;
+		final DrawEvent event;
+
+		PendingStroke(String username, DrawEvent event) {
+			this.username = username;
+			this.event = event;
+		}
+	}
+
+	/**
+	 * Drawables being flattened into a copy of the base image. The copy is drawn without the servant's
+	 * lock and published under it, unless the board was reset in between.
+	 */
+	final class Flatten {
+		private final DrawEvent event;
+		private final Set<Long> ids;
+		private final List<Drawable> drawables;
+		private final BaseImage from;
+		private BaseImage result;
+
+		private Flatten(DrawEvent event, Set<Long> ids, List<Drawable> drawables, BaseImage from) {
+			this.event = event;
+			this.ids = ids;
+			this.drawables = drawables;
+			this.from = from;
+		}
+
+		/**
+		 * Getter for the flatten event sent to the clients.
+		 */
+		DrawEvent getEvent() {
+			return event;
+		}
+
+		/**
+		 * Draws the drawables into a copy of the base image, without the servant's lock.
+		 */
+		void rasterise() {
+			BaseImage next = from.copy();
+			next.draw(drawables, DrawableRenderer::draw);
+			result = next;
+		}
+	}
+
+	/**
+	 * A checkpoint of the board taken under the servant's lock and written to the journal without it.
+	 */
+	final class Checkpoint {
+		private final BoardJournal journal;
+		private final long checkpoint;
+		private final long resetSeq;
+		private final long latestSeq;
+		private final BaseImage base;
+		private final List<DrawEvent> board;
+
+		private Checkpoint(BoardJournal journal, long checkpoint, long resetSeq, long latestSeq, BaseImage base,
+				List<DrawEvent> board) {
+			this.journal = journal;
+			this.checkpoint = checkpoint;
+			this.resetSeq = resetSeq;
+			this.latestSeq = latestSeq;
+			this.base = base;
+			this.board = board;
+		}
+
+		/**
+		 * Encodes the checkpoint and hands it to the journal.
+		 */
+		void write() {
+			journal.checkpoint(checkpoint, resetSeq, latestSeq, base, board);
+		}
+	}
+
+	/**
+	 * Constructor of BoardLog.
+	 * @param capacity number of recent events kept for catching up.
+	 */
+	BoardLog(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Appends a finished draw event and assigns its sequence number.
+	 * @param event
+	 */
+	void append(DrawEvent event) {
+		event.seq = ++latestSeq;
+		apply(event);
+		if (journal != null) {
+			journal.append(event);
+		}
+	}
+
+	/**
+	 * Applies an event that has its sequence number to the board.
+	 * @param event
+	 */
+	private void apply(DrawEvent event) {
+		recent.addLast(event);
+		if (recent.size() > capacity) {
+			oldestSeq = recent.removeFirst().seq;
+		}
+		if (event.type == ShapeType.OBJECT_ERASER) {
+			erase(event.targets);
+		} else if (event.type == ShapeType.FLATTEN) {
+			flattening = detach(event);
+		} else {
+			if (event.id == 0) {
+				event.id = Drawable.newId(); // sent without one, the log tells drawables apart by id
+			}
+			events.add(event);
+			live.put(event.id, event);
+			livePoints += event.points.size();
+		}
+	}
+
+	/**
+	 * Flattens the oldest drawables if the board is over its budget, until it is within half of it, and
+	 * appends the flatten event for the clients. The flatten still has to be rasterised and published.
+	 * @return the flatten, or null if the board is within its budget or a flatten is still in progress.
+	 */
+	Flatten flattenIfOverBudget() {
+		if (flattening != null || (live.size() <= WhiteboardConstants.FLATTEN_MAX_ITEMS
+				&& livePoints <= WhiteboardConstants.FLATTEN_MAX_POINTS)) {
+			return null;
+		}
+		List<Long> oldest = new ArrayList<>();
+		int items = live.size();
+		long points = livePoints;
+		for (DrawEvent event : events) {
+			if (items <= WhiteboardConstants.FLATTEN_MAX_ITEMS / 2 && points <= WhiteboardConstants.FLATTEN_MAX_POINTS / 2) {
+				break;
+			}
+			if (live.containsKey(event.id)) {
+				oldest.add(event.id);
+				items--;
+				points -= event.points.size();
+			}
+		}
+		long[] ids = new long[oldest.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = oldest.get(i);
+		}
+		append(DrawEvent.flatten(ids));
+		return flattening;
+	}
+
+	/**
+	 * Takes the drawables of a flatten event off the board. They stay in the log until the flatten is
+	 * published.
+	 * @param event
+	 */
+	private Flatten detach(DrawEvent event) {
+		Set<Long> ids = new HashSet<>();
+		List<Drawable> drawables = new ArrayList<>();
+		if (event.targets != null) {
+			for (long id : event.targets) {
+				DrawEvent flattened = live.remove(id);
+				if (flattened == null) {
+					continue;
+				}
+				livePoints -= flattened.points.size();
+				ids.add(id);
+				Drawable drawable = flattened.toDrawable();
+				if (drawable != null) {
+					drawables.add(drawable);
+				}
+			}
+		}
+		return new Flatten(event, ids, drawables, base);
+	}
+
+	/**
+	 * Replaces the base image with the rasterised one of a flatten and drops its drawables from the log.
+	 * @param flatten
+	 * @return checkpoint of the board to write to the journal, or null if the board is not journaled or
+	 *         was reset since the flatten began, which leaves nothing to publish.
+	 */
+	Checkpoint publish(Flatten flatten) {
+		if (flatten != flattening) {
+			return null;
+		}
+		flattening = null;
+		events.removeIf(e -> flatten.ids.contains(e.id));
+		base = flatten.result;
+		compactSeq = latestSeq;
+		return takeCheckpoint();
+	}
+
+	/**
+	 * Gives up on a flatten that could not be rasterised. Its drawables stay in the log as events.
+	 * @param flatten
+	 */
+	void abandon(Flatten flatten) {
+		if (flatten == flattening) {
+			flattening = null;
+		}
+	}
+
+	/**
+	 * Leaves erased events out of the board, dropping them from the log once they are half of it.
+	 * @param ids of the erased drawables.
+	 */
+	private void erase(long[] ids) {
+		if (ids == null) {
+			return;
+		}
+		for (long id : ids) {
+			DrawEvent event = live.remove(id);
+			if (event != null) {
+				erased.add(id);
+				livePoints -= event.points.size();
+			}
+		}
+		if (erased.size() > events.size() / 2) {
+			events.removeIf(e -> erased.contains(e.id));
+			erased.clear();
+			compactSeq = latestSeq;
+		}
+	}
+
+	/**
+	 * Starts assembling a streamed stroke.
+	 * @param username of the user drawing the stroke.
+	 * @param strokeId
+	 * @param header type, colour, size and first points of the stroke.
+	 */
+	void beginStroke(String username, long strokeId, DrawEvent header) {
+		// the header is still queued for the other clients, grow a copy of it instead
+		DrawEvent event = new DrawEvent(header.type, header.points.copy(), header.text, header.size, header.colour);
+		event.id = strokeId;
+		pending.put(strokeId, new PendingStroke(username, event));
+	}
+
+	/**
+	 * Adds points to a streamed stroke.
+	 * @param strokeId
+	 * @param points
+	 */
+	void appendStroke(long strokeId, PointBuffer points) {
+		PendingStroke stroke = pending.get(strokeId);
+		if (stroke != null) {
+			stroke.event.points.addAll(points);
+		}
+	}
+
+	/**
+	 * Appends a streamed stroke to the log now that it is finished.
+	 * @param strokeId
+	 * @return sequence number of the stroke, or 0 if it was not being streamed.
+	 */
+	long endStroke(long strokeId) {
+		PendingStroke stroke = pending.remove(strokeId);
+		if (stroke == null) {
+			return 0;
+		}
+		append(stroke.event);
+		return stroke.event.seq;
+	}
+
+	/**
+	 * Ends every stroke a user was still drawing, for when the user leaves.
+	 * @param username
+	 * @return sequence numbers of the strokes that were ended, by stroke id.
+	 */
+	Map<Long, Long> endStrokesOf(String username) {
+		Map<Long, Long> ended = new LinkedHashMap<>();
+		Iterator<Map.Entry<Long, PendingStroke>> it = pending.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Long, PendingStroke> entry = it.next();
+			if (entry.getValue().username.equals(username)) {
+				it.remove();
+				append(entry.getValue().event);
+				ended.put(entry.getKey(), entry.getValue().event.seq);
+			}
+		}
+		return ended;
+	}
+
+	/**
+	 * Replaces the whole log, when the manager starts a new board or opens a file. The reset takes a
+	 * sequence number of its own, clients from before it need the new board.
+	 * @param drawHistory
+	 * @param base flattened part of the new board.
+	 */
+	void reset(List<Drawable> drawHistory, BaseImage base) {
+		events.clear();
+		live.clear();
+		livePoints = 0;
+		erased.clear();
+		this.base = base.copy(); // the host passes its own image
+		flattening = null;
+		pending.clear();
+		recent.clear();
+		resetSeq = oldestSeq = ++latestSeq;
+		for (Drawable d : drawHistory) {
+			DrawEvent event = DrawEvent.fromDrawable(d);
+			event.seq = resetSeq;
+			events.add(event);
+			live.put(event.id, event);
+			livePoints += event.points.size();
+		}
+		checkpoint();
+	}
+
+	/**
+	 * Restores the board from a journal and journals every change to it from now on.
+	 * @param file path of the journal, created if it does not exist.
+	 */
+	void openJournal(Path file) throws IOException {
+		long start = System.nanoTime();
+		journal = BoardJournal.open(file, WhiteboardConstants.JOURNAL_GROUP_COMMIT_MS, new Recovery());
+		// clients from before a restart have to fetch the whole board
+		recent.clear();
+		oldestSeq = compactSeq = latestSeq;
+		System.out.println("Recovered " + live.size() + " drawables from " + file + " in "
+				+ (System.nanoTime() - start) / 1_000_000 + " ms");
+		// the replayed records are now covered by a single checkpoint
+		checkpoint();
+	}
+
+	/**
+	 * Writes what is left of the journal to disk and closes it.
+	 * @param discard whether to delete the journal, for when the board is closed on purpose.
+	 */
+	void closeJournal(boolean discard) throws IOException {
+		if (journal == null) {
+			return;
+		}
+		if (discard) {
+			journal.discard();
+		} else {
+			journal.close();
+		}
+		journal = null;
+	}
+
+	/**
+	 * Replaces the journal with a checkpoint of the whole board.
+	 */
+	private void checkpoint() {
+		Checkpoint checkpoint = takeCheckpoint();
+		if (checkpoint != null) {
+			checkpoint.write();
+		}
+	}
+
+	/**
+	 * Takes a checkpoint of the whole board, to be written to the journal.
+	 * @return the checkpoint, or null if the board is not journaled.
+	 */
+	private Checkpoint takeCheckpoint() {
+		if (journal == null) {
+			return null;
+		}
+		List<DrawEvent> board = new ArrayList<>(live.size());
+		for (DrawEvent event : events) {
+			if (!erased.contains(event.id)) {
+				board.add(event);
+			}
+		}
+		return new Checkpoint(journal, journal.beginCheckpoint(), resetSeq, latestSeq, base, board);
+	}
+
+	/**
+	 * Rebuilds the board from the records of a journal.
+	 */
+	private class Recovery implements BoardJournal.Visitor {
+
+		@Override
+		public void checkpoint(long resetSeq, long latestSeq) {
+			events.clear();
+			live.clear();
+			livePoints = 0;
+			erased.clear();
+			base = new BaseImage();
+			flattening = null;
+			BoardLog.this.resetSeq = resetSeq;
+			BoardLog.this.latestSeq = latestSeq;
+		}
+
+		@Override
+		public void tile(long key, byte[] png) {
+			base.putTile(key, png);
+		}
+
+		@Override
+		public void event(DrawEvent event) {
+			// events of a checkpoint are older than the checkpoint itself
+			latestSeq = Math.max(latestSeq, event.seq);
+			apply(event);
+			if (flattening != null) {
+				flattening.rasterise();
+				publish(flattening);
+			}
+		}
+	}
+
+	/**
+	 * Encodes a page of the board as it was at a sequence number. The tiles of the base image come
+	 * first, then the events.
+	 * @param snapshotSeq sequence number the snapshot is taken at, 0 to take a new one.
+	 * @param cursor index of the first tile or event on the page.
+	 * @param maxBytes size after which no more tiles or events are added, every page holds at least one.
+	 * @param acceptEncodings bits of the encodings the client can decode, such as {@link SnapshotPage#DEFLATE}.
+	 */
+	SnapshotPage snapshotPage(long snapshotSeq, int cursor, int maxBytes, int acceptEncodings) {
+		if (snapshotSeq == 0) {
+			snapshotSeq = latestSeq;
+		} else if (snapshotSeq < resetSeq || snapshotSeq < compactSeq || snapshotSeq > latestSeq) {
+			return SnapshotPage.stale();
+		}
+		cursor = Math.max(0, cursor);
+		// the base image only changes when the log is reset or flattened, which makes the snapshot stale
+		List<Long> tileKeys = new ArrayList<>(base.getTileKeys());
+		int tileCount = tileKeys.size();
+		int end = tileCount + countUpTo(snapshotSeq);
+		List<Long> pageKeys = new ArrayList<>();
+		List<byte[]> pageTiles = new ArrayList<>();
+		int tileBytes = 0;
+		int i = cursor;
+		while (i < tileCount && (pageTiles.isEmpty() || tileBytes < maxBytes)) {
+			long key = tileKeys.get(i++);
+			byte[] png = base.getTile(key);
+			pageKeys.add(key);
+			pageTiles.add(png);
+			tileBytes += png.length;
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.min(maxBytes, 1 << 20) + 256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		int count = 0;
+		try {
+			while (i < end && ((count == 0 && pageTiles.isEmpty()) || tileBytes + out.size() < maxBytes)) {
+				DrawEvent event = events.get(i - tileCount);
+				i++;
+				if (!erased.contains(event.id)) {
+					DrawEventCodec.write(out, event);
+					count++;
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // writing to memory
+		}
+		long[] keys = new long[pageKeys.size()];
+		for (int k = 0; k < keys.length; k++) {
+			keys[k] = pageKeys.get(k);
+		}
+		SnapshotPage page = new SnapshotPage(snapshotSeq, i, i >= end, keys, pageTiles.toArray(new byte[0][]),
+				count, bytes.toByteArray());
+		if ((acceptEncodings & SnapshotPage.DEFLATE) != 0 && bytes.size() >= WhiteboardConstants.SNAPSHOT_DEFLATE_MIN_BYTES) {
+			long start = System.nanoTime();
+			page = page.deflate(WhiteboardConstants.SNAPSHOT_DEFLATE_LEVEL);
+			snapshotDeflateNanos += System.nanoTime() - start;
+		}
+		snapshotRawBytes += page.getRawByteCount();
+		snapshotSentBytes += page.getByteCount();
+		if (page.last) {
+			snapshotCount++;
+			System.out.printf("Snapshots served: %d, %.1f KB each, sent as %.0f%% of it, %.2f ms compressing each%n",
+					snapshotCount, snapshotRawBytes / 1024.0 / snapshotCount,
+					100.0 * snapshotSentBytes / Math.max(1, snapshotRawBytes), snapshotDeflateNanos / 1e6 / snapshotCount);
+		}
+		return page;
+	}
+
+	/**
+	 * Number of events in the log with a sequence number up to the given one.
+	 */
+	private int countUpTo(long seq) {
+		// sequence numbers never decrease along the log
+		int low = 0;
+		int high = events.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (events.get(mid).seq <= seq) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Events a client has missed, or a note to fetch the whole board if they are no longer kept.
+	 * @param seq sequence number of the latest event the client has.
+	 */
+	EventDelta eventsSince(long seq) {
+		if (seq < oldestSeq || seq > latestSeq) {
+			return EventDelta.snapshotRequired(latestSeq);
+		}
+		int missed = (int) (latestSeq - seq);
+		List<DrawEvent> delta = new ArrayList<>(missed);
+		Iterator<DrawEvent> it = recent.descendingIterator();
+		for (int i = 0; i < missed; i++) {
+			delta.add(it.next());
+		}
+		Collections.reverse(delta);
+		return EventDelta.ofEvents(latestSeq, delta);
+	}
+
+	/**
+	 * Sequence number of the last reset.
+	 */
+	long getResetSeq() {
+		return resetSeq;
+	}
+
+	/**
+	 * Number of finished draw events on the board, leaving out erased and flattened ones.
+	 */
+	int size() {
+		return live.size();
+	}
+}
@@ -0,0 +1,69 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import remote.ChatMessage;
+
+/**
+ * This class contains the recent chat of the whiteboard, kept in a ring buffer of a fixed capacity so
+ * the oldest messages are overwritten once it is full. Messages are numbered and stamped with the time as
+ * they are added. It is guarded by its own lock, so the chat never waits for the board.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+class ChatLog {
+
+	/** Recent messages, the oldest at {@link #head} once the buffer is full. */
+	private final ChatMessage[] ring;
+
+	/** Index the next message is written to. */
+	private int head = 0;
+
+	/** Number of messages in the buffer. */
+	private int size = 0;
+
+	/** Sequence number of the latest message. */
+	private long latestSeq = 0;
+
+	/**
+	 * Constructor of ChatLog.
+	 * @param capacity number of recent messages kept.
+	 */
+	ChatLog(int capacity) {
+		ring = new ChatMessage[capacity];
+	}
+
+	/**
+	 * Adds a message, overwriting the oldest if the buffer is full.
+	 * @param username who wrote it, or null for a message of the server.
+	 * @param text
+	 * @return the message with its sequence number and time.
+	 */
+	synchronized ChatMessage append(String username, String text) {
+		ChatMessage message = new ChatMessage(++latestSeq, System.currentTimeMillis(), username, text);
+		ring[head] = message;
+		head = (head + 1) % ring.length;
+		size = Math.min(size + 1, ring.length);
+		return message;
+	}
+
+	/**
+	 * Getter for the most recent messages, oldest first.
+	 * @param max most messages returned.
+	 */
+	synchronized List<ChatMessage> recent(int max) {
+		int count = Math.max(0, Math.min(max, size));
+		List<ChatMessage> messages = new ArrayList<>(count);
+		for (int i = count; i > 0; i--) {
+			messages.add(ring[Math.floorMod(head - i, ring.length)]);
+		}
+		return messages;
+	}
+}
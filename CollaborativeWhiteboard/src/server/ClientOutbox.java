@@ -0,0 +1,345 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package server;
+
+import java.net.SocketTimeoutException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import remote.ChatMessage;
+import remote.DrawEvent;
+import remote.IWhiteboardClient;
+import whiteboardapp.WhiteboardConstants;
+
+/**
+ * This class contains the outbound queue of a single connected client. Calls destined for the client are
+ * queued and delivered in order by a dedicated dispatcher thread, so a slow client only delays itself.
+ *
+ * When nothing was delivered for {@link WhiteboardConstants#HEARTBEAT_INTERVAL_MS} the dispatcher sends
+ * a heartbeat, so a client that went away is noticed even when the board is quiet. Each call is bounded
+ * by the timeout of the client's socket factory. After
+ * {@link WhiteboardConstants#CLIENT_MAX_FAILURES} calls in a row fail or time out the client is deemed
+ * unresponsive: the dispatcher stops, drops what is queued and reports it to be evicted.
+ *
+ * An outbox whose client left or was dropped is cancelled rather than closed: what is queued is dropped
+ * and the dispatcher is interrupted. A virtual dispatcher blocked in a call to the client is woken up
+ * straight away, a platform one only once the call returns or times out.
+ *
+ * Draw events are queued as {@link DrawCall}s and delivered in batches as {@link DrawBatching} says. A
+ * batch only takes draw events queued one after another, any other call ends it and goes after it, so
+ * the client sees every call in the order it was queued.
+ *
+ * Chat messages wait in a lane of their own. The first message waiting queues a single call that
+ * delivers every message waiting by the time it comes up, so a burst of chat takes one place in the
+ * queue between draw events rather than one place per message.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+class ClientOutbox {
+
+	/**
+	 * A single remote call to be made on the client by the dispatcher.
+	 */
+	@FunctionalInterface
+	interface ClientCall {
+		void invoke(IWhiteboardClient client) throws RemoteException;
+	}
+
+	/**
+	 * A draw event to be delivered, batched with the draw events queued after it.
+	 */
+	static final class DrawCall implements ClientCall {
+		final DrawEvent event;
+
+		DrawCall(DrawEvent event) {
+			this.event = event;
+		}
+
+		@Override
+		public void invoke(IWhiteboardClient client) throws RemoteException {
+			client.receiveDrawEvent(event);
+		}
+	}
+
+	/**
+	 * Told by the dispatcher about calls that failed, and about batches of draw events.
+	 */
+	interface Monitor {
+
+		/**
+		 * A call to the client failed.
+		 * @param outbox
+		 * @param timedOut whether the client did not answer in time.
+		 */
+		void failed(ClientOutbox outbox, boolean timedOut);
+
+		/**
+		 * Too many calls in a row failed, the client should be evicted.
+		 * @param outbox
+		 */
+		void unresponsive(ClientOutbox outbox);
+
+		/**
+		 * A batch of draw events is about to be delivered.
+		 * @param outbox
+		 * @param events number of draw events in the batch.
+		 * @param heldNanos total time the draw events were held back from delivery to batch them.
+		 */
+		void batched(ClientOutbox outbox, int events, long heldNanos);
+	}
+
+	/** How long the dispatcher waits for work before checking whether it was closed. */
+	private static final long POLL_INTERVAL_MS = 100;
+
+	/** Username of the client this outbox delivers to. */
+	private final String username;
+
+	/** Remote reference of the client. */
+	private final IWhiteboardClient client;
+
+	/** Bounded queue of calls waiting to be delivered. */
+	private final BlockingQueue<ClientCall> queue;
+
+	/** Thread delivering queued calls to the client one after another. */
+	private final Thread dispatcher;
+
+	/** Told on the dispatcher thread about calls that failed. */
+	private final Monitor monitor;
+
+	/** How draw events are batched. */
+	private final DrawBatching batching;
+
+	/** Chat messages waiting to be delivered together. */
+	private final BlockingQueue<ChatMessage> chat = new ArrayBlockingQueue<>(WhiteboardConstants.CHAT_QUEUE_CAPACITY);
+
+	/** Whether a call delivering the waiting chat messages is queued. */
+	private final AtomicBoolean chatQueued = new AtomicBoolean();
+
+	/** Call taken off the queue while batching that goes after the batch, used by the dispatcher only. */
+	private ClientCall carried;
+
+	/** Set once no more calls will be accepted; queued calls are still delivered. */
+	private volatile boolean closed = false;
+
+	/** Set once queued calls are dropped and the dispatcher should stop at once. */
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Constructor of ClientOutbox. Starts the dispatcher thread.
+	 * @param username
+	 * @param client
+	 * @param capacity maximum number of calls that can be waiting for delivery.
+	 * @param monitor told on the dispatcher thread about calls that failed.
+	 * @param mode kind of thread the dispatcher is.
+	 * @param batching how draw events are batched.
+	 */
+	ClientOutbox(String username, IWhiteboardClient client, int capacity, Monitor monitor, DispatchMode mode,
+			DrawBatching batching) {
+		this.username = username;
+		this.client = client;
+		this.monitor = monitor;
+		this.batching = batching;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.dispatcher = mode.start("outbox-" + username, this::dispatch);
+	}
+
+	/**
+	 * Queues a call for delivery without waiting.
+	 * @param call
+	 * @return false if the outbox is closed or full.
+	 */
+	boolean offer(ClientCall call) {
+		if (closed) {
+			return false;
+		}
+		return queue.offer(call);
+	}
+
+	/**
+	 * Queues a chat message for delivery without waiting.
+	 * @param message
+	 * @return false if the outbox is closed or full.
+	 */
+	boolean offerChat(ChatMessage message) {
+		if (closed || !chat.offer(message)) {
+			return false;
+		}
+		return !chatQueued.compareAndSet(false, true) || queue.offer(this::deliverChat);
+	}
+
+	/**
+	 * Delivers the chat messages waiting, on the dispatcher thread.
+	 * @param client
+	 */
+	private void deliverChat(IWhiteboardClient client) throws RemoteException {
+		// messages offered from here on queue another call
+		chatQueued.set(false);
+		List<ChatMessage> messages = new ArrayList<>();
+		chat.drainTo(messages);
+		if (!messages.isEmpty()) {
+			client.receiveChatMessages(messages);
+		}
+	}
+
+	/**
+	 * Stops accepting calls. Calls already queued are still delivered before the dispatcher exits.
+	 */
+	void close() {
+		closed = true;
+	}
+
+	/**
+	 * Drops the queued calls and stops accepting more, then delivers a last call before the dispatcher
+	 * exits.
+	 * @param last
+	 */
+	void closeWith(ClientCall last) {
+		closed = true;
+		queue.clear();
+		queue.offer(last);
+	}
+
+	/**
+	 * Drops the queued calls and stops the dispatcher, interrupting the call it is making.
+	 */
+	void cancel() {
+		closed = true;
+		cancelled = true;
+		queue.clear();
+		chat.clear();
+		dispatcher.interrupt();
+	}
+
+	/**
+	 * Waits for the dispatcher to deliver the remaining calls after the outbox was closed.
+	 * @param timeoutMillis
+	 * @return true if everything was delivered in time.
+	 */
+	boolean awaitDrained(long timeoutMillis) throws InterruptedException {
+		dispatcher.join(timeoutMillis);
+		return !dispatcher.isAlive();
+	}
+
+	/**
+	 * Getter for the number of calls waiting for delivery.
+	 */
+	int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Getter for the username of the client.
+	 */
+	String getUsername() {
+		return username;
+	}
+
+	/**
+	 * Delivers queued calls in order until the outbox is closed and empty, sending heartbeats while
+	 * there is nothing to deliver.
+	 */
+	private void dispatch() {
+		long lastCall = System.nanoTime();
+		int failuresInRow = 0;
+		while (!(closed && queue.isEmpty() && carried == null) && !cancelled) {
+			ClientCall call = carried;
+			carried = null;
+			try {
+				if (call == null) {
+					call = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+				}
+				if (call instanceof DrawCall first && batching.maxEvents > 1) {
+					call = batch(first);
+				}
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (call == null) {
+				if (closed || System.nanoTime() - lastCall < TimeUnit.MILLISECONDS.toNanos(WhiteboardConstants.HEARTBEAT_INTERVAL_MS)) {
+					continue;
+				}
+				call = IWhiteboardClient::heartbeat;
+			}
+			lastCall = System.nanoTime();
+			try {
+				call.invoke(client);
+				failuresInRow = 0;
+			} catch (RemoteException | RuntimeException e) {
+				if (cancelled) {
+					return;
+				}
+				System.out.println("Failed to deliver to " + username + ": " + e.getMessage());
+				monitor.failed(this, isTimeout(e));
+				if (++failuresInRow >= WhiteboardConstants.CLIENT_MAX_FAILURES && !closed) {
+					closed = true;
+					queue.clear();
+					monitor.unresponsive(this);
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gathers the draw events queued after a draw event into a batch, waiting for more until the batch
+	 * is full or the window is over.
+	 * @param first
+	 * @return the call delivering the batch.
+	 */
+	private ClientCall batch(DrawCall first) throws InterruptedException {
+		List<DrawEvent> events = new ArrayList<>();
+		events.add(first.event);
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(batching.windowMs);
+		long takenNanos = 0; // sum of the times the events were taken off the queue, since the first was
+		while (events.size() < batching.maxEvents) {
+			ClientCall next = queue.peek();
+			if (next == null) {
+				long wait = deadline - System.nanoTime();
+				if (wait <= 0 || closed) {
+					break;
+				}
+				next = queue.poll(wait, TimeUnit.NANOSECONDS);
+				if (next == null) {
+					break;
+				}
+				if (!(next instanceof DrawCall)) {
+					carried = next;
+					break;
+				}
+			} else if (next instanceof DrawCall) {
+				queue.poll();
+			} else {
+				break;
+			}
+			events.add(((DrawCall) next).event);
+			takenNanos += System.nanoTime() - start;
+		}
+		monitor.batched(this, events.size(), events.size() * (System.nanoTime() - start) - takenNanos);
+		if (events.size() == 1) {
+			return first;
+		}
+		return client -> client.receiveDrawEvents(events);
+	}
+
+	/**
+	 * Whether a failed call failed because the client did not answer in time.
+	 */
+	private static boolean isTimeout(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SocketTimeoutException) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,57 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package server;
+
+/**
+ * This enum contains the kinds of threads the server delivers calls to clients on. Each client has a
+ * dispatcher thread of its own, which spends most of its life waiting for work or blocked in a call to
+ * the client. Platform threads each hold an operating system thread and its stack while they wait,
+ * virtual threads give theirs up, so thousands of clients or blocked calls cost little more than the
+ * calls' own state.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public enum DispatchMode {
+
+	/** A daemon platform thread per client. */
+	PLATFORM,
+
+	/** A virtual thread per client. */
+	VIRTUAL;
+
+	/** Option choosing the mode on the command line. */
+	public static final String OPTION = "--dispatch=";
+
+	/** Usage of the option choosing the mode. */
+	public static final String USAGE = "[--dispatch=platform|virtual]";
+
+	/**
+	 * The mode with a name.
+	 * @param name platform or virtual.
+	 * @throws IllegalArgumentException if there is no mode with the name.
+	 */
+	public static DispatchMode forName(String name) {
+		switch (name) {
+		case "platform":
+			return PLATFORM;
+		case "virtual":
+			return VIRTUAL;
+		default:
+			throw new IllegalArgumentException("Unknown dispatch mode: " + name);
+		}
+	}
+
+	/**
+	 * Starts a thread of this kind. Neither kind keeps the server running on its own.
+	 * @param name
+	 * @param task
+	 */
+	Thread start(String name, Runnable task) {
+		Thread.Builder builder = this == VIRTUAL ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+		return builder.name(name).start(task);
+	}
+}
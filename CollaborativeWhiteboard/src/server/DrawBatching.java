@@ -0,0 +1,75 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package server;
+
+import whiteboardapp.WhiteboardConstants;
+
+/**
+ * This class contains how draw events are batched on their way to a client. A draw event waiting to be
+ * delivered is held for up to the window, and the draw events queued for the client meanwhile go with it
+ * in a single call; the batch goes as soon as it is full. The window is the most a draw event is delayed
+ * by when nothing else is drawn, a batch of one event is delivered on its own.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class DrawBatching {
+
+	/** Option choosing the batching on the command line. */
+	public static final String OPTION = "--batch=";
+
+	/** Usage of the option choosing the batching. */
+	public static final String USAGE = "[--batch=<events>,<ms>]";
+
+	/** Batching of the constants, see {@link WhiteboardConstants#DRAW_BATCH_MAX_EVENTS}. */
+	public static final DrawBatching DEFAULT = new DrawBatching(WhiteboardConstants.DRAW_BATCH_MAX_EVENTS,
+			WhiteboardConstants.DRAW_BATCH_WINDOW_MS);
+
+	/** Every draw event delivered on its own, as soon as it can be. */
+	public static final DrawBatching OFF = new DrawBatching(1, 0);
+
+	/** Most draw events delivered in a single call. */
+	final int maxEvents;
+
+	/** Longest a draw event waits for others to be batched with, in milliseconds. */
+	final int windowMs;
+
+	/**
+	 * Constructor of DrawBatching.
+	 * @param maxEvents most draw events delivered in a single call, 1 to deliver each on its own.
+	 * @param windowMs longest a draw event waits for others to be batched with, 0 to batch only the draw
+	 * events already queued.
+	 */
+	public DrawBatching(int maxEvents, int windowMs) {
+		if (maxEvents < 1 || windowMs < 0) {
+			throw new IllegalArgumentException("Invalid batching: " + maxEvents + " events, " + windowMs + " ms");
+		}
+		this.maxEvents = maxEvents;
+		this.windowMs = windowMs;
+	}
+
+	/**
+	 * Creates the batching of a command line option.
+	 * @param value events and milliseconds separated by a comma, such as 64,2.
+	 * @throws IllegalArgumentException if the value is not understood.
+	 */
+	public static DrawBatching fromOption(String value) {
+		String[] parts = value.split(",");
+		try {
+			if (parts.length == 2) {
+				return new DrawBatching(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+		throw new IllegalArgumentException("Invalid batching: " + value + ", expected " + USAGE);
+	}
+
+	@Override
+	public String toString() {
+		return maxEvents == 1 ? "off" : "up to " + maxEvents + " events or " + windowMs + " ms";
+	}
+}
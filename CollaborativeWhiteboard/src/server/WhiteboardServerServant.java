@@ -5,17 +5,33 @@
 */
 package server;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import javax.swing.JOptionPane;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import remote.ChatMessage;
 import remote.DrawEvent;
+import remote.EventDelta;
 import remote.IWhiteboardClient;
 import remote.IWhiteboardServer;
-import whiteboardapp.Whiteboard.Drawable;
+import remote.SnapshotPage;
+import remote.TunedSocketFactory;
+import scene.BaseImage;
+import scene.Drawable;
+import scene.PointBuffer;
+import server.ClientOutbox.ClientCall;
+import whiteboardapp.WhiteboardConstants;
 
 /**
  * This class contains the implementation of the server remote interface.
@@ -28,14 +44,85 @@ public class WhiteboardServerServant extends UnicastRemoteObject implements IWhi
 	/** The version identifier */
 	private static final long serialVersionUID = 1L;
 	
-	/** HashMap of all clients and their usernames as keys */
-	private Map<String, IWhiteboardClient> clients = new HashMap<>();
+	/** HashMap of the outbound queues of all clients and their usernames as keys, changed under the
+	 * servant's lock and read without it by the chat */
+	private Map<String, ClientOutbox> clients = new ConcurrentHashMap<>();
 	
 	/** Username of the manager of the whiteboard. */
 	private String manager;
 	
-	/** Whiteboard state on the server. */
-	private List<Drawable> drawHistory;
+	/** Join requests waiting for the manager to decide on them, oldest first. */
+	private final Map<String, PendingJoin> pendingJoins = new LinkedHashMap<>();
+	
+	/** Number of calls to clients that failed, including the ones that timed out. */
+	private final AtomicLong failureCount = new AtomicLong();
+	
+	/** Number of calls to clients that timed out. */
+	private final AtomicLong timeoutCount = new AtomicLong();
+	
+	/** Number of clients evicted for being unresponsive or too far behind. */
+	private final AtomicLong evictionCount = new AtomicLong();
+	
+	/** Number of batches of draw events delivered to clients, including batches of one. */
+	private final AtomicLong drawBatchCount = new AtomicLong();
+	
+	/** Number of draw events delivered to clients in batches. */
+	private final AtomicLong drawBatchEvents = new AtomicLong();
+	
+	/** Total time draw events were held back from delivery to batch them. */
+	private final AtomicLong drawBatchHeldNanos = new AtomicLong();
+	
+	/** Counts failed calls to clients and evicts the ones that stopped answering, and reports batching. */
+	private final ClientOutbox.Monitor outboxMonitor = new ClientOutbox.Monitor() {
+		@Override
+		public void failed(ClientOutbox outbox, boolean timedOut) {
+			failureCount.incrementAndGet();
+			if (timedOut) {
+				timeoutCount.incrementAndGet();
+			}
+		}
+
+		@Override
+		public void unresponsive(ClientOutbox outbox) {
+			// evicting takes the servant's lock, which the dispatcher must not wait for
+			dispatch.start("evict-" + outbox.getUsername(), () -> evict(outbox));
+		}
+
+		@Override
+		public void batched(ClientOutbox outbox, int events, long heldNanos) {
+			long batches = drawBatchCount.incrementAndGet();
+			long total = drawBatchEvents.addAndGet(events);
+			long held = drawBatchHeldNanos.addAndGet(heldNanos);
+			if (batches % WhiteboardConstants.DRAW_BATCH_REPORT_EVERY == 0) {
+				System.out.printf("Draw batches: %d, %.1f events each, %.2f ms held per event%n", batches,
+						(double) total / batches, held / 1e6 / total);
+			}
+		}
+	};
+	
+	/** Kind of threads calls to clients are delivered on. */
+	private final DispatchMode dispatch;
+	
+	/** How draw events are batched for clients that register from now on. */
+	private DrawBatching batching = DrawBatching.DEFAULT;
+	
+	/** Recent chat, joining users are shown it. */
+	private final ChatLog chatLog = new ChatLog(WhiteboardConstants.CHAT_HISTORY_CAPACITY);
+	
+	/** Whiteboard state on the server, joining users are synced from it. */
+	private final BoardLog boardLog = new BoardLog(WhiteboardConstants.EVENT_LOG_CAPACITY);
+
+	/**
+	 * A join request waiting for the manager, and the decision it waits for.
+	 */
+	private static class PendingJoin {
+		final IWhiteboardClient client;
+		final CompletableFuture<Boolean> decision = new CompletableFuture<>();
+
+		PendingJoin(IWhiteboardClient client) {
+			this.client = client;
+		}
+	}
 
 	/**
 	 * Constructor of server servant program.
@@ -43,30 +130,102 @@ public class WhiteboardServerServant extends UnicastRemoteObject implements IWhi
      */
 	public WhiteboardServerServant(String manager) throws RemoteException {
 		this.manager = manager;
+		this.dispatch = DispatchMode.PLATFORM;
+	}
+	
+	/**
+	 * Constructor of server servant program with a journal, the board left in the journal by a server
+	 * that died is restored.
+     * @param manager
+     * @param journal path of the journal file.
+     */
+	public WhiteboardServerServant(String manager, Path journal) throws IOException {
+		this(manager, journal, null);
+	}
+	
+	/**
+	 * Constructor of server servant program with a journal, exported with tuned sockets. Clients calling
+	 * the server receive the socket factory with its stub and use the same options.
+     * @param manager
+     * @param journal path of the journal file.
+     * @param sockets socket factory calls to the server are made over, null for the default sockets.
+     */
+	public WhiteboardServerServant(String manager, Path journal, TunedSocketFactory sockets) throws IOException {
+		this(manager, journal, sockets, DispatchMode.PLATFORM);
+	}
+	
+	/**
+	 * Constructor of server servant program with a journal, exported with tuned sockets, delivering calls
+	 * to clients on threads of the given kind.
+     * @param manager
+     * @param journal path of the journal file.
+     * @param sockets socket factory calls to the server are made over, null for the default sockets.
+     * @param dispatch kind of threads calls to clients are delivered on.
+     */
+	public WhiteboardServerServant(String manager, Path journal, TunedSocketFactory sockets, DispatchMode dispatch)
+			throws IOException {
+		super(0, sockets, sockets);
+		this.manager = manager;
+		this.dispatch = dispatch;
+		boardLog.openJournal(journal);
 	}
 
 	/**
-	 * Broadcasts a draw event to all clients.
+	 * Broadcasts a draw event to all clients. Returns once the event is queued for every client.
      * @param event Draw Event received from client to be broadcasted.
      */
 	@Override
 	public synchronized void broadcastDrawEvent(DrawEvent event) throws RemoteException {
-		for (IWhiteboardClient client : clients.values()) {
-			client.receiveDrawEvent(event);
+		boardLog.append(event);
+		enqueueAll(new ClientOutbox.DrawCall(event));
+		flattenIfOverBudget();
+	}
+	
+	/**
+	 * Forwards the start of a streamed stroke to every client except the one drawing it.
+     * @param username
+     * @param strokeId
+     * @param header
+     */
+	@Override
+	public synchronized void beginStroke(String username, long strokeId, DrawEvent header) throws RemoteException {
+		boardLog.beginStroke(username, strokeId, header);
+		enqueueOthers(username, client -> client.receiveStrokeBegin(strokeId, header));
+	}
+	
+	/**
+	 * Forwards new stroke points to every client except the one drawing it.
+     * @param username
+     * @param strokeId
+     * @param points
+     */
+	@Override
+	public synchronized void appendStroke(String username, long strokeId, PointBuffer points) throws RemoteException {
+		boardLog.appendStroke(strokeId, points);
+		enqueueOthers(username, client -> client.receiveStrokeAppend(strokeId, points));
+	}
+	
+	/**
+	 * Appends a finished stroke to the log and tells every client its sequence number.
+     * @param username
+     * @param strokeId
+     */
+	@Override
+	public synchronized void endStroke(String username, long strokeId) throws RemoteException {
+		long seq = boardLog.endStroke(strokeId);
+		if (seq != 0) {
+			enqueueAll(client -> client.receiveStrokeEnd(strokeId, seq));
+			flattenIfOverBudget();
 		}
 	}
 	
 	/**
-	 * Broadcasts the entire whiteboard history to all clients.
+	 * Tells all clients the whole whiteboard was replaced, they fetch it page by page.
      */
 	@Override
 	public synchronized void broadcastWhiteboardHistory() throws RemoteException {
-		if (drawHistory == null) {
-	        drawHistory = new ArrayList<>(); // Prevent null reference
-	    }
-		for (IWhiteboardClient client : clients.values()) {
-			client.updateWhiteboard(drawHistory);
-		}
+		long seq = boardLog.getResetSeq();
+		enqueueAll(client -> client.resetWhiteboard(seq));
 	}
 
 	/**
@@ -76,7 +235,12 @@ public class WhiteboardServerServant extends UnicastRemoteObject implements IWhi
      */
 	@Override
 	public synchronized void registerClient(IWhiteboardClient client, String username) throws RemoteException {
-		clients.put(username, client);
+		ClientOutbox previous = clients.put(username,
+				new ClientOutbox(username, client, WhiteboardConstants.OUTBOUND_QUEUE_CAPACITY, outboxMonitor,
+						dispatch, batching));
+		if (previous != null) {
+			previous.cancel();
+		}
 //		broadcastMessage(username + " joined.");
 
 	}
@@ -88,32 +252,97 @@ public class WhiteboardServerServant extends UnicastRemoteObject implements IWhi
      */
 	@Override
 	public synchronized void removeClient(IWhiteboardClient client, String username) throws RemoteException {
-		clients.remove(username);
+		ClientOutbox removed = clients.remove(username);
+		if (removed != null) {
+			removed.cancel(); // nothing queued matters to a client that left
+		}
+		endStrokesOf(username);
 		broadcastMessage(username + " left.");
 		broadcastUserList();
 	}
 
 	/**
-	 * Client requests to join server.
+	 * Client requests to join server. Only the calling client waits for the manager's decision, the
+	 * servant's lock is not held meanwhile so the whiteboard keeps going for everyone else.
      * @param client
      * @param username
      */
 	@Override
-	public synchronized Boolean requestJoin(IWhiteboardClient client, String username) throws RemoteException {
-		if (!clients.containsKey(username)) {
-			int response = JOptionPane.showConfirmDialog(null, username + " wants to join your whiteboard. Approve?",
-					"Join Request", JOptionPane.YES_NO_OPTION);
-			if (response == JOptionPane.YES_OPTION) {
-				registerClient(client, username);
-				return true;
+	public Boolean requestJoin(IWhiteboardClient client, String username) throws RemoteException {
+		PendingJoin join = new PendingJoin(client);
+		synchronized (this) {
+			if (!clients.containsKey(username) && !pendingJoins.containsKey(username)) {
+				pendingJoins.put(username, join);
+				sendJoinRequests();
+			} else {
+				join = null;
 			}
-			client.notify("Join request denied by manager.");
-			return false;
-		} else {
+		}
+		if (join == null) {
 			client.notify("Username already exists! Please choose a different username.");
 			return false; // failed
 		}
-
+		
+		boolean approved = awaitDecision(username, join);
+		if (!approved) {
+			client.notify("Join request denied by manager.");
+		}
+		return approved;
+	}
+	
+	/**
+	 * Decides on join requests waiting for the manager, approved users are registered.
+     * @param approved
+     * @param denied
+     */
+	@Override
+	public synchronized void decideJoins(List<String> approved, List<String> denied) throws RemoteException {
+		for (String username : approved) {
+			PendingJoin join = pendingJoins.remove(username);
+			if (join != null) {
+				registerClient(join.client, username);
+				join.decision.complete(true);
+			}
+		}
+		for (String username : denied) {
+			PendingJoin join = pendingJoins.remove(username);
+			if (join != null) {
+				join.decision.complete(false);
+			}
+		}
+		sendJoinRequests();
+	}
+	
+	/**
+	 * Waits for the manager to decide on a join request, denying it if they do not in time.
+	 */
+	private boolean awaitDecision(String username, PendingJoin join) {
+		try {
+			return join.decision.get(WhiteboardConstants.JOIN_REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (TimeoutException | ExecutionException e) {
+			// not decided in time, the decision is never completed exceptionally
+		}
+		synchronized (this) {
+			if (pendingJoins.remove(username, join)) {
+				join.decision.complete(false);
+				sendJoinRequests();
+			}
+		}
+		// the manager may have decided just before the request was withdrawn
+		return join.decision.getNow(false);
+	}
+	
+	/**
+	 * Sends the join requests waiting for a decision to the manager. Call while holding the lock.
+	 */
+	private void sendJoinRequests() {
+		ClientOutbox outbox = clients.get(manager);
+		if (outbox != null) {
+			List<String> usernames = new ArrayList<>(pendingJoins.keySet());
+			outbox.offer(client -> client.updateJoinRequests(usernames));
+		}
 	}
 
 	/**
@@ -126,9 +355,10 @@ public class WhiteboardServerServant extends UnicastRemoteObject implements IWhi
 			// you cant kick the manager.
 			return false;
 		}
-		IWhiteboardClient kicked = clients.remove(username);
+		ClientOutbox kicked = clients.remove(username);
 		if (kicked != null) {
-			kicked.notifyKicked();
+			kicked.closeWith(IWhiteboardClient::notifyKicked);
+			endStrokesOf(username);
 			broadcastMessage(username + " was kicked.");
 			broadcastUserList();
 			return true; // success
@@ -142,44 +372,94 @@ public class WhiteboardServerServant extends UnicastRemoteObject implements IWhi
 	@Override
 	public synchronized void broadcastUserList() throws RemoteException {
 		List<String> userList = getUserList();
-		for (IWhiteboardClient client : clients.values()) {
-			client.updateUserList(userList);
-		}
+		enqueueAll(client -> client.updateUserList(userList));
 	}
 
 	/**
-	 * Broadcasts a message to all clients.
+	 * Broadcasts a message to all clients, it is kept in the chat as a message of the server.
      * @param message
      */
 	@Override
-	public synchronized void broadcastMessage(String msg) throws RemoteException {
-		for (IWhiteboardClient client : clients.values()) {
-			client.notify(msg);
-		}
+	public void broadcastMessage(String msg) throws RemoteException {
+		broadcastChat(null, msg);
 	}
 	
 	/**
-	 * Broadcasts a message on client's chat box to other clients.
+	 * Broadcasts a message on client's chat box to other clients. The servant's lock is not taken, so
+	 * chat never waits for drawing.
      * @param username of the client that sends the message.
      * @param message
      */
 	@Override
-	public synchronized void broadcastChatMessage(String username, String msg) throws RemoteException {
-		for (IWhiteboardClient client : clients.values()) {
-			client.notify(username + ": " + msg);
-		}
+	public void broadcastChatMessage(String username, String msg) throws RemoteException {
+		broadcastChat(username, msg);
+	}
+	
+	/**
+	 * Getter for the recent chat.
+	 * @param max most messages returned.
+     */
+	@Override
+	public List<ChatMessage> getChatHistory(int max) throws RemoteException {
+		return chatLog.recent(max);
 	}
 	
 	/**
 	 * Not called over the network by clients but called by the host. Broadcasts to all 
-	 * clients that the manager left.
+	 * clients that the manager left, and waits for the notifications to go out without holding the
+	 * servant's lock.
+     */
+	public void broadcastManagerLeft() throws RemoteException {
+		List<ClientOutbox> outboxes;
+		long deadline;
+		synchronized (this) {
+			for (PendingJoin join : pendingJoins.values()) {
+				join.decision.complete(false);
+			}
+			pendingJoins.clear();
+			enqueueAll(IWhiteboardClient::notifyManagerLeft);
+			deadline = System.currentTimeMillis() + WhiteboardConstants.OUTBOUND_DRAIN_TIMEOUT_MS;
+			for (ClientOutbox outbox : clients.values()) {
+				outbox.close();
+			}
+			outboxes = new ArrayList<>(clients.values());
+		}
+		// the host exits right after this, give the queued notifications a chance to go out
+		for (ClientOutbox outbox : outboxes) {
+			try {
+				if (!outbox.awaitDrained(Math.max(1, deadline - System.currentTimeMillis()))) {
+					outbox.cancel();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Not called over the network but called by the host when the whiteboard is closed. The board was
+	 * closed on purpose, so the journal is deleted rather than recovered next time.
      */
-	public synchronized void broadcastManagerLeft() throws RemoteException {
-		for (IWhiteboardClient client : clients.values()) {
-			client.notifyManagerLeft();
+	public synchronized void discardJournal() {
+		try {
+			boardLog.closeJournal(true);
+		} catch (IOException e) {
+			System.out.println("Error closing journal: " + e.getMessage());
 		}
 	}
 	
+	/**
+	 * Not called over the network. Reports how many calls are waiting to be delivered to each client.
+     */
+	public synchronized Map<String, Integer> getQueueDepths() {
+		Map<String, Integer> depths = new HashMap<>();
+		for (Map.Entry<String, ClientOutbox> entry : clients.entrySet()) {
+			depths.put(entry.getKey(), entry.getValue().getQueueDepth());
+		}
+		return depths;
+	}
+	
 	/**
 	 * Getter for user list of the server.
      */
@@ -189,22 +469,233 @@ public class WhiteboardServerServant extends UnicastRemoteObject implements IWhi
 	}
 
 	/**
-	 * Getter for user list of the server.
+	 * Getter for a page of the whole board, served from the server's own log.
+	 * @param snapshotSeq
+	 * @param cursor
+	 * @param maxBytes
+	 * @param acceptEncodings
      */
 	@Override
-	public List<Drawable> getDrawHistory() throws RemoteException {
-		// get manager's whiteboard history, everybody syncs to manager
-		IWhiteboardClient manager = clients.get(this.manager);
-		return manager.getWhiteboard().getDrawHistory();
+	public synchronized SnapshotPage getSnapshotPage(long snapshotSeq, int cursor, int maxBytes, int acceptEncodings)
+			throws RemoteException {
+		return boardLog.snapshotPage(snapshotSeq, cursor, maxBytes, acceptEncodings);
+	}
+	
+	/**
+	 * Getter for the events a client missed, or the whole board if they are no longer kept.
+	 * @param seq
+     */
+	@Override
+	public synchronized EventDelta getEventsSince(long seq) throws RemoteException {
+		return boardLog.eventsSince(seq);
 	}
 	
 	/**
 	 * Setter for draw history of the server.
 	 * @param drawHistory
+	 * @param base
      */
 	@Override
-	public void setDrawHistory(List<Drawable> drawHistory) throws RemoteException {
-		this.drawHistory = drawHistory;
+	public synchronized void setDrawHistory(List<Drawable> drawHistory, BaseImage base) throws RemoteException {
+		boardLog.reset(drawHistory, base);
+	}
+	
+	/**
+	 * Flattens the oldest drawables into the base image once the board holds too many, and tells every
+	 * client to do the same. They are rasterised on a thread of their own, so senders do not wait for it.
+     */
+	private void flattenIfOverBudget() throws RemoteException {
+		BoardLog.Flatten flatten = boardLog.flattenIfOverBudget();
+		if (flatten != null) {
+			enqueueAll(new ClientOutbox.DrawCall(flatten.getEvent()));
+			dispatch.start("flatten", () -> finishFlatten(flatten));
+		}
+	}
+	
+	/**
+	 * Rasterises a flatten without the servant's lock, publishes it under the lock and then writes the
+	 * checkpoint of the board it leaves to the journal, again without the lock.
+	 * @param flatten
+     */
+	private void finishFlatten(BoardLog.Flatten flatten) {
+		BoardLog.Checkpoint checkpoint;
+		try {
+			flatten.rasterise();
+		} catch (RuntimeException e) {
+			System.out.println("Error flattening the board: " + e.getMessage());
+			synchronized (this) {
+				boardLog.abandon(flatten);
+			}
+			return;
+		}
+		synchronized (this) {
+			checkpoint = boardLog.publish(flatten);
+		}
+		if (checkpoint != null) {
+			checkpoint.write();
+		}
+	}
+	
+	/**
+	 * Finishes the strokes a user was still drawing when they left, so the other clients stop waiting
+	 * for their points.
+	 * @param username
+     */
+	private void endStrokesOf(String username) throws RemoteException {
+		for (Map.Entry<Long, Long> ended : boardLog.endStrokesOf(username).entrySet()) {
+			long strokeId = ended.getKey();
+			long seq = ended.getValue();
+			enqueueAll(client -> client.receiveStrokeEnd(strokeId, seq));
+		}
+		flattenIfOverBudget();
+	}
+	
+	/**
+	 * Evicts a client whose outbox gave up on it, unless it was removed or joined again meanwhile.
+	 * @param outbox
+     */
+	private synchronized void evict(ClientOutbox outbox) {
+		String username = outbox.getUsername();
+		if (clients.get(username) != outbox) {
+			return;
+		}
+		clients.remove(username);
+		evictionCount.incrementAndGet();
+		System.out.println("Evicted unresponsive client " + username + " (evictions " + evictionCount.get()
+				+ ", timeouts " + timeoutCount.get() + ")");
+		try {
+			endStrokesOf(username);
+			broadcastMessage(username + " was disconnected.");
+			broadcastUserList();
+		} catch (RemoteException e) {
+			System.out.println("Error broadcasting eviction of " + username);
+		}
+	}
+	
+	/**
+	 * Not called over the network but called by the host. Sets how draw events are batched for the
+	 * clients that register from now on.
+     * @param batching
+     */
+	public synchronized void setDrawBatching(DrawBatching batching) {
+		this.batching = batching;
+	}
+	
+	/**
+	 * Getter for the number of batches of draw events delivered to clients, including batches of one.
+     */
+	public long getDrawBatchCount() {
+		return drawBatchCount.get();
+	}
+	
+	/**
+	 * Getter for the number of draw events delivered to clients in batches.
+     */
+	public long getDrawBatchEvents() {
+		return drawBatchEvents.get();
+	}
+	
+	/**
+	 * Getter for the total time draw events were held back from delivery to batch them.
+     */
+	public long getDrawBatchHeldNanos() {
+		return drawBatchHeldNanos.get();
+	}
+	
+	/**
+	 * Getter for the number of calls to clients that failed, including the ones that timed out.
+     */
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+	
+	/**
+	 * Getter for the number of calls to clients that timed out.
+     */
+	public long getTimeoutCount() {
+		return timeoutCount.get();
+	}
+	
+	/**
+	 * Getter for the number of clients evicted for being unresponsive or too far behind.
+     */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+	
+	/**
+	 * Adds a message to the chat and queues it for every client. Messages are queued in the order they
+	 * are numbered, under the lock of the chat. Clients whose chat queue is full are dropped.
+	 * @param username who wrote it, or null for a message of the server.
+	 * @param text
+     */
+	private void broadcastChat(String username, String text) throws RemoteException {
+		List<ClientOutbox> overflowed = new ArrayList<>();
+		synchronized (chatLog) {
+			ChatMessage message = chatLog.append(username, text);
+			for (ClientOutbox outbox : clients.values()) {
+				if (!outbox.offerChat(message)) {
+					overflowed.add(outbox);
+				}
+			}
+		}
+		if (!overflowed.isEmpty()) {
+			dropOverflowed(overflowed);
+		}
+	}
+	
+	/**
+	 * Queues a call for every client. Clients whose queue is full are too far behind to catch up and are
+	 * dropped from the whiteboard.
+	 * @param call
+     */
+	private void enqueueAll(ClientCall call) throws RemoteException {
+		enqueueOthers(null, call);
+	}
+	
+	/**
+	 * Queues a call for every client except one.
+	 * @param excluded username that does not receive the call, or null to send to everyone.
+	 * @param call
+     */
+	private void enqueueOthers(String excluded, ClientCall call) throws RemoteException {
+		List<ClientOutbox> overflowed = new ArrayList<>();
+		for (Map.Entry<String, ClientOutbox> entry : clients.entrySet()) {
+			if (entry.getKey().equals(excluded)) {
+				continue;
+			}
+			if (!entry.getValue().offer(call)) {
+				overflowed.add(entry.getValue());
+			}
+		}
+		if (!overflowed.isEmpty()) {
+			dropOverflowed(overflowed);
+		}
+	}
+	
+	/**
+	 * Drops clients whose queue is full from the whiteboard, unless they already left.
+	 * @param overflowed
+     */
+	private synchronized void dropOverflowed(List<ClientOutbox> overflowed) throws RemoteException {
+		List<String> dropped = new ArrayList<>();
+		for (ClientOutbox outbox : overflowed) {
+			String username = outbox.getUsername();
+			if (!clients.remove(username, outbox)) {
+				continue;
+			}
+			System.out.println("Outbound queue full, dropping " + username);
+			outbox.cancel();
+			evictionCount.incrementAndGet();
+			endStrokesOf(username);
+			dropped.add(username);
+		}
+		if (!dropped.isEmpty()) {
+			for (String username : dropped) {
+				broadcastMessage(username + " was disconnected.");
+			}
+			broadcastUserList();
+		}
 	}
 
 }
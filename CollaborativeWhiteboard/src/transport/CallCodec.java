@@ -0,0 +1,267 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Map;
+
+import remote.DrawEvent;
+import remote.DrawEventCodec;
+import remote.IWhiteboardClient;
+import scene.PointBuffer;
+
+/**
+ * This class contains the frames of the NIO transport. A frame is a remote call, its result or a call
+ * pushed to a client:
+ *
+ * <pre>
+ * int length of the rest of the frame
+ * byte kind      CALL, RETURN, THROW or PUSH
+ * int call id    matches a result to its call, 0 for pushes
+ * short method   index of the method in the interface, sorted by signature
+ * values         the arguments, or the result
+ * </pre>
+ *
+ * Each value starts with a tag. Draw events, lists of them and points use the compact format of
+ * {@link DrawEventCodec}, strings and numbers are written directly, and other values fall back to Java
+ * serialization. A client passed as an argument is written as a tag only, the server stands in a client
+ * that pushes over the connection the call came from.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+final class CallCodec {
+
+	/** Frame of a call that expects a result. */
+	static final byte CALL = 1;
+
+	/** Frame of the value a call returned. */
+	static final byte RETURN = 2;
+
+	/** Frame of the exception a call threw. */
+	static final byte THROW = 3;
+
+	/** Frame of a call that expects no result. */
+	static final byte PUSH = 4;
+
+	/** Largest frame accepted, anything larger is taken as a corrupt stream. */
+	static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+	private static final int NULL = 0;
+	private static final int DRAW_EVENT = 1;
+	private static final int STRING = 2;
+	private static final int LONG = 3;
+	private static final int INT = 4;
+	private static final int BOOLEAN = 5;
+	private static final int POINTS = 6;
+	private static final int CLIENT = 7;
+	private static final int OBJECT = 8;
+	private static final int DRAW_EVENTS = 9;
+
+	/** Methods of the interface by index. */
+	private final List<Method> methods;
+
+	/** Index of each method of the interface. */
+	private final Map<Method, Integer> ids = new HashMap<>();
+
+	/**
+	 * Constructor of CallCodec.
+	 * @param type remote interface whose methods are called.
+	 */
+	CallCodec(Class<?> type) {
+		methods = new ArrayList<>(Arrays.asList(type.getMethods()));
+		// both ends sort the same way, so a method has the same index on both
+		methods.sort(Comparator.comparing(m -> m.getName() + Arrays.toString(m.getParameterTypes())));
+		for (int i = 0; i < methods.size(); i++) {
+			ids.put(methods.get(i), i);
+		}
+	}
+
+	/**
+	 * Method with an index.
+	 * @param id
+	 */
+	Method method(int id) throws InvalidObjectException {
+		if (id < 0 || id >= methods.size()) {
+			throw new InvalidObjectException("Unknown method " + id);
+		}
+		return methods.get(id);
+	}
+
+	/**
+	 * Encodes a frame.
+	 * @param kind
+	 * @param callId
+	 * @param method the method called, or the one whose result this is.
+	 * @param values the arguments, or the result.
+	 */
+	ByteBuffer encode(byte kind, int callId, Method method, Object... values) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0); // length, filled in below
+		out.writeByte(kind);
+		out.writeInt(callId);
+		out.writeShort(ids.get(method));
+		for (Object value : values) {
+			writeValue(out, value);
+		}
+		ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+		frame.putInt(0, frame.capacity() - Integer.BYTES);
+		return frame;
+	}
+
+	/**
+	 * A decoded frame.
+	 */
+	static final class Frame {
+		final byte kind;
+		final int callId;
+		final Method method;
+		final Object[] values;
+
+		Frame(byte kind, int callId, Method method, Object[] values) {
+			this.kind = kind;
+			this.callId = callId;
+			this.method = method;
+			this.values = values;
+		}
+	}
+
+	/**
+	 * Decodes a frame, without its length.
+	 * @param body
+	 * @param offset
+	 * @param length
+	 * @param client stands in for clients passed as arguments, may be null where none are expected.
+	 */
+	Frame decode(byte[] body, int offset, int length, IWhiteboardClient client) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, offset, length));
+		byte kind = in.readByte();
+		int callId = in.readInt();
+		Method method = method(in.readUnsignedShort());
+		int count = kind == CALL || kind == PUSH ? method.getParameterCount() : 1;
+		Object[] values = new Object[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = readValue(in, client);
+		}
+		return new Frame(kind, callId, method, values);
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof IWhiteboardClient) {
+			out.writeByte(CLIENT);
+		} else if (value instanceof DrawEvent event) {
+			out.writeByte(DRAW_EVENT);
+			DrawEventCodec.write(out, event);
+		} else if (value instanceof List<?> list && isDrawEvents(list)) {
+			out.writeByte(DRAW_EVENTS);
+			out.writeInt(list.size());
+			for (Object event : list) {
+				DrawEventCodec.write(out, (DrawEvent) event);
+			}
+		} else if (value instanceof String string) {
+			byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+			out.writeByte(STRING);
+			out.writeInt(utf8.length);
+			out.write(utf8);
+		} else if (value instanceof Long number) {
+			out.writeByte(LONG);
+			out.writeLong(number);
+		} else if (value instanceof Integer number) {
+			out.writeByte(INT);
+			out.writeInt(number);
+		} else if (value instanceof Boolean bool) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean(bool);
+		} else if (value instanceof PointBuffer points) {
+			out.writeByte(POINTS);
+			DrawEventCodec.writePoints(out, points);
+		} else {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+				objects.writeObject(value);
+			}
+			out.writeByte(OBJECT);
+			out.writeInt(bytes.size());
+			bytes.writeTo(out);
+		}
+	}
+
+	/**
+	 * Whether a list holds draw events only, other lists are serialized.
+	 */
+	private static boolean isDrawEvents(List<?> list) {
+		if (list.isEmpty() || !(list instanceof RandomAccess)) {
+			return false;
+		}
+		for (Object item : list) {
+			if (item == null || item.getClass() != DrawEvent.class) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Object readValue(DataInputStream in, IWhiteboardClient client) throws IOException {
+		int tag = in.readUnsignedByte();
+		switch (tag) {
+		case NULL:
+			return null;
+		case CLIENT:
+			return client;
+		case DRAW_EVENT:
+			DrawEvent event = new DrawEvent();
+			DrawEventCodec.read(in, event);
+			return event;
+		case DRAW_EVENTS:
+			int count = in.readInt();
+			List<DrawEvent> events = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				DrawEvent item = new DrawEvent();
+				DrawEventCodec.read(in, item);
+				events.add(item);
+			}
+			return events;
+		case STRING:
+			return new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+		case LONG:
+			return in.readLong();
+		case INT:
+			return in.readInt();
+		case BOOLEAN:
+			return in.readBoolean();
+		case POINTS:
+			return DrawEventCodec.readPoints(in);
+		case OBJECT:
+			byte[] bytes = in.readNBytes(in.readInt());
+			try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+				return objects.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new InvalidObjectException("Unknown class " + e.getMessage());
+			}
+		default:
+			throw new InvalidObjectException("Unknown value tag " + tag);
+		}
+	}
+}
@@ -0,0 +1,223 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package transport;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.rmi.ConnectException;
+import java.rmi.RemoteException;
+import java.rmi.ServerException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import remote.IWhiteboardClient;
+import remote.IWhiteboardServer;
+
+/**
+ * This class is the client end of a connection of the NIO transport. Calls on the server block until
+ * their answer arrives, several threads may make calls at once. A reader thread takes the answers off the
+ * connection and runs the calls the server pushes on the client that was passed to the server. The
+ * server it hands out is also {@link Closeable}, closing it closes the connection.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+final class NioClient implements InvocationHandler {
+
+	/** Size of the buffer frames are read through. */
+	private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+	/** Frames of calls to the server. */
+	private final CallCodec calls = new CallCodec(IWhiteboardServer.class);
+
+	/** Frames of calls pushed to the client. */
+	private final CallCodec pushes = new CallCodec(IWhiteboardClient.class);
+
+	private final SocketChannel channel;
+
+	private final String address;
+
+	/** Calls waiting for their answer, by call id. */
+	private final Map<Integer, CompletableFuture<CallCodec.Frame>> pending = new ConcurrentHashMap<>();
+
+	private final AtomicInteger nextCallId = new AtomicInteger();
+
+	/** The client pushed calls are run on, the last one passed to the server. */
+	private volatile IWhiteboardClient client;
+
+	private volatile boolean closed = false;
+
+	/**
+	 * Constructor of NioClient. Connects and starts the reader thread.
+	 * @param host
+	 * @param port
+	 */
+	NioClient(String host, int port) throws IOException {
+		channel = SocketChannel.open(new InetSocketAddress(host, port));
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		address = host + ":" + port;
+		Thread reader = new Thread(this::read, "nio-client");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * The server, calls on it are made over the connection.
+	 */
+	IWhiteboardServer getServer() {
+		return (IWhiteboardServer) Proxy.newProxyInstance(IWhiteboardServer.class.getClassLoader(),
+				new Class<?>[] { IWhiteboardServer.class, Closeable.class }, this);
+	}
+
+	/**
+	 * Closes the connection, calls waiting for an answer fail.
+	 */
+	private void close() throws IOException {
+		closed = true;
+		channel.close();
+	}
+
+	/**
+	 * A call on the server.
+	 */
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if (method.getDeclaringClass() == Closeable.class) {
+			close();
+			return null;
+		}
+		if (method.getDeclaringClass() == Object.class) {
+			switch (method.getName()) {
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				return "whiteboard at " + address;
+			}
+		}
+		if (args == null) {
+			args = new Object[0];
+		}
+		for (Object arg : args) {
+			if (arg instanceof IWhiteboardClient passed) {
+				client = passed;
+			}
+		}
+		int callId = nextCallId.incrementAndGet();
+		CompletableFuture<CallCodec.Frame> answer = new CompletableFuture<>();
+		pending.put(callId, answer);
+		try {
+			if (closed) {
+				throw new ConnectException("Connection to " + address + " is closed");
+			}
+			write(calls.encode(CallCodec.CALL, callId, method, args));
+			CallCodec.Frame frame = answer.get();
+			if (frame.kind == CallCodec.RETURN) {
+				return frame.values[0];
+			}
+			Throwable thrown = (Throwable) frame.values[0];
+			if (thrown instanceof RemoteException || thrown instanceof RuntimeException || thrown instanceof Error) {
+				throw thrown;
+			}
+			throw new ServerException("Call to " + method.getName() + " failed", (Exception) thrown);
+		} catch (IOException e) {
+			throw e instanceof RemoteException ? e : new ConnectException("Connection to " + address + " failed", e);
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RemoteException("Interrupted waiting for " + address, e);
+		} finally {
+			pending.remove(callId);
+		}
+	}
+
+	private void write(ByteBuffer frame) throws IOException {
+		synchronized (channel) {
+			while (frame.hasRemaining()) {
+				channel.write(frame);
+			}
+		}
+	}
+
+	/**
+	 * Loop of the reader thread.
+	 */
+	private void read() {
+		try {
+			DataInputStream in = new DataInputStream(
+					new BufferedInputStream(channel.socket().getInputStream(), READ_BUFFER_BYTES));
+			while (true) {
+				int length = in.readInt();
+				if (length <= 0 || length > CallCodec.MAX_FRAME_BYTES) {
+					throw new IOException("Invalid frame of " + length + " bytes");
+				}
+				byte[] body = new byte[length];
+				in.readFully(body);
+				if (body[0] == CallCodec.PUSH) {
+					CallCodec.Frame frame = pushes.decode(body, 0, length, null);
+					run(frame);
+				} else {
+					CallCodec.Frame frame = calls.decode(body, 0, length, null);
+					CompletableFuture<CallCodec.Frame> answer = pending.get(frame.callId);
+					if (answer != null) {
+						answer.complete(frame);
+					}
+				}
+			}
+		} catch (EOFException e) {
+			if (!closed) {
+				System.out.println("Connection to " + address + " closed by the server.");
+			}
+		} catch (IOException e) {
+			if (!closed) {
+				System.out.println("Connection to " + address + " failed: " + e.getMessage());
+			}
+		}
+		closed = true;
+		ConnectException failure = new ConnectException("Connection to " + address + " closed");
+		for (CompletableFuture<CallCodec.Frame> answer : pending.values()) {
+			answer.completeExceptionally(failure);
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// closing anyway
+		}
+	}
+
+	/**
+	 * Runs a call pushed by the server.
+	 */
+	private void run(CallCodec.Frame frame) {
+		IWhiteboardClient target = client;
+		if (target == null) {
+			return;
+		}
+		try {
+			frame.method.invoke(target, frame.values);
+		} catch (InvocationTargetException e) {
+			System.out.println("Call from the server failed: " + e.getCause());
+		} catch (ReflectiveOperationException e) {
+			System.out.println("Call from the server failed: " + e);
+		}
+	}
+}
@@ -0,0 +1,355 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.ConnectException;
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import remote.IWhiteboardClient;
+import remote.IWhiteboardServer;
+import whiteboardapp.WhiteboardConstants;
+
+/**
+ * This class serves the whiteboard server over NIO. A single selector thread accepts connections, reads
+ * whole frames off them and writes out what could not be written straight away. Calls are run on a pool
+ * of worker threads, so a call that waits, such as a join request, holds up neither the selector nor the
+ * other clients.
+ *
+ * Each connection has a client standing in for the {@link IWhiteboardClient} the remote end passes as an
+ * argument. Calls on it are encoded and written to the connection without waiting for the client.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+final class NioServer implements Closeable {
+
+	/** Initial size of the buffer frames are read into, it grows for larger frames. */
+	private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+	/** The server calls are made on. */
+	private final IWhiteboardServer server;
+
+	/** Frames of calls to the server. */
+	private final CallCodec calls = new CallCodec(IWhiteboardServer.class);
+
+	/** Frames of calls pushed to the clients. */
+	private final CallCodec pushes = new CallCodec(IWhiteboardClient.class);
+
+	private final Selector selector;
+
+	private final ServerSocketChannel listener;
+
+	/** Threads running the calls to the server. */
+	private final ExecutorService workers;
+
+	private final Thread selectorThread;
+
+	private volatile boolean closed = false;
+
+	/**
+	 * Constructor of NioServer. Starts listening on the port.
+	 * @param server
+	 * @param port
+	 */
+	NioServer(IWhiteboardServer server, int port) throws IOException {
+		this.server = server;
+		selector = Selector.open();
+		listener = ServerSocketChannel.open();
+		listener.bind(new InetSocketAddress(port));
+		listener.configureBlocking(false);
+		listener.register(selector, SelectionKey.OP_ACCEPT);
+		workers = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "nio-call");
+			thread.setDaemon(true);
+			return thread;
+		});
+		selectorThread = new Thread(this::select, "nio-selector");
+		selectorThread.setDaemon(true);
+		selectorThread.start();
+	}
+
+	/**
+	 * Stops accepting connections and closes the open ones.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		selector.wakeup();
+		try {
+			selectorThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (SelectionKey key : selector.keys()) {
+			if (key.attachment() instanceof Connection connection) {
+				connection.close();
+			}
+		}
+		selector.close();
+		listener.close();
+		workers.shutdown();
+	}
+
+	/**
+	 * Loop of the selector thread.
+	 */
+	private void select() {
+		while (!closed) {
+			try {
+				selector.select();
+			} catch (IOException e) {
+				System.out.println("Selector failed: " + e.getMessage());
+				return;
+			}
+			for (SelectionKey key : selector.selectedKeys()) {
+				if (key.isValid() && key.isAcceptable()) {
+					accept();
+					continue;
+				}
+				Connection connection = (Connection) key.attachment();
+				try {
+					if (key.isValid() && key.isWritable()) {
+						connection.flush();
+					}
+					if (key.isValid() && key.isReadable()) {
+						connection.read();
+					}
+				} catch (IOException e) {
+					System.out.println("Connection from " + connection.address + " failed: " + e.getMessage());
+					connection.close();
+				}
+			}
+			selector.selectedKeys().clear();
+		}
+	}
+
+	private void accept() {
+		try {
+			SocketChannel channel = listener.accept();
+			if (channel == null) {
+				return;
+			}
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			Connection connection = new Connection(channel);
+			connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+		} catch (IOException e) {
+			System.out.println("Failed to accept a connection: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * A connection from a client, and the client calls pushed over it stand for.
+	 */
+	private final class Connection implements InvocationHandler {
+
+		private final SocketChannel channel;
+
+		private final String address;
+
+		private SelectionKey key;
+
+		/** Bytes read and not yet decoded, in write mode between reads. */
+		private ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_BYTES);
+
+		/** Frames not yet written, guarded by itself. */
+		private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+
+		/** Bytes of the frames not yet written. */
+		private int backlog = 0;
+
+		/** Whether the connection was closed, guarded by {@link #out}. */
+		private boolean closed = false;
+
+		/** Stands in for the client on this connection. */
+		private final IWhiteboardClient client;
+
+		Connection(SocketChannel channel) throws IOException {
+			this.channel = channel;
+			this.address = String.valueOf(channel.getRemoteAddress());
+			this.client = (IWhiteboardClient) Proxy.newProxyInstance(IWhiteboardClient.class.getClassLoader(),
+					new Class<?>[] { IWhiteboardClient.class }, this);
+		}
+
+		/**
+		 * Reads what arrived and runs the calls whose frames are complete.
+		 */
+		void read() throws IOException {
+			if (channel.read(in) < 0) {
+				close();
+				return;
+			}
+			in.flip();
+			int needed = 0;
+			while (in.remaining() >= Integer.BYTES) {
+				int length = in.getInt(in.position());
+				if (length <= 0 || length > CallCodec.MAX_FRAME_BYTES) {
+					throw new IOException("Invalid frame of " + length + " bytes");
+				}
+				if (in.remaining() < Integer.BYTES + length) {
+					needed = Integer.BYTES + length;
+					break;
+				}
+				CallCodec.Frame frame = calls.decode(in.array(), in.position() + Integer.BYTES, length, client);
+				in.position(in.position() + Integer.BYTES + length);
+				if (frame.kind != CallCodec.CALL) {
+					throw new IOException("Unexpected frame of kind " + frame.kind);
+				}
+				workers.execute(() -> run(frame));
+			}
+			in.compact();
+			if (needed > in.capacity()) {
+				ByteBuffer larger = ByteBuffer.allocate(needed);
+				in.flip();
+				larger.put(in);
+				in = larger;
+			}
+		}
+
+		/**
+		 * Runs a call on the server and writes back what it returned or threw.
+		 */
+		private void run(CallCodec.Frame frame) {
+			ByteBuffer reply;
+			try {
+				Object result = frame.method.invoke(server, frame.values);
+				reply = calls.encode(CallCodec.RETURN, frame.callId, frame.method, result);
+			} catch (InvocationTargetException e) {
+				reply = thrown(frame, e.getCause());
+			} catch (ReflectiveOperationException | IOException | RuntimeException e) {
+				reply = thrown(frame, e);
+			}
+			if (reply == null) {
+				return;
+			}
+			try {
+				send(reply);
+			} catch (RemoteException e) {
+				System.out.println("Failed to answer " + address + ": " + e.getMessage());
+			}
+		}
+
+		private ByteBuffer thrown(CallCodec.Frame frame, Throwable thrown) {
+			try {
+				return calls.encode(CallCodec.THROW, frame.callId, frame.method, thrown);
+			} catch (IOException e) {
+				try {
+					// the exception itself could not be sent
+					return calls.encode(CallCodec.THROW, frame.callId, frame.method,
+							new RemoteException(thrown.toString()));
+				} catch (IOException unexpected) {
+					System.out.println("Failed to answer " + address + ": " + unexpected.getMessage());
+					return null;
+				}
+			}
+		}
+
+		/**
+		 * Writes a frame, or queues it for the selector thread if the socket is full.
+		 * @param frame
+		 * @throws RemoteException if the connection is closed or too much is queued.
+		 */
+		void send(ByteBuffer frame) throws RemoteException {
+			synchronized (out) {
+				if (closed) {
+					throw new ConnectException("Connection to " + address + " is closed");
+				}
+				if (backlog + frame.remaining() > WhiteboardConstants.NIO_MAX_BACKLOG_BYTES) {
+					throw new RemoteException(address + " has " + backlog + " bytes unread");
+				}
+				if (out.isEmpty()) {
+					try {
+						channel.write(frame);
+					} catch (IOException e) {
+						close();
+						throw new ConnectException("Connection to " + address + " failed", e);
+					}
+				}
+				if (frame.hasRemaining()) {
+					out.add(frame);
+					backlog += frame.remaining();
+					key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					selector.wakeup();
+				}
+			}
+		}
+
+		/**
+		 * Writes queued frames, on the selector thread.
+		 */
+		void flush() throws IOException {
+			synchronized (out) {
+				while (!out.isEmpty()) {
+					ByteBuffer frame = out.peek();
+					backlog -= channel.write(frame);
+					if (frame.hasRemaining()) {
+						return;
+					}
+					out.poll();
+				}
+				key.interestOps(SelectionKey.OP_READ);
+			}
+		}
+
+		void close() {
+			synchronized (out) {
+				closed = true;
+				out.clear();
+				backlog = 0;
+			}
+			if (key != null) {
+				key.cancel();
+			}
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// closing anyway
+			}
+		}
+
+		/**
+		 * A call on the client standing in for the remote end.
+		 */
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "equals":
+				if (method.getDeclaringClass() == Object.class) {
+					return proxy == args[0];
+				}
+				break;
+			case "hashCode":
+				if (method.getDeclaringClass() == Object.class) {
+					return System.identityHashCode(proxy);
+				}
+				break;
+			case "toString":
+				if (method.getDeclaringClass() == Object.class) {
+					return "client at " + address;
+				}
+				break;
+			}
+			send(pushes.encode(CallCodec.PUSH, 0, method, args == null ? new Object[0] : args));
+			return null;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import remote.IWhiteboardServer;
+
+/**
+ * This class serves the whiteboard over plain TCP connections in the frames of {@link CallCodec}. A
+ * client opens a single connection and makes its calls over it, and the server pushes its calls on the
+ * client back over the same connection, so clients need no port of their own that the server connects
+ * to. One selector thread on the server reads and writes every connection.
+ *
+ * Calls to clients are one-way: they are queued on the connection and the server does not wait for the
+ * client to run them. A client that stops reading is noticed by its calls piling up, once
+ * {@link whiteboardapp.WhiteboardConstants#NIO_MAX_BACKLOG_BYTES} are unread further calls to it fail.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class NioTransport implements Transport {
+
+	@Override
+	public Closeable serve(IWhiteboardServer server, int port) throws IOException {
+		return new NioServer(server, port);
+	}
+
+	/**
+	 * Opens a connection to the server.
+	 * @param host
+	 * @param port
+	 * @return the server, it is also {@link Closeable} to close the connection.
+	 */
+	@Override
+	public IWhiteboardServer connect(String host, int port) throws IOException {
+		return new NioClient(host, port).getServer();
+	}
+
+	/**
+	 * Clients are called back over the connection they opened, they need not be exported.
+	 */
+	@Override
+	public boolean callsBackExportedClients() {
+		return false;
+	}
+}
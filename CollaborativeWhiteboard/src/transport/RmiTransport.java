@@ -0,0 +1,72 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+
+import remote.IWhiteboardServer;
+
+/**
+ * This class serves the whiteboard with Java RMI. The server is bound in a registry on the port, and
+ * the server calls clients back through their own exported objects, so every client must accept
+ * connections from the server.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class RmiTransport implements Transport {
+
+	/** Name the server is bound to in the registry. */
+	public static final String SERVICE_NAME = "WhiteboardService";
+
+	/**
+	 * Binds the server in a registry created on the port. The server must already be exported.
+	 * @param server
+	 * @param port
+	 */
+	@Override
+	public Closeable serve(IWhiteboardServer server, int port) throws IOException {
+		Registry registry = LocateRegistry.createRegistry(port);
+		registry.rebind(SERVICE_NAME, server);
+		return () -> {
+			try {
+				registry.unbind(SERVICE_NAME);
+			} catch (NotBoundException e) {
+				// already gone
+			}
+			UnicastRemoteObject.unexportObject(server, true);
+		};
+	}
+
+	/**
+	 * Looks the server up in the registry on the port.
+	 * @param host
+	 * @param port
+	 */
+	@Override
+	public IWhiteboardServer connect(String host, int port) throws IOException {
+		Registry registry = LocateRegistry.getRegistry(host, port);
+		try {
+			return (IWhiteboardServer) registry.lookup(SERVICE_NAME);
+		} catch (NotBoundException e) {
+			throw new RemoteException("No whiteboard on " + host + ":" + port, e);
+		}
+	}
+
+	/**
+	 * Clients are called back through their own exported objects.
+	 */
+	@Override
+	public boolean callsBackExportedClients() {
+		return true;
+	}
+}
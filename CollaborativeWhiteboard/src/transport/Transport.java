@@ -0,0 +1,67 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import remote.IWhiteboardServer;
+
+/**
+ * This interface is how the whiteboard server is reached over the network. The host serves its server
+ * object on a port, and clients connect to it and call it through the object they get back. Clients
+ * pass themselves to the server as {@link remote.IWhiteboardClient} arguments, the transport carries
+ * the server's calls on them back to the client.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public interface Transport {
+
+	/** Option choosing the transport on the command line, see {@link #forName}. */
+	String OPTION = "--transport=";
+
+	/** Usage of the option choosing the transport. */
+	String USAGE = "[--transport=rmi|nio]";
+
+	/**
+	 * Makes the server reachable on a port.
+	 * @param server
+	 * @param port
+	 * @return closed to stop serving.
+	 */
+	Closeable serve(IWhiteboardServer server, int port) throws IOException;
+
+	/**
+	 * Connects to a served whiteboard.
+	 * @param host
+	 * @param port
+	 * @return the server, calls on it are made remotely.
+	 */
+	IWhiteboardServer connect(String host, int port) throws IOException;
+
+	/**
+	 * Whether the server calls clients back through objects the clients export, so that every client
+	 * needs a port of its own that the server connects to.
+	 */
+	boolean callsBackExportedClients();
+
+	/**
+	 * The transport with a name.
+	 * @param name rmi for Java RMI, or nio for framed calls over a single connection.
+	 * @throws IllegalArgumentException if there is no transport with the name.
+	 */
+	static Transport forName(String name) {
+		switch (name) {
+		case "rmi":
+			return new RmiTransport();
+		case "nio":
+			return new NioTransport();
+		default:
+			throw new IllegalArgumentException("Unknown transport: " + name);
+		}
+	}
+}
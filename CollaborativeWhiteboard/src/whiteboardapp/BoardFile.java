@@ -0,0 +1,389 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package whiteboardapp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import legacy.LegacyBoardInputStream;
+import remote.DrawEvent;
+import remote.DrawEventCodec;
+import scene.BaseImage;
+import scene.Drawable;
+
+/**
+ * This class contains the .wbd file format. Version 2 and 3 files are a header, a stream of records and
+ * a trailing index:
+ *
+ * <pre>
+ * header   int magic "WBD2", byte version
+ * record   byte type, int length, payload
+ *          TILE     long key, PNG data of a base image tile
+ *          DRAWABLE a drawable in the compact format of {@link DrawEventCodec}
+ *          INDEX    int tile count, int drawable count, long offset of every record before it
+ * footer   long offset of the index record, int magic "WBDX"
+ * </pre>
+ *
+ * Tiles come before drawables, so a reader can draw each record as soon as it has read it. The index
+ * lets a reader find any record without reading the ones before it. Drawables are appended after the
+ * footer followed by a new index, and the new footer is only written once they are on disk. The old
+ * index and footer stay in place and readers skip them, so a file cut short while appending is read up
+ * to its last whole record. Version 3 marks files that may hold such superseded indexes, readers of
+ * version 2 stopped at the first index.
+ *
+ * Version 1 files are the draw history written with Java serialization, followed by the base image
+ * once boards could be flattened. Those saved before the scene model hold the drawables that were inner
+ * classes of the whiteboard, which {@link LegacyBoardInputStream} reads as drawables of the scene model.
+ * They are still read, but only version 2 is written.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class BoardFile {
+
+	/**
+	 * Receives the contents of a file as they are read.
+	 */
+	public interface Visitor {
+
+		/**
+		 * A tile of the base image.
+		 * @param key
+		 * @param png
+		 */
+		void tile(long key, byte[] png);
+
+		/**
+		 * A drawable, in the order they are drawn.
+		 * @param drawable
+		 */
+		void drawable(Drawable drawable);
+	}
+
+	/**
+	 * The index at the end of a version 2 file.
+	 */
+	public static final class Index {
+		private final int tileCount;
+		private final int drawableCount;
+		private final long[] offsets;
+		private final long indexOffset;
+
+		private Index(int tileCount, int drawableCount, long[] offsets, long indexOffset) {
+			this.tileCount = tileCount;
+			this.drawableCount = drawableCount;
+			this.offsets = offsets;
+			this.indexOffset = indexOffset;
+		}
+
+		/**
+		 * Number of base image tiles in the file.
+		 */
+		public int getTileCount() {
+			return tileCount;
+		}
+
+		/**
+		 * Number of drawables in the file.
+		 */
+		public int getDrawableCount() {
+			return drawableCount;
+		}
+
+		/**
+		 * Offset in the file of a record, tiles first and then drawables.
+		 * @param i
+		 */
+		public long getRecordOffset(int i) {
+			return offsets[i];
+		}
+	}
+
+	/** First bytes of a version 2 file, "WBD2". */
+	private static final int MAGIC = 0x57424432;
+
+	/** Last bytes of a version 2 file, "WBDX". */
+	private static final int INDEX_MAGIC = 0x57424458;
+
+	/** Version written by this class. Readers reject files with a newer version. */
+	private static final int VERSION = 3;
+
+	/** Offset of the version in the header. */
+	private static final int VERSION_OFFSET = Integer.BYTES;
+
+	/** First bytes of a Java serialization stream, which version 1 files are. */
+	private static final int SERIALIZATION_MAGIC = 0xACED;
+
+	/** Record type of a base image tile. */
+	private static final int RECORD_TILE = 1;
+
+	/** Record type of a drawable. */
+	private static final int RECORD_DRAWABLE = 2;
+
+	/** Record type of the index. */
+	private static final int RECORD_INDEX = 3;
+
+	/** Size of the footer at the end of the file. */
+	private static final int FOOTER_BYTES = Long.BYTES + Integer.BYTES;
+
+	private BoardFile() {
+	}
+
+	/**
+	 * Adds the .wbd extension to a file name that does not have it.
+	 * @param file
+	 */
+	public static File withExtension(File file) {
+		if (!file.getName().toLowerCase().endsWith(".wbd")) {
+			return new File(file.getAbsolutePath() + ".wbd");
+		}
+		return file;
+	}
+
+	/**
+	 * Writes a board in the version 2 format. The file is written beside the target and moved over it
+	 * once complete, so a failed save leaves the previous file intact.
+	 * @param file
+	 * @param drawables
+	 * @param base flattened part of the board.
+	 */
+	public static void write(File file, List<Drawable> drawables, BaseImage base) throws IOException {
+		Path target = file.toPath();
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			int tileCount = base.getTileKeys().size();
+			long[] offsets = new long[tileCount + drawables.size()];
+			int next = 0;
+			for (long key : base.getTileKeys()) {
+				byte[] png = base.getTile(key);
+				offsets[next++] = out.size();
+				out.writeByte(RECORD_TILE);
+				out.writeInt(Long.BYTES + png.length);
+				out.writeLong(key);
+				out.write(png);
+			}
+			ByteArrayOutputStream record = new ByteArrayOutputStream();
+			for (Drawable drawable : drawables) {
+				offsets[next++] = out.size();
+				writeDrawable(out, record, drawable);
+			}
+			long indexOffset = out.size();
+			writeIndex(out, tileCount, drawables.size(), offsets);
+			writeFooter(out, indexOffset);
+		}
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Appends drawables to a version 2 or 3 file, followed by a new index. Nothing already in the file is
+	 * overwritten until the drawables and index are on disk, then the footer is pointed at the new index.
+	 * @param file
+	 * @param drawables drawn on top of those already in the file.
+	 * @throws IOException if the file has no index to append after, it should be written whole instead.
+	 */
+	public static void append(File file, List<Drawable> drawables) throws IOException {
+		Index index = readIndex(file);
+		if (index == null) {
+			throw new IOException("Cannot append to " + file.getName() + ", it has no index");
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+			long end = channel.size();
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			long[] offsets = Arrays.copyOf(index.offsets, index.offsets.length + drawables.size());
+			int next = index.offsets.length;
+			ByteArrayOutputStream record = new ByteArrayOutputStream();
+			for (Drawable drawable : drawables) {
+				offsets[next++] = end + out.size();
+				writeDrawable(out, record, drawable);
+			}
+			long indexOffset = end + out.size();
+			writeIndex(out, index.tileCount, index.drawableCount + drawables.size(), offsets);
+			// readers of version 2 stop at the first index and would miss the appended drawables
+			writeFully(channel, ByteBuffer.wrap(new byte[] { VERSION }), VERSION_OFFSET);
+			byte[] appended = bytes.toByteArray();
+			writeFully(channel, ByteBuffer.wrap(appended), end);
+			channel.force(false);
+
+			bytes.reset();
+			writeFooter(out, indexOffset);
+			writeFully(channel, ByteBuffer.wrap(bytes.toByteArray()), end + appended.length);
+			channel.force(false);
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	private static void writeDrawable(DataOutputStream out, ByteArrayOutputStream record, Drawable drawable)
+			throws IOException {
+		record.reset();
+		DrawEventCodec.write(new DataOutputStream(record), DrawEvent.fromDrawable(drawable));
+		out.writeByte(RECORD_DRAWABLE);
+		out.writeInt(record.size());
+		record.writeTo(out);
+	}
+
+	private static void writeIndex(DataOutputStream out, int tileCount, int drawableCount, long[] offsets)
+			throws IOException {
+		out.writeByte(RECORD_INDEX);
+		out.writeInt(2 * Integer.BYTES + offsets.length * Long.BYTES);
+		out.writeInt(tileCount);
+		out.writeInt(drawableCount);
+		for (long offset : offsets) {
+			out.writeLong(offset);
+		}
+	}
+
+	private static void writeFooter(DataOutputStream out, long indexOffset) throws IOException {
+		out.writeLong(indexOffset);
+		out.writeInt(INDEX_MAGIC);
+	}
+
+	/**
+	 * Reads a board of either version, passing on each part of it as soon as it is read.
+	 * @param file
+	 * @param visitor
+	 */
+	public static void read(File file, Visitor visitor) throws IOException, ClassNotFoundException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+			in.mark(Integer.BYTES);
+			DataInputStream data = new DataInputStream(in);
+			int magic = data.readInt();
+			in.reset();
+			if (magic == MAGIC) {
+				readVersion2(data, visitor);
+			} else if (magic >>> 16 == SERIALIZATION_MAGIC) {
+				readVersion1(in, visitor);
+			} else {
+				throw new InvalidObjectException("Not a whiteboard file");
+			}
+		}
+	}
+
+	/**
+	 * Reads the index at the end of a version 2 file.
+	 * @param file
+	 * @return the index, or null if the file is version 1 or was cut short.
+	 */
+	public static Index readIndex(File file) throws IOException {
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			long length = in.length();
+			if (length < Integer.BYTES + 1 + FOOTER_BYTES || in.readInt() != MAGIC) {
+				return null;
+			}
+			in.seek(length - FOOTER_BYTES);
+			long indexOffset = in.readLong();
+			if (in.readInt() != INDEX_MAGIC || indexOffset < 0 || indexOffset >= length - FOOTER_BYTES) {
+				return null;
+			}
+			in.seek(indexOffset);
+			if (in.readUnsignedByte() != RECORD_INDEX) {
+				return null;
+			}
+			byte[] body = new byte[in.readInt()];
+			in.readFully(body);
+			ByteBuffer index = ByteBuffer.wrap(body);
+			int tileCount = index.getInt();
+			int drawableCount = index.getInt();
+			long[] offsets = new long[tileCount + drawableCount];
+			index.asLongBuffer().get(offsets);
+			return new Index(tileCount, drawableCount, offsets, indexOffset);
+		}
+	}
+
+	private static void readVersion2(DataInputStream in, Visitor visitor) throws IOException {
+		in.readInt(); // magic
+		int version = in.readUnsignedByte();
+		if (version > VERSION) {
+			throw new InvalidObjectException("Unsupported whiteboard file version " + version);
+		}
+		try {
+			while (true) {
+				int type = in.read();
+				if (type < 0) {
+					return;
+				}
+				int length = in.readInt();
+				switch (type) {
+				case RECORD_TILE:
+					long key = in.readLong();
+					byte[] png = new byte[length - Long.BYTES];
+					in.readFully(png);
+					visitor.tile(key, png);
+					break;
+				case RECORD_DRAWABLE:
+					byte[] data = new byte[length];
+					in.readFully(data);
+					DrawEvent event = new DrawEvent();
+					DrawEventCodec.read(new DataInputStream(new ByteArrayInputStream(data)), event);
+					Drawable drawable = event.toDrawable();
+					if (drawable == null) {
+						throw new InvalidObjectException("Unknown shape type " + event.type);
+					}
+					visitor.drawable(drawable);
+					break;
+				case RECORD_INDEX:
+					// the footer follows it, and drawables appended since then may follow the footer
+					in.skipNBytes(length + FOOTER_BYTES);
+					break;
+				default:
+					in.skipNBytes(length); // a record type added by a newer version
+					break;
+				}
+			}
+		} catch (EOFException e) {
+			System.out.println("Whiteboard file ends without its footer, it was cut short");
+		}
+	}
+
+	private static void readVersion1(InputStream in, Visitor visitor) throws IOException, ClassNotFoundException {
+		ObjectInputStream objects = new LegacyBoardInputStream(in);
+		if (!(objects.readObject() instanceof List<?> drawables)) {
+			throw new InvalidObjectException("Not a whiteboard file");
+		}
+		for (Object drawable : drawables) {
+			if (!(drawable instanceof Drawable)) {
+				throw new InvalidObjectException("Unexpected " + drawable + " in whiteboard file");
+			}
+		}
+		try {
+			BaseImage base = (BaseImage) objects.readObject();
+			for (long key : base.getTileKeys()) {
+				visitor.tile(key, base.getTile(key));
+			}
+		} catch (EOFException e) {
+			// saved before boards were flattened
+		}
+		for (Object drawable : drawables) {
+			visitor.drawable((Drawable) drawable);
+		}
+	}
+}
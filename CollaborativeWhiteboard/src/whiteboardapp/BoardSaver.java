@@ -0,0 +1,203 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package whiteboardapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import scene.BaseImage;
+import scene.Drawable;
+
+/**
+ * This class saves the whiteboard to its file in the background. What is saved is copied on the event
+ * dispatch thread, which only takes references to the drawables as they never change once drawn, and
+ * the file is written on a background thread so the UI never waits on the disk.
+ *
+ * Autosaves append only the drawables added since the last save. The whole board is written again when
+ * it was changed in another way, such as drawables being erased or flattened, and after every
+ * {@link WhiteboardConstants#AUTOSAVE_COMPACT_EVERY} appends so the file does not keep growing an index
+ * per append.
+ *
+ * All methods must be called on the event dispatch thread.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+class BoardSaver {
+
+	/** The whiteboard being saved. */
+	private final Whiteboard whiteboard;
+
+	/** Writes the files one after another, in the order they were saved in. */
+	private final ExecutorService writer;
+
+	/** Autosaves the whiteboard while autosave is on. */
+	private final Timer autosaveTimer;
+
+	/** Number of appends after which the whole board is written again. */
+	private final int compactEvery;
+
+	/** File being autosaved to, null until the whiteboard was first saved. */
+	private File target = null;
+
+	/** Number of drawables in the file as of the last save. */
+	private int savedCount = 0;
+
+	/** Rewrite count of the whiteboard as of the last save, -1 when the whole board must be written. */
+	private long savedRewrites = -1;
+
+	/** Number of appends since the whole board was last written. */
+	private int appendCount = 0;
+
+	/** Whether the last write failed, appends are skipped until the whole board is written. Writer thread only. */
+	private boolean stale = false;
+
+	/**
+	 * Constructor of BoardSaver.
+	 * @param whiteboard
+	 * @param intervalMs time between autosaves.
+	 * @param compactEvery number of appends after which the whole board is written again.
+	 */
+	BoardSaver(Whiteboard whiteboard, int intervalMs, int compactEvery) {
+		this.whiteboard = whiteboard;
+		this.compactEvery = compactEvery;
+		this.writer = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "board-saver");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.autosaveTimer = new Timer(intervalMs, _ -> autosave());
+	}
+
+	/**
+	 * Saves the whole whiteboard to a file, which is autosaved to from then on.
+	 * @param file
+	 * @param onSaved run on the event dispatch thread once the file is written.
+	 * @param onError run on the event dispatch thread if the file cannot be written.
+	 */
+	void save(File file, Runnable onSaved, Consumer<IOException> onError) {
+		target = BoardFile.withExtension(file);
+		writeWhole(target, onSaved, onError);
+	}
+
+	/**
+	 * Sets the file autosaved to, null to stop autosaving until the whiteboard is next saved.
+	 * @param file
+	 */
+	void setTarget(File file) {
+		target = file == null ? null : BoardFile.withExtension(file);
+		savedRewrites = -1;
+	}
+
+	/**
+	 * Turns autosave on or off.
+	 * @param enabled
+	 */
+	void setAutosave(boolean enabled) {
+		if (enabled) {
+			autosaveTimer.start();
+		} else {
+			autosaveTimer.stop();
+		}
+	}
+
+	/**
+	 * Autosaves what was drawn since the last save and waits a bounded time for the file to be written,
+	 * for when the application is closing.
+	 */
+	void close() {
+		if (autosaveTimer.isRunning()) {
+			autosave();
+		}
+		autosaveTimer.stop();
+		writer.shutdown();
+		try {
+			writer.awaitTermination(WhiteboardConstants.AUTOSAVE_CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Saves the drawables added since the last save, or the whole board when appending is not enough.
+	 */
+	private void autosave() {
+		if (target == null) {
+			return;
+		}
+		if (whiteboard.getRewriteCount() != savedRewrites || appendCount >= compactEvery) {
+			writeWhole(target, null, null);
+			return;
+		}
+		List<Drawable> history = whiteboard.getDrawHistory();
+		if (history.size() == savedCount) {
+			return;
+		}
+		List<Drawable> added = new ArrayList<>(history.subList(savedCount, history.size()));
+		savedCount = history.size();
+		appendCount++;
+		File file = target;
+		writer.execute(() -> {
+			if (stale) {
+				return;
+			}
+			try {
+				BoardFile.append(file, added);
+			} catch (IOException e) {
+				failed(e, null);
+			}
+		});
+	}
+
+	/**
+	 * Writes the whole board to a file.
+	 * @param file
+	 * @param onSaved run on the event dispatch thread once the file is written, may be null.
+	 * @param onError run on the event dispatch thread if the file cannot be written, may be null.
+	 */
+	private void writeWhole(File file, Runnable onSaved, Consumer<IOException> onError) {
+		List<Drawable> drawables = new ArrayList<>(whiteboard.getDrawHistory());
+		BaseImage base = whiteboard.getBaseImage().copy();
+		savedCount = drawables.size();
+		savedRewrites = whiteboard.getRewriteCount();
+		appendCount = 0;
+		writer.execute(() -> {
+			try {
+				BoardFile.write(file, drawables, base);
+				stale = false;
+				if (onSaved != null) {
+					SwingUtilities.invokeLater(onSaved);
+				}
+			} catch (IOException e) {
+				failed(e, onError);
+			}
+		});
+	}
+
+	/**
+	 * Records a failed write on the writer thread, so the next autosave writes the whole board again.
+	 */
+	private void failed(IOException e, Consumer<IOException> onError) {
+		stale = true;
+		SwingUtilities.invokeLater(() -> {
+			savedRewrites = -1;
+			if (onError != null) {
+				onError.accept(e);
+			} else {
+				System.out.println("Autosave failed: " + e.getMessage());
+			}
+		});
+	}
+}
@@ -0,0 +1,218 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package whiteboardapp;
+
+import java.awt.EventQueue;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import remote.DrawEvent;
+import remote.EventDelta;
+import remote.IWhiteboardServer;
+import remote.SnapshotPage;
+
+/**
+ * This class keeps the whiteboard in step with the sequence numbers of the server's log. Updates are
+ * applied in sequence order. When one is missing, for example because the user joined while it was
+ * being drawn, only the missed events are fetched from the server. If the server no longer keeps them
+ * the whole board is fetched page by page instead, and each page is drawn as soon as it arrives.
+ * Updates arriving while a fetch is in flight wait until it is applied.
+ *
+ * All methods must be called on the event dispatch thread.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+class BoardSync {
+
+	/**
+	 * A sequenced update received from the server.
+	 */
+	interface Update {
+
+		/**
+		 * Applies the update to the whiteboard.
+		 * @return false if the update could not be applied without fetching its event from the server.
+		 */
+		boolean apply();
+
+		/**
+		 * Called instead of {@link #apply} when the event was already applied through a catch-up.
+		 */
+		default void skip() {
+		}
+	}
+
+	/** Reference to the whiteboard server. */
+	private final IWhiteboardServer server;
+
+	/** Whiteboard the missed events are applied to. */
+	private final Whiteboard whiteboard;
+
+	/** Fetches missed events without blocking the UI. */
+	private final ExecutorService network;
+
+	/** Sequence number of the latest event applied to the whiteboard. */
+	private long lastSeq = 0;
+
+	/** Whether missed events are being fetched from the server. */
+	private boolean catchingUp = false;
+
+	/** Updates received out of order or during a catch-up, by sequence number. */
+	private final TreeMap<Long, Update> waiting = new TreeMap<>();
+
+	/**
+	 * Constructor of BoardSync.
+	 * @param server
+	 * @param whiteboard
+	 */
+	BoardSync(IWhiteboardServer server, Whiteboard whiteboard) {
+		this.server = server;
+		this.whiteboard = whiteboard;
+		this.network = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "board-sync");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Applies an update once every update before it has been applied.
+	 * @param seq sequence number of the update, 0 for an update that is not in the server's log.
+	 * @param update
+	 */
+	void receive(long seq, Update update) {
+		if (seq == 0) {
+			update.apply();
+			return;
+		}
+		if (seq <= lastSeq) {
+			update.skip();
+			return;
+		}
+		waiting.put(seq, update);
+		drain();
+	}
+
+	/**
+	 * Fetches every event after the latest one applied, for when the user joins.
+	 */
+	void catchUp() {
+		if (catchingUp || server == null) {
+			return;
+		}
+		catchingUp = true;
+		long since = lastSeq;
+		network.execute(() -> {
+			try {
+				EventDelta delta = server.getEventsSince(since);
+				if (delta.isSnapshotRequired()) {
+					fetchSnapshot();
+				} else {
+					EventQueue.invokeLater(() -> applyDelta(delta));
+				}
+			} catch (IOException e) {
+				System.out.println("Failed to catch up with the whiteboard server!");
+				EventQueue.invokeLater(() -> applyDelta(null));
+			}
+		});
+	}
+
+	/**
+	 * Fetches the whole board one page at a time, handing each page to the event dispatch thread while
+	 * the next one is fetched. Called on the network thread.
+	 */
+	private void fetchSnapshot() throws IOException {
+		long snapshotSeq = 0;
+		int cursor = 0;
+		while (true) {
+			SnapshotPage page = server.getSnapshotPage(snapshotSeq, cursor, WhiteboardConstants.SNAPSHOT_PAGE_BYTES,
+					SnapshotPage.DEFLATE);
+			if (page.stale) {
+				// the board was replaced while it was being fetched
+				snapshotSeq = 0;
+				cursor = 0;
+				continue;
+			}
+			boolean first = cursor == 0;
+			List<DrawEvent> events = page.getEvents();
+			EventQueue.invokeLater(() -> applyPage(page, events, first));
+			if (page.last) {
+				return;
+			}
+			snapshotSeq = page.snapshotSeq;
+			cursor = page.nextCursor;
+		}
+	}
+
+	/**
+	 * Applies the events fetched by a catch-up, then the updates that waited for it.
+	 * @param delta null if the fetch failed.
+	 */
+	private void applyDelta(EventDelta delta) {
+		catchingUp = false;
+		if (delta == null) {
+			return; // try again with the next update that finds a gap
+		}
+		if (delta.latestSeq > lastSeq) {
+			for (DrawEvent event : delta.events) {
+				if (event.seq > lastSeq) {
+					whiteboard.applyDrawEvent(event);
+				}
+			}
+			lastSeq = delta.latestSeq;
+		}
+		drain();
+	}
+
+	/**
+	 * Draws a page of the whole board. The first page clears the board, the last one finishes the
+	 * catch-up.
+	 * @param page
+	 * @param events decoded events of the page.
+	 * @param first
+	 */
+	private void applyPage(SnapshotPage page, List<DrawEvent> events, boolean first) {
+		if (first) {
+			whiteboard.setDrawHistory(new ArrayList<>());
+		}
+		for (int i = 0; i < page.getTileCount(); i++) {
+			whiteboard.putBaseTile(page.getTileKey(i), page.getTile(i));
+		}
+		for (DrawEvent event : events) {
+			whiteboard.applyDrawEvent(event);
+		}
+		if (page.last) {
+			lastSeq = page.snapshotSeq;
+			catchingUp = false;
+			drain();
+		}
+	}
+
+	/**
+	 * Applies waiting updates that are next in sequence, and starts a catch-up at the first gap.
+	 */
+	private void drain() {
+		while (!catchingUp && !waiting.isEmpty()) {
+			Map.Entry<Long, Update> next = waiting.firstEntry();
+			if (next.getKey() <= lastSeq) {
+				waiting.pollFirstEntry().getValue().skip();
+			} else if (next.getKey() == lastSeq + 1 && next.getValue().apply()) {
+				waiting.pollFirstEntry();
+				lastSeq = next.getKey();
+			} else {
+				// updates are delivered in order, anything missing now will not arrive on its own
+				catchUp();
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package whiteboardapp;
+
+import java.util.Arrays;
+
+import scene.PointBuffer;
+
+/**
+ * This class simplifies a run of points with the Ramer-Douglas-Peucker algorithm. Points are dropped
+ * as long as every dropped point stays within the tolerance of the line drawn through the points that
+ * are kept, which removes the dense, nearly collinear samples of a slow drag.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class DouglasPeuckerFilter implements PointFilter {
+
+	/** Square of the largest distance a dropped point may be from the simplified line. */
+	private final double toleranceSq;
+
+	/**
+	 * Constructor of DouglasPeuckerFilter.
+	 * @param tolerance largest distance in pixels a dropped point may be from the simplified line.
+	 */
+	public DouglasPeuckerFilter(double tolerance) {
+		this.toleranceSq = tolerance * tolerance;
+	}
+
+	@Override
+	public PointBuffer apply(PointBuffer points) {
+		int n = points.size();
+		if (n < 3) {
+			return points;
+		}
+		boolean[] keep = new boolean[n];
+		keep[0] = true;
+		keep[n - 1] = true;
+		int kept = 2;
+
+		// ranges still to be simplified, as pairs of first and last index
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = n - 1;
+		while (top > 0) {
+			int last = stack[--top];
+			int first = stack[--top];
+			int farthest = -1;
+			double farthestSq = toleranceSq;
+			for (int i = first + 1; i < last; i++) {
+				double distSq = segmentDistanceSq(points, i, first, last);
+				if (distSq > farthestSq) {
+					farthest = i;
+					farthestSq = distSq;
+				}
+			}
+			if (farthest < 0) {
+				continue;
+			}
+			keep[farthest] = true;
+			kept++;
+			if (top + 4 > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+			}
+			if (farthest - first > 1) {
+				stack[top++] = first;
+				stack[top++] = farthest;
+			}
+			if (last - farthest > 1) {
+				stack[top++] = farthest;
+				stack[top++] = last;
+			}
+		}
+		if (kept == n) {
+			return points;
+		}
+
+		PointBuffer simplified = new PointBuffer(kept);
+		for (int i = 0; i < n; i++) {
+			if (keep[i]) {
+				simplified.add(points.getX(i), points.getY(i));
+			}
+		}
+		return simplified;
+	}
+
+	/**
+	 * Squared distance from a point to the segment between two others.
+	 */
+	private static double segmentDistanceSq(PointBuffer points, int i, int a, int b) {
+		double px = points.getX(i);
+		double py = points.getY(i);
+		double ax = points.getX(a);
+		double ay = points.getY(a);
+		double dx = points.getX(b) - ax;
+		double dy = points.getY(b) - ay;
+		double lengthSq = dx * dx + dy * dy;
+		double t = lengthSq == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSq;
+		t = Math.max(0, Math.min(1, t));
+		double ex = ax + t * dx - px;
+		double ey = ay + t * dy - py;
+		return ex * ex + ey * ey;
+	}
+}
@@ -0,0 +1,219 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package whiteboardapp;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.Timer;
+
+import remote.DrawEvent;
+import remote.IWhiteboardServer;
+import scene.Drawable;
+import scene.PointBuffer;
+
+/**
+ * This class sends the local user's drawing to the whiteboard server. Freehand and eraser strokes are
+ * streamed while they are drawn: points are collected on the event dispatch thread and flushed as one
+ * batch every {@link WhiteboardConstants#STROKE_FLUSH_INTERVAL_MS}, once they have been held for
+ * {@link WhiteboardConstants#STROKE_SIMPLIFY_WINDOW_MS}. Each batch goes through a {@link PointFilter}
+ * first, so only the simplified points are sent, stored by the server and committed locally. The remote
+ * calls themselves are made in order on a background thread so the UI never waits on the network.
+ *
+ * All methods must be called on the event dispatch thread.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+class DrawEventSender {
+
+	/**
+	 * A single call to be made on the server.
+	 */
+	@FunctionalInterface
+	private interface ServerCall {
+		void invoke(IWhiteboardServer server) throws RemoteException;
+	}
+
+	/** Reference to the whiteboard server. */
+	private final IWhiteboardServer server;
+
+	/** Username of the local user, so the server does not echo stroke points back to us. */
+	private final String username;
+
+	/** Makes the remote calls one after another, preserving the order they were sent in. */
+	private final ExecutorService network;
+
+	/** Flushes pending stroke points while a stroke is being drawn. */
+	private final Timer flushTimer;
+
+	/** Id of the stroke being streamed. */
+	private long strokeId;
+
+	/** Points added since the last flush, null when no stroke is being streamed. */
+	private PointBuffer pending;
+
+	/** When the oldest of the pending points was added. */
+	private long pendingSince;
+
+	/** Points of the stroke being streamed that were sent so far. */
+	private PointBuffer sent;
+
+	/** Simplifies the points of a stroke before they are sent. */
+	private final PointFilter filter;
+
+	/** Number of points drawn in all strokes so far. */
+	private long drawnPointCount = 0;
+
+	/** Number of points sent for all strokes so far. */
+	private long sentPointCount = 0;
+
+	/** Number of strokes streamed so far. */
+	private long strokeCount = 0;
+
+	/**
+	 * Constructor of DrawEventSender.
+	 * @param server
+	 * @param username
+	 */
+	DrawEventSender(IWhiteboardServer server, String username) {
+		this(server, username, WhiteboardConstants.STROKE_SIMPLIFY_TOLERANCE > 0
+				? new DouglasPeuckerFilter(WhiteboardConstants.STROKE_SIMPLIFY_TOLERANCE) : PointFilter.NONE);
+	}
+
+	/**
+	 * Constructor of DrawEventSender.
+	 * @param server
+	 * @param username
+	 * @param filter applied to the points of strokes before they are sent.
+	 */
+	DrawEventSender(IWhiteboardServer server, String username, PointFilter filter) {
+		this.server = server;
+		this.username = username;
+		this.filter = filter;
+		this.network = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "draw-event-sender");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.flushTimer = new Timer(WhiteboardConstants.STROKE_FLUSH_INTERVAL_MS, _ -> flush(false));
+	}
+
+	/**
+	 * Sends a complete drawable such as a shape or text.
+	 * @param event
+	 */
+	void send(DrawEvent event) {
+		submit(s -> s.broadcastDrawEvent(event));
+	}
+
+	/**
+	 * Starts streaming a stroke.
+	 * @param header type, colour, size and first points of the stroke. Must not be modified afterwards.
+	 * @return id of the stroke, which is also the id of the finished drawable.
+	 */
+	long beginStroke(DrawEvent header) {
+		if (pending != null) {
+			endStroke();
+		}
+		long id = Drawable.newId();
+		strokeId = id;
+		header.id = id;
+		pending = new PointBuffer();
+		sent = header.points.copy();
+		drawnPointCount += sent.size();
+		sentPointCount += sent.size();
+		submit(s -> s.beginStroke(username, id, header));
+		flushTimer.start();
+		return id;
+	}
+
+	/**
+	 * Adds a point to the stroke being streamed. It is sent with the next flush.
+	 * @param x
+	 * @param y
+	 */
+	void appendStroke(int x, int y) {
+		if (pending != null) {
+			if (pending.isEmpty()) {
+				pendingSince = System.currentTimeMillis();
+			}
+			pending.add(x, y);
+			drawnPointCount++;
+		}
+	}
+
+	/**
+	 * Sends any remaining points and finishes the stroke being streamed.
+	 * @return the points the stroke was sent with, or null if no stroke was being streamed.
+	 */
+	PointBuffer endStroke() {
+		if (pending == null) {
+			return null;
+		}
+		flush(true);
+		flushTimer.stop();
+		long id = strokeId;
+		PointBuffer stroke = sent;
+		pending = null;
+		sent = null;
+		submit(s -> s.endStroke(username, id));
+		if (++strokeCount % WhiteboardConstants.STROKE_REPORT_EVERY == 0) {
+			System.out.printf("Strokes: %d, %.2f of the points drawn were sent%n", strokeCount,
+					getPointReductionRatio());
+		}
+		return stroke;
+	}
+
+	/**
+	 * Number of points sent divided by the number of points drawn, over every stroke so far.
+	 */
+	double getPointReductionRatio() {
+		return drawnPointCount == 0 ? 1 : (double) sentPointCount / drawnPointCount;
+	}
+
+	/**
+	 * Simplifies the points collected since the last flush and sends them as one batch.
+	 * @param force whether to send points that were not held for the whole simplification window.
+	 */
+	private void flush(boolean force) {
+		if (pending == null || pending.isEmpty()) {
+			return;
+		}
+		if (!force && System.currentTimeMillis() - pendingSince < WhiteboardConstants.STROKE_SIMPLIFY_WINDOW_MS) {
+			return;
+		}
+		// simplify from the last point sent so the batch joins the rest of the stroke
+		PointBuffer run = new PointBuffer(pending.size() + 1);
+		run.add(sent.getX(sent.size() - 1), sent.getY(sent.size() - 1));
+		run.addAll(pending);
+		PointBuffer simplified = filter.apply(run);
+		PointBuffer batch = new PointBuffer(simplified.size() - 1);
+		for (int i = 1; i < simplified.size(); i++) {
+			batch.add(simplified.getX(i), simplified.getY(i));
+		}
+		sent.addAll(batch);
+		sentPointCount += batch.size();
+		pending.clear();
+
+		long id = strokeId;
+		submit(s -> s.appendStroke(username, id, batch));
+	}
+
+	private void submit(ServerCall call) {
+		if (server == null) {
+			return;
+		}
+		network.execute(() -> {
+			try {
+				call.invoke(server);
+			} catch (RemoteException e) {
+				System.out.println("Failed to broadcast draw event!");
+			}
+		});
+	}
+}
@@ -0,0 +1,142 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package whiteboardapp;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.util.function.IntUnaryOperator;
+
+import scene.Drawable;
+import scene.PointBuffer;
+import scene.TextField;
+
+/**
+ * This class renders the scene model onto a Graphics2D surface.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public final class DrawableRenderer {
+
+	private DrawableRenderer() {
+	}
+
+	/**
+	 * Draws a drawable.
+	 * @param g2 Graphics2D to provide 2D rendering functionality.
+	 * @param d
+	 */
+	public static void draw(Graphics2D g2, Drawable d) {
+		switch (d.getType()) {
+		case FREEHAND:
+		case ERASER:
+			g2.setStroke(new BasicStroke(d.getSize(), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+			g2.setColor(d.getColour());
+			drawPolyline(g2, d.getPointCount(), d::getX, d::getY);
+			break;
+		case TEXT:
+			g2.setColor(d.getColour());
+			g2.setFont(new Font(TextField.FONT_NAME, Font.PLAIN, d.getSize()));
+			g2.drawString(((TextField) d).getText(), d.getX(0), d.getY(0));
+			break;
+		default:
+			drawShape(g2, d);
+			break;
+		}
+	}
+
+	/**
+	 * Draws a freehand or eraser stroke.
+	 * @param g2
+	 * @param points
+	 * @param colour
+	 * @param size line width.
+	 */
+	static void drawStroke(Graphics2D g2, PointBuffer points, Color colour, int size) {
+		g2.setStroke(new BasicStroke(size, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+		g2.setColor(colour);
+		drawPolyline(g2, points.size(), points::getX, points::getY);
+	}
+
+	/**
+	 * Draws a line through the points of a stroke, as a Catmull-Rom curve if
+	 * {@link WhiteboardConstants#STROKE_SMOOTHING} is set. The control points of each curve segment are
+	 * kept inside the box of its two end points, so a smoothed stroke never leaves the bounds of its
+	 * points, which repainting and the spatial index rely on.
+	 * @param g2
+	 * @param n number of points.
+	 * @param xs x coordinate of each point.
+	 * @param ys y coordinate of each point.
+	 */
+	private static void drawPolyline(Graphics2D g2, int n, IntUnaryOperator xs, IntUnaryOperator ys) {
+		if (!WhiteboardConstants.STROKE_SMOOTHING || n < 3) {
+			for (int i = 1; i < n; i++) {
+				g2.drawLine(xs.applyAsInt(i - 1), ys.applyAsInt(i - 1), xs.applyAsInt(i), ys.applyAsInt(i));
+			}
+			return;
+		}
+		Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, n * 3);
+		path.moveTo(xs.applyAsInt(0), ys.applyAsInt(0));
+		for (int i = 0; i < n - 1; i++) {
+			int x0 = xs.applyAsInt(Math.max(0, i - 1));
+			int y0 = ys.applyAsInt(Math.max(0, i - 1));
+			int x1 = xs.applyAsInt(i);
+			int y1 = ys.applyAsInt(i);
+			int x2 = xs.applyAsInt(i + 1);
+			int y2 = ys.applyAsInt(i + 1);
+			int x3 = xs.applyAsInt(Math.min(n - 1, i + 2));
+			int y3 = ys.applyAsInt(Math.min(n - 1, i + 2));
+			path.curveTo(clamp(x1 + (x2 - x0) / 6f, x1, x2), clamp(y1 + (y2 - y0) / 6f, y1, y2),
+					clamp(x2 - (x3 - x1) / 6f, x1, x2), clamp(y2 - (y3 - y1) / 6f, y1, y2), x2, y2);
+		}
+		g2.draw(path);
+	}
+
+	/**
+	 * Limits a value to the range between two ends given in any order.
+	 */
+	private static float clamp(float value, int a, int b) {
+		return Math.max(Math.min(a, b), Math.min(Math.max(a, b), value));
+	}
+
+	/**
+	 * Draws a line, rectangle, oval or triangle.
+	 */
+	private static void drawShape(Graphics2D g, Drawable d) {
+		g.setStroke(new BasicStroke(d.getSize()));
+		int x1 = d.getX(0);
+		int y1 = d.getY(0);
+		int x2 = d.getX(1);
+		int y2 = d.getY(1);
+		int x = Math.min(x1, x2);
+		int y = Math.min(y1, y2);
+		int w = Math.abs(x1 - x2);
+		int h = Math.abs(y1 - y2);
+		g.setColor(d.getColour());
+		switch (d.getType()) {
+		case LINE:
+			g.drawLine(x1, y1, x2, y2);
+			break;
+		case RECTANGLE:
+			g.drawRect(x, y, w, h);
+			break;
+		case OVAL:
+			g.drawOval(x, y, w, h);
+			break;
+		case TRIANGLE:
+			int midX = (x1 + x2) / 2;
+			int[] xPoints = { midX, x1, x2 };
+			int[] yPoints = { y1, y2, y2 };
+			g.drawPolygon(xPoints, yPoints, 3);
+			break;
+		default:
+			break;
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package whiteboardapp;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.DefaultListModel;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import remote.IWhiteboardServer;
+
+/**
+ * This class contains the window where the manager decides on join requests. Requests wait on the
+ * server while the whiteboard keeps going, the window lists all of them and opens by itself when a new
+ * one arrives without taking the focus off the whiteboard. Several requests can be selected and
+ * approved or denied at once.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+class JoinRequestDialog extends JDialog {
+
+	/** The version identifier */
+	private static final long serialVersionUID = 1L;
+
+	/** Reference to the whiteboard server. */
+	private final IWhiteboardServer server;
+
+	/** Usernames waiting to join, kept up to date by the server. */
+	private final DefaultListModel<String> requests;
+
+	/** Reference to the list of requests GUI component. */
+	private final JList<String> requestList;
+
+	/**
+	 * Constructor of JoinRequestDialog.
+	 * @param owner frame of the whiteboard.
+	 * @param server
+	 * @param requests usernames waiting to join, updated on the event dispatch thread.
+	 */
+	JoinRequestDialog(JFrame owner, IWhiteboardServer server, DefaultListModel<String> requests) {
+		super(owner, "Join Requests", false);
+		this.server = server;
+		this.requests = requests;
+		setSize(260, 300);
+		setResizable(false);
+		setLocationRelativeTo(owner);
+		setFocusableWindowState(false); // a new request must not interrupt drawing
+		getContentPane().setLayout(null);
+
+		JLabel label = new JLabel("Waiting to join:");
+		label.setBounds(10, 5, 200, 20);
+		getContentPane().add(label);
+
+		requestList = new JList<>(requests);
+		requestList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+		JScrollPane scroll = new JScrollPane(requestList);
+		scroll.setBounds(10, 25, 225, 165);
+		getContentPane().add(scroll);
+
+		JButton approveBtn = new JButton("Approve");
+		approveBtn.setBounds(10, 200, 110, 24);
+		approveBtn.addActionListener(_ -> decide(requestList.getSelectedValuesList(), true));
+		getContentPane().add(approveBtn);
+
+		JButton denyBtn = new JButton("Deny");
+		denyBtn.setBounds(125, 200, 110, 24);
+		denyBtn.addActionListener(_ -> decide(requestList.getSelectedValuesList(), false));
+		getContentPane().add(denyBtn);
+
+		JButton approveAllBtn = new JButton("Approve All");
+		approveAllBtn.setBounds(10, 230, 110, 24);
+		approveAllBtn.addActionListener(_ -> decide(Collections.list(requests.elements()), true));
+		getContentPane().add(approveAllBtn);
+
+		JButton denyAllBtn = new JButton("Deny All");
+		denyAllBtn.setBounds(125, 230, 110, 24);
+		denyAllBtn.addActionListener(_ -> decide(Collections.list(requests.elements()), false));
+		getContentPane().add(denyAllBtn);
+
+		requests.addListDataListener(new ListDataListener() {
+			@Override
+			public void intervalAdded(ListDataEvent e) {
+				setVisible(true);
+			}
+
+			@Override
+			public void intervalRemoved(ListDataEvent e) {
+			}
+
+			@Override
+			public void contentsChanged(ListDataEvent e) {
+			}
+		});
+	}
+
+	/**
+	 * Sends the manager's decision on some of the requests to the server.
+	 * @param usernames
+	 * @param approve
+	 */
+	private void decide(List<String> usernames, boolean approve) {
+		if (usernames.isEmpty()) {
+			return;
+		}
+		try {
+			List<String> decided = new ArrayList<>(usernames);
+			if (approve) {
+				server.decideJoins(decided, List.of());
+			} else {
+				server.decideJoins(List.of(), decided);
+			}
+		} catch (RemoteException ex) {
+			JOptionPane.showMessageDialog(this, "Error deciding join requests: " + ex.getMessage());
+		}
+	}
+}
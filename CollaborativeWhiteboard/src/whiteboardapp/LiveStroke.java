@@ -0,0 +1,113 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package whiteboardapp;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+
+import remote.DrawEvent;
+import scene.Drawable;
+import scene.EraserStroke;
+import scene.NormalStroke;
+import scene.PointBuffer;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class contains a freehand or eraser stroke that is still being drawn, locally or by another
+ * client. Unlike the scene model it grows as points arrive, and is turned into an immutable drawable
+ * once it is finished.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+class LiveStroke {
+
+	/** Colour of the trail left by the object eraser until it is released. */
+	private static final Color OBJECT_ERASER_TRAIL = new Color(255, 0, 0, 64);
+
+	/** FREEHAND, ERASER or OBJECT_ERASER. */
+	final ShapeType type;
+
+	/** Colour of the stroke. */
+	final Color colour;
+
+	/** Line width of the stroke. */
+	final int size;
+
+	/** Points drawn so far. */
+	final PointBuffer points;
+
+	/**
+	 * Constructor of LiveStroke.
+	 * @param type FREEHAND, ERASER or OBJECT_ERASER.
+	 * @param colour
+	 * @param size
+	 * @param points first points of the stroke, copied.
+	 */
+	LiveStroke(ShapeType type, Color colour, int size, PointBuffer points) {
+		this.type = type;
+		if (type == ShapeType.ERASER) {
+			this.colour = Color.WHITE;
+		} else if (type == ShapeType.OBJECT_ERASER) {
+			this.colour = OBJECT_ERASER_TRAIL;
+		} else {
+			this.colour = colour;
+		}
+		this.size = size;
+		this.points = points.copy();
+	}
+
+	/**
+	 * Creates a live stroke from the header of a streamed stroke.
+	 * @param header
+	 */
+	static LiveStroke fromHeader(DrawEvent header) {
+		return new LiveStroke(header.type, header.colour, header.size, header.points);
+	}
+
+	/**
+	 * Header describing the stroke so far, for streaming it to other clients.
+	 */
+	DrawEvent toHeader() {
+		return new DrawEvent(type, points.copy(), null, size, colour);
+	}
+
+	/**
+	 * The finished stroke.
+	 * @param id of the stroke.
+	 */
+	Drawable toDrawable(long id) {
+		return toDrawable(id, points);
+	}
+
+	/**
+	 * The finished stroke with other points, for a local stroke that was simplified when it was sent.
+	 * @param id of the stroke.
+	 * @param points
+	 */
+	Drawable toDrawable(long id, PointBuffer points) {
+		if (type == ShapeType.ERASER) {
+			return new EraserStroke(id, points, size);
+		}
+		return new NormalStroke(id, points, colour, size);
+	}
+
+	/**
+	 * Bounding box of the stroke so far.
+	 */
+	Rectangle getBounds() {
+		return points.getBounds(size);
+	}
+
+	/**
+	 * Draws the stroke so far.
+	 * @param g2
+	 */
+	void draw(Graphics2D g2) {
+		DrawableRenderer.drawStroke(g2, points, colour, size);
+	}
+}
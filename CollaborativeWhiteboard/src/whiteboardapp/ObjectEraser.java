@@ -0,0 +1,168 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package whiteboardapp;
+
+import java.awt.BasicStroke;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import scene.BaseImage;
+import scene.Drawable;
+import scene.PointBuffer;
+import whiteboardapp.WhiteboardConstants.ShapeType;
+
+/**
+ * This class hit-tests the path of the object eraser against the geometry of the drawables on the
+ * whiteboard. A drawable is erased when its geometry lies entirely under the area swept by the eraser:
+ * the line of a stroke or shape, ignoring its width, or the bounds of a text.
+ *
+ * Eraser strokes are only erased when no other drawable and no tile of the base image is under them,
+ * since removing them would otherwise bring back what they painted over.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+final class ObjectEraser {
+
+	/** Outline used for the geometry of lines. */
+	private static final BasicStroke HAIRLINE = new BasicStroke(1);
+
+	/** Largest distance in pixels the eraser path is simplified by before it is hit-tested. */
+	private static final double PATH_TOLERANCE = 0.5;
+
+	private ObjectEraser() {
+	}
+
+	/**
+	 * Finds the drawables the eraser covers.
+	 * @param path points the eraser was dragged through.
+	 * @param size width of the eraser.
+	 * @param index spatial index over the drawables on the whiteboard.
+	 * @param base flattened part of the whiteboard, under the drawables.
+	 * @return the covered drawables, in no particular order.
+	 */
+	static List<Drawable> covered(PointBuffer path, int size, SpatialIndex<Drawable> index, BaseImage base) {
+		PointBuffer simplified = new DouglasPeuckerFilter(PATH_TOLERANCE).apply(path);
+		Area swept = new Area(new BasicStroke(size, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND)
+				.createStrokedShape(polyline(simplified)));
+		Rectangle reach = swept.getBounds();
+
+		List<Drawable> covered = new ArrayList<>();
+		Set<Drawable> eraserStrokes = new HashSet<>();
+		for (Drawable d : index.query(reach)) {
+			Area geometry = geometry(d);
+			if (!reach.contains(geometry.getBounds())) {
+				continue;
+			}
+			geometry.subtract(swept);
+			if (geometry.isEmpty()) {
+				covered.add(d);
+				if (d.getType() == ShapeType.ERASER) {
+					eraserStrokes.add(d);
+				}
+			}
+		}
+		if (!eraserStrokes.isEmpty()) {
+			Set<Drawable> erased = new HashSet<>(covered);
+			covered.removeIf(d -> eraserStrokes.contains(d) && paintsOver(d, erased, index, base));
+		}
+		return covered;
+	}
+
+	/**
+	 * Whether an eraser stroke paints over a drawable that is not being erased, or over the base image.
+	 */
+	private static boolean paintsOver(Drawable eraserStroke, Set<Drawable> erased, SpatialIndex<Drawable> index,
+			BaseImage base) {
+		Rectangle bounds = eraserStroke.getBounds();
+		for (long key : BaseImage.tilesIn(bounds)) {
+			if (base.getTileKeys().contains(key)) {
+				return true;
+			}
+		}
+		for (Drawable other : index.query(bounds)) {
+			if (other.getType() != ShapeType.ERASER && !erased.contains(other)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Geometry of a drawable as an area, lines are outlined one pixel wide.
+	 */
+	private static Area geometry(Drawable d) {
+		switch (d.getType()) {
+		case FREEHAND:
+		case ERASER:
+			if (d.getPointCount() == 1) {
+				return new Area(new Rectangle(d.getX(0), d.getY(0), 1, 1));
+			}
+			Path2D.Float stroke = new Path2D.Float(Path2D.WIND_NON_ZERO, d.getPointCount());
+			stroke.moveTo(d.getX(0), d.getY(0));
+			for (int i = 1; i < d.getPointCount(); i++) {
+				stroke.lineTo(d.getX(i), d.getY(i));
+			}
+			return outline(stroke);
+		case TEXT:
+			return new Area(d.getBounds());
+		default:
+			break;
+		}
+		int x1 = d.getX(0);
+		int y1 = d.getY(0);
+		int x2 = d.getX(1);
+		int y2 = d.getY(1);
+		int x = Math.min(x1, x2);
+		int y = Math.min(y1, y2);
+		int w = Math.abs(x1 - x2);
+		int h = Math.abs(y1 - y2);
+		switch (d.getType()) {
+		case RECTANGLE:
+			return outline(new Rectangle(x, y, w, h));
+		case OVAL:
+			return outline(new Ellipse2D.Float(x, y, w, h));
+		case TRIANGLE:
+			int midX = (x1 + x2) / 2;
+			Path2D.Float triangle = new Path2D.Float();
+			triangle.moveTo(midX, y1);
+			triangle.lineTo(x1, y2);
+			triangle.lineTo(x2, y2);
+			triangle.closePath();
+			return outline(triangle);
+		default: // LINE
+			return outline(new Line2D.Float(x1, y1, x2, y2));
+		}
+	}
+
+	private static Area outline(Shape shape) {
+		return new Area(HAIRLINE.createStrokedShape(shape));
+	}
+
+	/**
+	 * Path through the points, a single point is a line of no length so it still sweeps a dot.
+	 */
+	private static Path2D polyline(PointBuffer points) {
+		int n = points.size();
+		Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, Math.max(2, n));
+		path.moveTo(points.getX(0), points.getY(0));
+		for (int i = 1; i < n; i++) {
+			path.lineTo(points.getX(i), points.getY(i));
+		}
+		if (n == 1) {
+			path.lineTo(points.getX(0), points.getY(0));
+		}
+		return path;
+	}
+}
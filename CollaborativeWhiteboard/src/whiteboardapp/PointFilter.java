@@ -0,0 +1,39 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package whiteboardapp;
+
+import scene.PointBuffer;
+
+/**
+ * This interface is a stage of the pipeline the points of a freehand or eraser stroke go through
+ * before they are sent to the server and stored. A stroke is streamed in batches, so a stage sees one
+ * batch at a time, starting with the last point already sent. Stages must keep the first and last
+ * point of a batch so that consecutive batches join up.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+@FunctionalInterface
+public interface PointFilter {
+
+	/** Stage that passes every point through. */
+	PointFilter NONE = points -> points;
+
+	/**
+	 * Processes a batch of points.
+	 * @param points batch of points, not modified.
+	 * @return the processed points, possibly the same buffer.
+	 */
+	PointBuffer apply(PointBuffer points);
+
+	/**
+	 * Pipeline of this stage followed by another one.
+	 * @param next
+	 */
+	default PointFilter andThen(PointFilter next) {
+		return points -> next.apply(apply(points));
+	}
+}
@@ -0,0 +1,195 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package whiteboardapp;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * This class contains a uniform grid over the bounding boxes of items on the whiteboard. It finds the
+ * items intersecting a region by looking only at the grid cells the region covers, so the cost depends
+ * on how much is drawn there rather than on the size of the whole draw history.
+ *
+ * Queries return items in the order they were inserted, which is the order they must be drawn in.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ * @param <T> type of the indexed items.
+ */
+public class SpatialIndex<T> {
+
+	/**
+	 * An indexed item with the bounds it was inserted with.
+	 */
+	private static class Entry<T> {
+		final T item;
+		final Rectangle bounds;
+		final long order;
+		/** Last query that returned this entry, so an entry in several cells is only returned once. */
+		int stamp;
+
+		Entry(T item, Rectangle bounds, long order) {
+			this.item = item;
+			this.bounds = bounds;
+			this.order = order;
+		}
+	}
+
+	/** Width and height of a grid cell. */
+	private final int cellSize;
+
+	/** Items covering more cells than this are kept in a separate list instead of the grid. */
+	private final int maxCellsPerItem;
+
+	/** Entries in each grid cell, keyed by the packed cell coordinates. */
+	private final Map<Long, List<Entry<T>>> cells = new HashMap<>();
+
+	/** Entries too large to be worth putting in the grid, checked by every query. */
+	private final List<Entry<T>> oversized = new ArrayList<>();
+
+	/** All entries by item. */
+	private final Map<T, Entry<T>> entries = new IdentityHashMap<>();
+
+	/** Insertion counter giving the draw order. */
+	private long nextOrder = 0;
+
+	/** Counter identifying the current query. */
+	private int queryStamp = 0;
+
+	/**
+	 * Constructor of SpatialIndex.
+	 * @param cellSize width and height of a grid cell.
+	 * @param maxCellsPerItem items covering more cells than this are not put in the grid.
+	 */
+	public SpatialIndex(int cellSize, int maxCellsPerItem) {
+		this.cellSize = cellSize;
+		this.maxCellsPerItem = maxCellsPerItem;
+	}
+
+	/**
+	 * Adds an item on top of the items already in the index.
+	 * @param item
+	 * @param bounds bounding box of everything the item draws.
+	 */
+	public void insert(T item, Rectangle bounds) {
+		remove(item);
+		Entry<T> entry = new Entry<>(item, new Rectangle(bounds), nextOrder++);
+		entries.put(item, entry);
+		if (cellCount(bounds) > maxCellsPerItem) {
+			oversized.add(entry);
+			return;
+		}
+		forEachCell(bounds, key -> cells.computeIfAbsent(key, _ -> new ArrayList<>()).add(entry));
+	}
+
+	/**
+	 * Removes an item from the index.
+	 * @param item
+	 * @return the bounds the item was inserted with, or null if it was not in the index.
+	 */
+	public Rectangle remove(T item) {
+		Entry<T> entry = entries.remove(item);
+		if (entry == null) {
+			return null;
+		}
+		if (cellCount(entry.bounds) > maxCellsPerItem) {
+			oversized.remove(entry);
+		} else {
+			forEachCell(entry.bounds, key -> {
+				List<Entry<T>> cell = cells.get(key);
+				cell.remove(entry);
+				if (cell.isEmpty()) {
+					cells.remove(key);
+				}
+			});
+		}
+		return entry.bounds;
+	}
+
+	/**
+	 * Finds the items whose bounds intersect a region.
+	 * @param region
+	 * @return the items in the order they were inserted.
+	 */
+	public List<T> query(Rectangle region) {
+		int stamp = ++queryStamp;
+		List<Entry<T>> found = new ArrayList<>();
+		for (Entry<T> entry : oversized) {
+			if (entry.bounds.intersects(region)) {
+				entry.stamp = stamp;
+				found.add(entry);
+			}
+		}
+		if (cellCount(region) > cells.size()) {
+			// the region covers more cells than are occupied, visiting the occupied ones is cheaper
+			for (List<Entry<T>> cell : cells.values()) {
+				collect(cell, region, stamp, found);
+			}
+		} else {
+			forEachCell(region, key -> {
+				List<Entry<T>> cell = cells.get(key);
+				if (cell != null) {
+					collect(cell, region, stamp, found);
+				}
+			});
+		}
+		found.sort(Comparator.comparingLong(e -> e.order));
+		List<T> items = new ArrayList<>(found.size());
+		for (Entry<T> entry : found) {
+			items.add(entry.item);
+		}
+		return items;
+	}
+
+	/**
+	 * Removes every item from the index.
+	 */
+	public void clear() {
+		cells.clear();
+		oversized.clear();
+		entries.clear();
+	}
+
+	/**
+	 * Getter for the number of items in the index.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	private void collect(List<Entry<T>> cell, Rectangle region, int stamp, List<Entry<T>> found) {
+		for (Entry<T> entry : cell) {
+			if (entry.stamp != stamp && entry.bounds.intersects(region)) {
+				entry.stamp = stamp;
+				found.add(entry);
+			}
+		}
+	}
+
+	private long cellCount(Rectangle bounds) {
+		long columns = Math.floorDiv(bounds.x + bounds.width, cellSize) - Math.floorDiv(bounds.x, cellSize) + 1;
+		long rows = Math.floorDiv(bounds.y + bounds.height, cellSize) - Math.floorDiv(bounds.y, cellSize) + 1;
+		return columns * rows;
+	}
+
+	private void forEachCell(Rectangle bounds, LongConsumer action) {
+		int firstColumn = Math.floorDiv(bounds.x, cellSize);
+		int lastColumn = Math.floorDiv(bounds.x + bounds.width, cellSize);
+		int firstRow = Math.floorDiv(bounds.y, cellSize);
+		int lastRow = Math.floorDiv(bounds.y + bounds.height, cellSize);
+		for (int column = firstColumn; column <= lastColumn; column++) {
+			for (int row = firstRow; row <= lastRow; row++) {
+				action.accept(((long) column << 32) | (row & 0xFFFFFFFFL));
+			}
+		}
+	}
+}
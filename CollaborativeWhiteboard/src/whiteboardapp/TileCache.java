@@ -0,0 +1,205 @@
+/**
+* Author: Matthias Si En Ong
+* Student Id: 1590392
+* Email: matthiaso@student.unimelb.edu.au
+*/
+package whiteboardapp;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * This class contains the rendered whiteboard split into square raster tiles, keyed by their column and
+ * row. Tiles are rendered lazily, only the part of a tile a repaint needs is rendered, and the least
+ * recently painted tiles are dropped once the cache holds more than its memory cap, so the size of the
+ * board does not bound how much of it can be drawn on.
+ *
+ * New drawables are drawn onto the cached tiles they touch, other tiles are left alone. Where drawables
+ * are removed the tiles are marked damaged and that part is rendered again from the board when next
+ * painted.
+ *
+ * @version 1.0
+ * @author Matthias Si En Ong
+ */
+public class TileCache {
+
+	/**
+	 * A rendered tile with the parts of it that are not up to date.
+	 */
+	private static class Tile {
+		final BufferedImage image;
+		final Area damage;
+
+		Tile(BufferedImage image, Area damage) {
+			this.image = image;
+			this.damage = damage;
+		}
+	}
+
+	/** Width and height of a tile. */
+	private final int tileSize;
+
+	/** Size in bytes of the pixels of the cached tiles, above which the least recently used are dropped. */
+	private final long maxBytes;
+
+	/** Renders a region of the board, given Graphics2D in board coordinates. */
+	private final BiConsumer<Graphics2D, Rectangle> renderer;
+
+	/** Rendered tiles by packed column and row, least recently painted first. */
+	private final LinkedHashMap<Long, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+
+	/** Size in bytes of the pixels of the cached tiles. */
+	private long bytes = 0;
+
+	/** Number of tile regions rendered so far. */
+	private long renderCount = 0;
+
+	/**
+	 * Constructor of TileCache.
+	 * @param tileSize width and height of a tile.
+	 * @param maxBytes memory cap of the cached tiles, at least one tile is always kept.
+	 * @param renderer renders a region of the board, given Graphics2D in board coordinates.
+	 */
+	public TileCache(int tileSize, long maxBytes, BiConsumer<Graphics2D, Rectangle> renderer) {
+		this.tileSize = tileSize;
+		this.maxBytes = maxBytes;
+		this.renderer = renderer;
+	}
+
+	/**
+	 * Draws the tiles a region of the board falls on, rendering the parts of them inside the region that
+	 * are not up to date.
+	 * @param g2 Graphics2D in board coordinates.
+	 * @param region
+	 */
+	public void paint(Graphics2D g2, Rectangle region) {
+		if (region.isEmpty()) {
+			return;
+		}
+		int firstColumn = Math.floorDiv(region.x, tileSize);
+		int lastColumn = Math.floorDiv(region.x + region.width - 1, tileSize);
+		int firstRow = Math.floorDiv(region.y, tileSize);
+		int lastRow = Math.floorDiv(region.y + region.height - 1, tileSize);
+		for (int column = firstColumn; column <= lastColumn; column++) {
+			for (int row = firstRow; row <= lastRow; row++) {
+				long key = ((long) column << 32) | (row & 0xFFFFFFFFL);
+				Rectangle bounds = tileBounds(key);
+				Tile tile = tiles.get(key);
+				if (tile == null) {
+					// a new tile is rendered lazily, one repainted region at a time
+					tile = new Tile(new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_RGB),
+							new Area(bounds));
+					tiles.put(key, tile);
+					bytes += tileBytes(tile.image);
+					evict();
+				}
+				repair(tile, bounds, region);
+				g2.drawImage(tile.image, bounds.x, bounds.y, null);
+			}
+		}
+	}
+
+	/**
+	 * Draws onto the cached tiles a region falls on, for a drawable added on top of the board. Tiles
+	 * that are not cached are left to be rendered with it later.
+	 * @param region bounds of what is drawn.
+	 * @param painter draws, given Graphics2D in board coordinates.
+	 */
+	public void drawOnto(Rectangle region, Consumer<Graphics2D> painter) {
+		for (Map.Entry<Long, Tile> entry : tiles.entrySet()) {
+			Rectangle bounds = tileBounds(entry.getKey());
+			if (bounds.intersects(region)) {
+				Graphics2D g2 = entry.getValue().image.createGraphics();
+				g2.translate(-bounds.x, -bounds.y);
+				painter.accept(g2);
+				g2.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Marks a region of the cached tiles as damaged, it is rendered again when next painted.
+	 * @param region
+	 */
+	public void invalidate(Rectangle region) {
+		for (Map.Entry<Long, Tile> entry : tiles.entrySet()) {
+			Rectangle bounds = tileBounds(entry.getKey());
+			if (bounds.intersects(region)) {
+				entry.getValue().damage.add(new Area(bounds.intersection(region)));
+			}
+		}
+	}
+
+	/**
+	 * Drops every cached tile.
+	 */
+	public void clear() {
+		tiles.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Getter for the number of cached tiles.
+	 */
+	public int size() {
+		return tiles.size();
+	}
+
+	/**
+	 * Getter for the size in bytes of the pixels of the cached tiles.
+	 */
+	public long getByteCount() {
+		return bytes;
+	}
+
+	/**
+	 * Getter for the number of tile regions rendered so far.
+	 */
+	public long getRenderCount() {
+		return renderCount;
+	}
+
+	/**
+	 * Renders the damaged part of a tile that falls inside a region.
+	 */
+	private void repair(Tile tile, Rectangle bounds, Rectangle region) {
+		Area repair = new Area(region);
+		repair.intersect(tile.damage);
+		if (repair.isEmpty()) {
+			return;
+		}
+		Rectangle damaged = repair.getBounds();
+		Graphics2D g2 = tile.image.createGraphics();
+		g2.translate(-bounds.x, -bounds.y);
+		renderer.accept(g2, damaged);
+		g2.dispose();
+		tile.damage.subtract(new Area(damaged));
+		renderCount++;
+	}
+
+	/**
+	 * Drops the least recently painted tiles until the cache is within its memory cap.
+	 */
+	private void evict() {
+		Iterator<Tile> it = tiles.values().iterator();
+		while (bytes > maxBytes && tiles.size() > 1) {
+			bytes -= tileBytes(it.next().image);
+			it.remove();
+		}
+	}
+
+	private Rectangle tileBounds(long key) {
+		return new Rectangle((int) (key >> 32) * tileSize, (int) key * tileSize, tileSize, tileSize);
+	}
+
+	private static long tileBytes(BufferedImage tile) {
+		return (long) tile.getWidth() * tile.getHeight() * Integer.BYTES;
+	}
+}
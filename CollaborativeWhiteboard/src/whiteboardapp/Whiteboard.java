@@ -5,25 +5,24 @@
 */
 package whiteboardapp;
 
-import java.awt.BasicStroke;
 import java.awt.Color;
-import java.awt.Font;
+import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
-import java.rmi.RemoteException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
@@ -31,6 +30,11 @@ import javax.swing.SwingUtilities;
 
 import remote.DrawEvent;
 import remote.IWhiteboardServer;
+import scene.BaseImage;
+import scene.Drawable;
+import scene.PointBuffer;
+import scene.ShapeInfo;
+import scene.TextField;
 import whiteboardapp.WhiteboardConstants.ShapeType;
 
 /**
@@ -47,8 +51,17 @@ public class Whiteboard extends JPanel {
 	/** Draw history of the whiteboard. */
 	private List<Drawable> drawHistory;
 	
-	/** Current stroke */
-	private List<Point> currentStroke = null;
+	/** Stroke being drawn locally, only added to the draw history once it is finished. */
+	private LiveStroke liveStroke = null;
+	
+	/** Id of the stroke being drawn locally. */
+	private long liveStrokeId;
+	
+	/** Old drawables flattened into an image, drawn below the draw history. */
+	private BaseImage base = new BaseImage();
+	
+	/** Drawables in the draw history by id. */
+	private transient Map<Long, Drawable> drawablesById = new HashMap<>();
 	
 	/** Starting point */
 	private Point startPoint;
@@ -70,319 +83,93 @@ public class Whiteboard extends JPanel {
 
 	/** Reference to the whiteboard server to synchronise information with */
 	IWhiteboardServer rmiServer;
-
-	/**
-	 * An abstract base class representing a drawable shape or stroke on the whiteboard.
-	 * This class holds common attributes like the list of points, color, and stroke size,
-	 * and defines an abstract method for rendering the object. Subclasses should implement how
-	 * to render the drawable object.
-	 * 
-	 * @version 1.0
-	 * @author Matthias Si En Ong
-	 */
-	public abstract class Drawable implements Serializable {
-		/** The version identifier */
-		private static final long serialVersionUID = 1L;
-
-		/** The sequence of points that make up the drawable shape or stroke. */
-		List<Point> points;
-		
-		/** Current colour that is being used. */
-		Color color;
-		
-		/** Current size that is being used. */
-		int size;
-
-		/** Draws the shape on the provided. */
-		abstract void draw(Graphics2D g2);
-		
-		/** Makes a deep copy of Drawable to prevent side effects across clients. */
-		public abstract Drawable copy();
-
-	}
-
-	/**
-	 * An class extends Drawable to implement a freehand stroke.
-	 * 
-	 * @version 1.0
-	 * @author Matthias Si En Ong
-	 */
-	class NormalStroke extends Drawable {
-		/** The version identifier */
-		private static final long serialVersionUID = 1L;
-
-		/**
-		 * Constructor of NormalStroke.
-	     * @param points
-	     * @param color
-	     * @param size
-	     */
-		public NormalStroke(List<Point> points, Color color, int size) {
-			this.points = points;
-			this.color = color;
-			this.size = size;
-		}
-
-		/**
-		 * Implements the rendering of a normal stroke.
-	     * @param g2 Graphics2D to provide 2D rendering functionality.
-	     */
-		@Override
-		void draw(Graphics2D g2) {
-			g2.setStroke(new BasicStroke(this.size, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-			g2.setColor(color);
-			for (int i = 1; i < points.size(); i++) {
-				Point p1 = points.get(i - 1);
-				Point p2 = points.get(i);
-				g2.drawLine(p1.x, p1.y, p2.x, p2.y);
-			}
-		}
-		
-		/**
-		 * Implements the copying.
-	     */
-		@Override
-		public Drawable copy() {
-		    List<Point> copiedPoints = new ArrayList<>();
-		    for (Point p : this.points) {
-		        copiedPoints.add(new Point(p));
-		    }
-		    return new NormalStroke(copiedPoints, new Color(color.getRGB()), size);
-		}
-	}
-
-	/**
-	 * An class extends Drawable to implement a text drawable.
-	 * 
-	 * @version 1.0
-	 * @author Matthias Si En Ong
-	 */
-	class TextField extends Drawable {
-		
-		/** The version identifier */
-		private static final long serialVersionUID = 1L;
-		
-		/** The text for the text field. */
-		String text;
-
-		/**
-		 * Constructor of TextField.
-		 * @param text
-	     * @param x
-	     * @param y
-	     * @param color
-	     * @param size
-	     */
-		public TextField(String text, int x, int y, Color color, int size) {
-			Point p1 = new Point(x, y);
-			this.points = new ArrayList<Point>(1);
-			this.points.add(p1);
-			this.color = color;
-			this.text = text;
-			this.size = size;
-		}
-
-		/**
-		 * Implements the rendering of a text field.
-	     * @param g2 Graphics2D to provide 2D rendering functionality.
-	     */
-		@Override
-		void draw(Graphics2D g2) {
-			g2.setColor(color);
-			g2.setFont(new Font("Arial", Font.PLAIN, this.size));
-			Point p1 = this.points.get(0);
-			g2.drawString(text, p1.x, p1.y);
-		}
-		
-		/**
-		 * Implements the copying.
-	     */
-		@Override
-		public Drawable copy() {
-		    Point p = this.points.get(0);
-		    return new TextField(new String(text), p.x, p.y, new Color(color.getRGB()), size);
-		}
-	}
-
+	
+	/** Sends the local drawing to the server, streaming strokes while they are drawn. */
+	private transient DrawEventSender sender;
+	
+	/** Strokes other clients are still drawing, by stroke id. */
+	private Map<Long, LiveStroke> remoteStrokes = new HashMap<>();
+	
+	/** Ids of local strokes whose sequence number has not come back from the server yet. */
+	private Set<Long> ownStrokes = new HashSet<>();
+	
+	/** Applies updates from the server in the order of its log. */
+	private transient BoardSync sync;
+	
 	/**
-	 * An class extends drawable to implement an eraser stroke.
-	 * 
-	 * @version 1.0
-	 * @author Matthias Si En Ong
+	 * Finished drawables rasterised in tiles, so a repaint does not replay the whole draw history.
+	 * Everything in the draw history is final, strokes are only added once they are finished.
 	 */
-	class EraserStroke extends Drawable {
-		
-		/** The version identifier */
-		private static final long serialVersionUID = 1L;
-
-		/**
-		 * Constructor of EraserStroke.
-		 * @param points
-	     * @param size
-	     */
-		public EraserStroke(List<Point> points, int size) {
-			this.points = points;
-			this.size = size;
-		}
-
-		/**
-		 * Implements the rendering of an eraser stroke.
-	     * @param g2 Graphics2D to provide 2D rendering functionality.
-	     */
-		@Override
-		void draw(Graphics2D g2) {
-			g2.setColor(Color.WHITE);
-			g2.setStroke(new BasicStroke(this.size, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-			for (int i = 1; i < points.size(); i++) {
-				Point p1 = points.get(i - 1);
-				Point p2 = points.get(i);
-				g2.drawLine(p1.x, p1.y, p2.x, p2.y);
-			}
-		}
-		
-		/**
-		 * Implements the copying.
-	     */
-		@Override
-		public Drawable copy() {
-		    List<Point> copiedPoints = new ArrayList<>();
-		    for (Point p : this.points) {
-		        copiedPoints.add(new Point(p));
-		    }
-		    return new EraserStroke(copiedPoints, size);
-		}
-	}
-
+	private transient TileCache tiles = new TileCache(WhiteboardConstants.CANVAS_TILE_SIZE,
+			WhiteboardConstants.TILE_CACHE_MAX_BYTES, this::renderRegion);
+	
+	/** Spatial index over the draw history, used to redraw only the drawables inside a damaged region. */
+	private transient SpatialIndex<Drawable> index = new SpatialIndex<>(WhiteboardConstants.INDEX_CELL_SIZE,
+			WhiteboardConstants.INDEX_MAX_CELLS_PER_ITEM);
+	
 	/**
-	 * An class extends drawable to implement different shape types.
-	 * 
-	 * @version 1.0
-	 * @author Matthias Si En Ong
+	 * Counts changes to the whiteboard other than drawables added on top of it, so that a save knows
+	 * when appending the new drawables to the file is not enough.
 	 */
-	class ShapeInfo extends Drawable {
-		
-		/** The version identifier */
-		private static final long serialVersionUID = 1L;
-		
-		/** The type of shape. */
-		ShapeType type;
-
-		/**
-		 * Constructor of ShapeInfo.
-		 * @param type Type of shape
-	     * @param p1
-	     * @param p2
-	     * @param color
-	     * @param size
-	     */
-		public ShapeInfo(ShapeType type, Point p1, Point p2, Color color, int size) {
-			this.points = new ArrayList<Point>(2);
-			this.points.add(p1);
-			this.points.add(p2);
-			this.type = type;
-			this.color = color;
-			this.size = size;
-		}
-
-		/**
-		 * Implements the rendering of a shape.
-	     * @param g Graphics2D to provide 2D rendering functionality.
-	     */
-		@Override
-		void draw(Graphics2D g) {
-			g.setStroke(new BasicStroke(this.size));
-			Point p1 = this.points.get(0);
-			Point p2 = this.points.get(1);
-			int x = Math.min(p1.x, p2.x);
-			int y = Math.min(p1.y, p2.y);
-			int w = Math.abs(p1.x - p2.x);
-			int h = Math.abs(p1.y - p2.y);
-			g.setColor(color);
-			switch (type) {
-			case LINE:
-				g.drawLine(p1.x, p1.y, p2.x, p2.y);
-				break;
-			case RECTANGLE:
-				g.drawRect(x, y, w, h);
-				break;
-			case OVAL:
-				g.drawOval(x, y, w, h);
-				break;
-			case TRIANGLE:
-				int midX = (p1.x + p2.x) / 2;
-				int[] xPoints = { midX, p1.x, p2.x };
-				int[] yPoints = { p1.y, p2.y, p2.y };
-				g.drawPolygon(xPoints, yPoints, 3);
-				break;
-			default:
-				break;
-			}
-		}
-		
-		/**
-		 * Implements the copying.
-	     */
-		@Override
-		public Drawable copy() {
-		    Point p1 = this.points.get(0);
-		    Point p2 = this.points.get(1);
-		    return new ShapeInfo(type, new Point(p1), new Point(p2), new Color(color.getRGB()), size);
-		}
-	}
+	private long rewriteCount = 0;
+	
+	/** Counts file loads, so that batches of a load that was superseded are ignored. */
+	private int loadGeneration = 0;
+	
+	/** Bounds of the shape preview shown by the last repaint. */
+	private Rectangle previewBounds = null;
+	
+	/** Whether repaints are collected until a batch of network events is applied. */
+	private boolean batchingRepaints = false;
+	
+	/** Union of the areas to repaint once the batch is applied, null if there are none. */
+	private Rectangle batchBounds = null;
 
 	/**
 	 * Constructor of Whiteboard. Initialises the whiteboard.
      * @param rmiServer
+     * @param username of the local user.
      */
-	public Whiteboard(IWhiteboardServer rmiServer) {
+	public Whiteboard(IWhiteboardServer rmiServer, String username) {
 		this.rmiServer = rmiServer;
+		this.sender = new DrawEventSender(rmiServer, username);
+		this.sync = new BoardSync(rmiServer, this);
 		this.drawHistory = new ArrayList<>();
 		setBackground(Color.WHITE);
+		setPreferredSize(new Dimension(WhiteboardConstants.BOARD_WIDTH, WhiteboardConstants.BOARD_HEIGHT));
 
 		addMouseListener(new MouseAdapter() {
 			
 			// Upon mouse pressed listener
 			public void mousePressed(MouseEvent e) {
 				if (SwingUtilities.isLeftMouseButton(e)) {
-					Drawable drawable = null;
-					if (currentShape == ShapeType.FREEHAND) {
-						currentStroke = new ArrayList<>();
-						currentStroke.add(e.getPoint());
-						drawable = new NormalStroke(currentStroke, currColour, toolSize);
-						drawHistory.add(drawable);
-					} else if (currentShape == ShapeType.ERASER) {
-						currentStroke = new ArrayList<>();
-						currentStroke.add(e.getPoint());
-						drawable = new EraserStroke(currentStroke, toolSize);
-						drawHistory.add(drawable);
+					if (currentShape == ShapeType.FREEHAND || currentShape == ShapeType.ERASER) {
+						liveStroke = new LiveStroke(currentShape, currColour, toolSize, PointBuffer.of(e.getPoint()));
+						liveStrokeId = sender.beginStroke(liveStroke.toHeader());
+						ownStrokes.add(liveStrokeId);
+						repaint(liveStroke.getBounds());
+					} else if (currentShape == ShapeType.OBJECT_ERASER) {
+						// only its trail is drawn, the drawables it covers are removed on release
+						liveStroke = new LiveStroke(currentShape, currColour, toolSize, PointBuffer.of(e.getPoint()));
+						repaint(liveStroke.getBounds());
 					} else if (currentShape == ShapeType.TEXT) {
 						String inputText = JOptionPane.showInputDialog("Enter text:");
 						if (inputText != null && !inputText.trim().isEmpty()) {
-							drawable = new TextField(inputText, e.getX(), e.getY(), currColour, fontSize);
-							drawHistory.add(drawable);
+							Drawable drawable = new TextField(inputText, e.getX(), e.getY(), currColour, fontSize);
+							commit(drawable);
+							sender.send(DrawEvent.fromDrawable(drawable));
 						}
 					} else {
-						currentStroke = null;
+						liveStroke = null;
 						startPoint = e.getPoint();
 						endPoint = startPoint;
 					}
-					if (drawable != null && rmiServer != null) {
-						DrawEvent drawEvent = convertToDrawableData(drawable);
-						try {
-							rmiServer.broadcastDrawEvent(drawEvent);
-							System.out.println("Broadcast Draw Event!");
-						} catch (RemoteException e1) {
-							System.out.println("Failed to broadcast draw event!");
-						}
-					}
-					repaint();
 
 				} else if (SwingUtilities.isRightMouseButton(e)) {
-					if (currentStroke != null) {
-						currentStroke.clear();
-					}
+					// stop the stroke where it is, the other clients already have its points
+					finishLiveStroke();
 					startPoint = endPoint = null;
-					repaint();
+					repaintPreview();
 				}
 			}
 
@@ -390,43 +177,36 @@ public class Whiteboard extends JPanel {
 			public void mouseReleased(MouseEvent e) {
 				endPoint = e.getPoint();
 				Drawable drawable = null;
-				if (currentShape == ShapeType.FREEHAND && currentStroke != null && !currentStroke.isEmpty()) {
-					drawable = new NormalStroke(new ArrayList<>(currentStroke), currColour, toolSize);
-					drawHistory.add(drawable);
-					currentStroke = null;
-				}
-				else if (currentShape == ShapeType.ERASER && currentStroke != null && !currentStroke.isEmpty()) {
-					drawable = new EraserStroke(new ArrayList<>(currentStroke), toolSize);
-					drawHistory.add(drawable);
-					currentStroke = null;
+				if (liveStroke != null) {
+					// the stroke was streamed while it was drawn
+					finishLiveStroke();
 				}
-				else if (currentShape != ShapeType.FREEHAND && startPoint != null) {
+				else if (currentShape != ShapeType.FREEHAND && currentShape != ShapeType.OBJECT_ERASER && startPoint != null) {
 					drawable = new ShapeInfo(currentShape, startPoint, endPoint, currColour, toolSize);
-					drawHistory.add(drawable);
+					commit(drawable);
 					
 				}
 				startPoint = endPoint = null;
-				if (drawable != null && rmiServer != null) {
-					DrawEvent drawEvent = convertToDrawableData(drawable);
-					try {
-						rmiServer.broadcastDrawEvent(drawEvent);
-						System.out.println("Broadcast Draw Event!");
-					} catch (RemoteException e1) {
-						System.out.println("Failed to broadcast draw event!");
-					}
+				if (drawable != null) {
+					sender.send(DrawEvent.fromDrawable(drawable));
 				}
-				repaint();
+				repaintPreview();
 			}
 		});
 
 		// Upon mouse moved listener
 		addMouseMotionListener(new MouseMotionAdapter() {
 			public void mouseDragged(MouseEvent e) {
-				endPoint = e.getPoint();
-				if (currentStroke != null) {
-					currentStroke.add(e.getPoint());
+				if (liveStroke != null) {
+					PointBuffer points = liveStroke.points;
+					points.add(e.getX(), e.getY());
+					sender.appendStroke(e.getX(), e.getY());
+					// a smoothed stroke also bends the segment before the new one
+					repaint(points.getBounds(Math.max(0, points.size() - 3), points.size(), liveStroke.size));
+				} else {
+					endPoint = e.getPoint();
+					repaintPreview();
 				}
-				repaint();
 			}
 		});
 	}
@@ -438,16 +218,182 @@ public class Whiteboard extends JPanel {
 	protected void paintComponent(Graphics g) {
 		super.paintComponent(g);
 		Graphics2D g2 = (Graphics2D)g.create();
+		Rectangle clip = g.getClipBounds();
+		if (clip == null) {
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		}
 
-		for (Drawable item : drawHistory) {
-			item.draw(g2);
+		tiles.paint(g2, clip);
+
+		// draw strokes that are still being drawn
+		for (LiveStroke item : remoteStrokes.values()) {
+			if (item.getBounds().intersects(clip)) {
+				item.draw(g2);
+			}
+		}
+		if (liveStroke != null && liveStroke.getBounds().intersects(clip)) {
+			liveStroke.draw(g2);
 		}
 
 		// draw incomplete shape
 		if (startPoint != null && endPoint != null) {
-			new ShapeInfo(currentShape, startPoint, endPoint, currColour, toolSize).draw(g2);
+			DrawableRenderer.draw(g2, new ShapeInfo(currentShape, startPoint, endPoint, currColour, toolSize));
+		}
+		g2.dispose();
+	}
+	
+	/**
+	 * Renders a region of the board from the base image and the drawables the spatial index finds there.
+	 * @param g2 Graphics2D in board coordinates.
+	 * @param region
+	 */
+	private void renderRegion(Graphics2D g2, Rectangle region) {
+		g2.setColor(getBackground());
+		g2.fill(region);
+		g2.clip(region);
+		base.drawTo(g2, region);
+		for (Drawable item : index.query(region)) {
+			DrawableRenderer.draw(g2, item);
+		}
+	}
+	
+	/**
+	 * Adds a finished drawable to the draw history and repaints the area it covers.
+	 * @param drawable
+	 */
+	private void commit(Drawable drawable) {
+		Rectangle bounds = drawable.getBounds();
+		drawHistory.add(drawable);
+		drawablesById.put(drawable.getId(), drawable);
+		index.insert(drawable, bounds);
+		tiles.drawOnto(bounds, g2 -> DrawableRenderer.draw(g2, drawable));
+		repaintChanged(bounds);
+	}
+	
+	/**
+	 * Repaints an area whose drawables changed, or adds it to the batch being applied.
+	 * @param bounds
+	 */
+	private void repaintChanged(Rectangle bounds) {
+		if (!batchingRepaints) {
+			repaint(bounds);
+		} else if (batchBounds == null) {
+			batchBounds = new Rectangle(bounds);
+		} else {
+			batchBounds.add(bounds);
 		}
 	}
+	
+	/**
+	 * Removes drawables from the draw history and repairs the area they covered.
+	 * @param ids of the drawables, ids not on the whiteboard are ignored.
+	 */
+	private void removeDrawables(long[] ids) {
+		Set<Long> removed = new HashSet<>();
+		for (long id : ids) {
+			if (drawablesById.remove(id) != null) {
+				removed.add(id);
+			}
+		}
+		if (removed.isEmpty()) {
+			return;
+		}
+		int kept = 0;
+		for (Drawable item : drawHistory) {
+			if (!removed.contains(item.getId())) {
+				drawHistory.set(kept++, item);
+				continue;
+			}
+			Rectangle bounds = index.remove(item);
+			tiles.invalidate(bounds);
+			repaintChanged(bounds);
+		}
+		drawHistory.subList(kept, drawHistory.size()).clear();
+		rewriteCount++;
+	}
+	
+	/**
+	 * Flattens drawables into the base image, they are drawn the same but no longer kept as vectors.
+	 * @param ids of the drawables, in the order they were drawn.
+	 */
+	private void flattenDrawables(long[] ids) {
+		List<Drawable> flattened = new ArrayList<>();
+		for (long id : ids) {
+			Drawable item = drawablesById.get(id);
+			if (item != null) {
+				flattened.add(item);
+			}
+		}
+		removeDrawables(ids);
+		base.draw(flattened, DrawableRenderer::draw);
+		rewriteCount++;
+	}
+	
+	/**
+	 * Removes the drawables covered by the object eraser and tells the other clients.
+	 * @param eraser
+	 */
+	private void eraseCovered(LiveStroke eraser) {
+		List<Drawable> covered = ObjectEraser.covered(eraser.points, eraser.size, index, base);
+		if (covered.isEmpty()) {
+			return;
+		}
+		long[] ids = new long[covered.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = covered.get(i).getId();
+		}
+		removeDrawables(ids);
+		sender.send(DrawEvent.removal(ids));
+	}
+	
+	/**
+	 * Rebuilds the spatial index after the whole draw history was replaced.
+	 */
+	private void rebuildIndex() {
+		index.clear();
+		drawablesById.clear();
+		for (Drawable item : drawHistory) {
+			index.insert(item, item.getBounds());
+			drawablesById.put(item.getId(), item);
+		}
+	}
+	
+	/**
+	 * Repaints the area of the shape preview, both where it was and where it is now.
+	 */
+	private void repaintPreview() {
+		Rectangle bounds = null;
+		if (startPoint != null && endPoint != null) {
+			bounds = new ShapeInfo(currentShape, startPoint, endPoint, currColour, toolSize).getBounds();
+		}
+		if (previewBounds != null) {
+			repaint(bounds == null ? previewBounds : previewBounds.union(bounds));
+		} else if (bounds != null) {
+			repaint(bounds);
+		}
+		previewBounds = bounds;
+	}
+	
+	/**
+	 * Finishes the local stroke being drawn. A stroke is added to the draw history with the simplified
+	 * points it was sent with, the object eraser removes the drawables it covers.
+	 */
+	private void finishLiveStroke() {
+		if (liveStroke == null) {
+			sender.endStroke();
+			return;
+		}
+		// the simplified stroke lies within the stroke drawn so far
+		repaint(liveStroke.getBounds());
+		if (liveStroke.type == ShapeType.OBJECT_ERASER) {
+			eraseCovered(liveStroke);
+		} else {
+			PointBuffer sentPoints = sender.endStroke();
+			commit(sentPoints == null ? liveStroke.toDrawable(liveStrokeId)
+					: liveStroke.toDrawable(liveStrokeId, sentPoints));
+		}
+		liveStroke = null;
+	}
 
 	/**
 	 * Add a drawable obtained from the whiteboard server to the client's whiteboard.
@@ -455,55 +401,151 @@ public class Whiteboard extends JPanel {
      */
 	public void addDrawableFromNetwork(DrawEvent event) {
 		System.out.println("Received Draw Event from Server");
-		Drawable drawable = null;
-		switch (event.type) {
-		case ShapeType.FREEHAND:
-			drawable = new NormalStroke(event.points, event.colour, event.size);
-			break;
-		case ShapeType.ERASER:
-			drawable = new EraserStroke(event.points, event.size);
-			break;
-		case ShapeType.TEXT:
-			Point textPoint = event.points.get(0);
-			drawable = new TextField(event.text, textPoint.x, textPoint.y, event.colour, event.size);
-			break;
-		case LINE: // all other shapes
-		case RECTANGLE:
-		case OVAL:
-		case TRIANGLE:
-			Point p1 = event.points.get(0);
-			Point p2 = event.points.get(1);
-			drawable = new ShapeInfo(event.type, p1, p2, event.colour, event.size);
-			break;
-		default:
+		sync.receive(event.seq, () -> {
+			applyDrawEvent(event);
+			return true;
+		});
+	}
+	
+	/**
+	 * Add the drawables of a batch of draw events obtained from the whiteboard server. The areas they
+	 * cover are repainted together, once the whole batch is applied.
+	 * @param events in the order they were drawn.
+     */
+	public void addDrawablesFromNetwork(List<DrawEvent> events) {
+		batchingRepaints = true;
+		try {
+			for (DrawEvent event : events) {
+				sync.receive(event.seq, () -> {
+					applyDrawEvent(event);
+					return true;
+				});
+			}
+		} finally {
+			batchingRepaints = false;
+			if (batchBounds != null) {
+				repaint(batchBounds);
+				batchBounds = null;
+			}
+		}
+	}
+	
+	/**
+	 * Adds the drawable of a draw event to the whiteboard, removes the drawables an object eraser
+	 * event erased, or flattens the drawables a flatten event names.
+	 * @param event
+     */
+	void applyDrawEvent(DrawEvent event) {
+		if (event.type == ShapeType.OBJECT_ERASER) {
+			if (event.targets != null) {
+				removeDrawables(event.targets);
+			}
+			return;
+		}
+		if (event.type == ShapeType.FLATTEN) {
+			if (event.targets != null) {
+				flattenDrawables(event.targets);
+			}
+			return;
+		}
+		if (drawablesById.containsKey(event.id)) {
+			return; // our own drawable coming back from the server
+		}
+		Drawable drawable = event.toDrawable();
+		if (drawable == null) {
 			System.err.println("Unknown shape type from network: " + event.type);
 			return;
 		}
-
-		drawHistory.add(drawable);
-		repaint();
+		commit(drawable);
 	}
-
+	
 	/**
-	 * Convert Drawable to DrawEvent to send over the network.
-	 * @param d Drawable
+	 * Starts rendering a stroke another client is drawing.
+	 * @param strokeId
+	 * @param header type, colour, size and first points of the stroke.
      */
-	public DrawEvent convertToDrawableData(Drawable d) {
-
-		if (d instanceof NormalStroke) {
-			NormalStroke ns = (NormalStroke) d;
-			return new DrawEvent(ShapeType.FREEHAND, ns.points, null, ns.size, ns.color);
-		} else if (d instanceof EraserStroke) {
-			EraserStroke es = (EraserStroke) d;
-			return new DrawEvent(ShapeType.ERASER, es.points, null, es.size, Color.WHITE);
-		} else if (d instanceof TextField) {
-			TextField tf = (TextField) d;
-			return new DrawEvent(ShapeType.TEXT, d.points, tf.text, tf.size, tf.color);
-		} else if (d instanceof ShapeInfo) {
-			ShapeInfo si = (ShapeInfo) d;
-			return new DrawEvent(si.type, si.points, null, si.size, si.color);
+	public void beginRemoteStroke(long strokeId, DrawEvent header) {
+		LiveStroke stroke = LiveStroke.fromHeader(header);
+		remoteStrokes.put(strokeId, stroke);
+		repaint(stroke.getBounds());
+	}
+	
+	/**
+	 * Adds newly drawn points to a stroke another client is drawing.
+	 * @param strokeId
+	 * @param points
+     */
+	public void appendRemoteStroke(long strokeId, PointBuffer points) {
+		LiveStroke stroke = remoteStrokes.get(strokeId);
+		if (stroke == null || points.isEmpty()) {
+			return; // started before we joined
 		}
-		return null;
+		// repaint from the last segment already drawn, smoothing bends it towards the new points
+		int from = Math.max(0, stroke.points.size() - 2);
+		stroke.points.addAll(points);
+		repaint(stroke.points.getBounds(from, stroke.points.size(), stroke.size));
+	}
+	
+	/**
+	 * Marks a stroke as finished once every event before it has been applied. Strokes that started
+	 * before the user joined are fetched from the server.
+	 * @param strokeId
+	 * @param seq sequence number of the stroke in the server's log.
+     */
+	public void endRemoteStroke(long strokeId, long seq) {
+		sync.receive(seq, new BoardSync.Update() {
+			@Override
+			public boolean apply() {
+				LiveStroke stroke = remoteStrokes.remove(strokeId);
+				if (stroke != null) {
+					commit(stroke.toDrawable(strokeId));
+					return true;
+				}
+				// our own strokes are already on the board
+				return ownStrokes.remove(strokeId);
+			}
+			
+			@Override
+			public void skip() {
+				// the finished stroke came with a catch-up, stop drawing the live one
+				ownStrokes.remove(strokeId);
+				LiveStroke stroke = remoteStrokes.remove(strokeId);
+				if (stroke != null) {
+					repaint(stroke.getBounds());
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Replaces the whole whiteboard with the board on the server, once every update before the reset
+	 * has been applied.
+	 * @param seq sequence number of the reset in the server's log.
+     */
+	public void resetFromNetwork(long seq) {
+		// the new board is not in the update, fetch it
+		sync.receive(seq, () -> false);
+	}
+	
+	/**
+	 * Replaces a tile of the base image, for when the board is fetched from the server.
+	 * @param key
+	 * @param png
+	 */
+	void putBaseTile(long key, byte[] png) {
+		base.putTile(key, png);
+		rewriteCount++;
+		Rectangle bounds = BaseImage.tileBounds(key);
+		tiles.invalidate(bounds);
+		repaint(bounds);
+	}
+	
+	/**
+	 * Fetches the board from the server, for when the user joins. Updates received in the meantime
+	 * are applied after it.
+     */
+	public void synchronise() {
+		sync.catchUp();
 	}
 	
 	/**
@@ -511,24 +553,87 @@ public class Whiteboard extends JPanel {
 	 * @param file
      */
 	public void saveToFile(File file) throws IOException {
-		if (!file.getName().toLowerCase().endsWith(".wbd")) {
-	        file = new File(file.getAbsolutePath() + ".wbd");
-	    }
-		
-		try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
-			out.writeObject(drawHistory);
-		}
+		BoardFile.write(BoardFile.withExtension(file), drawHistory, base);
 	}
 
 	/**
-	 * Loads a saved .wbd file to the local whiteboard and renders it.
+	 * Loads a saved .wbd file to the local whiteboard. The file is read in the background and drawn
+	 * batch by batch as it is read.
 	 * @param file
+	 * @param onLoaded run on the event dispatch thread once the whole file is on the whiteboard.
+	 * @param onError run on the event dispatch thread if the file cannot be read.
      */
-	@SuppressWarnings("unchecked")
-	public void loadFromFile(File file) throws Exception {
-		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
-			this.drawHistory = (List<Drawable>)in.readObject();
-			repaint();
+	public void loadFromFile(File file, Runnable onLoaded, Consumer<Exception> onError) {
+		setDrawHistory(new ArrayList<>());
+		int generation = ++loadGeneration;
+		Thread loader = new Thread(() -> {
+			FileLoader batches = new FileLoader(generation);
+			try {
+				BoardFile.Index index = BoardFile.readIndex(file);
+				if (index != null) {
+					System.out.println("Loading " + index.getDrawableCount() + " drawables and "
+							+ index.getTileCount() + " tiles from " + file.getName());
+				}
+				BoardFile.read(file, batches);
+				batches.flush();
+				SwingUtilities.invokeLater(() -> {
+					if (generation == loadGeneration) {
+						onLoaded.run();
+					}
+				});
+			} catch (IOException | ClassNotFoundException | RuntimeException e) {
+				SwingUtilities.invokeLater(() -> onError.accept(e));
+			}
+		}, "wbd-loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+	
+	/**
+	 * Hands what is read from a file to the event dispatch thread in batches.
+	 */
+	private class FileLoader implements BoardFile.Visitor {
+		
+		/** Load the batches belong to. */
+		private final int generation;
+		
+		/** Drawables read since the last batch. */
+		private List<Drawable> batch = new ArrayList<>();
+		
+		FileLoader(int generation) {
+			this.generation = generation;
+		}
+		
+		@Override
+		public void tile(long key, byte[] png) {
+			SwingUtilities.invokeLater(() -> {
+				if (generation == loadGeneration) {
+					putBaseTile(key, png);
+				}
+			});
+		}
+		
+		@Override
+		public void drawable(Drawable drawable) {
+			batch.add(drawable);
+			if (batch.size() >= WhiteboardConstants.FILE_LOAD_BATCH_SIZE) {
+				flush();
+			}
+		}
+		
+		/**
+		 * Adds the drawables read since the last batch to the whiteboard.
+		 */
+		void flush() {
+			List<Drawable> drawables = batch;
+			batch = new ArrayList<>();
+			SwingUtilities.invokeLater(() -> {
+				if (generation == loadGeneration) {
+					for (Drawable drawable : drawables) {
+						commit(drawable);
+					}
+				}
+			});
 		}
 	}
 
@@ -559,6 +664,20 @@ public class Whiteboard extends JPanel {
 	public List<Drawable> getDrawHistory() {
 		return this.drawHistory;
 	}
+	
+	/**
+	 * Getter for the number of changes to the whiteboard other than drawables added on top of it.
+     */
+	long getRewriteCount() {
+		return this.rewriteCount;
+	}
+	
+	/**
+	 * Getter for the flattened part of the whiteboard.
+     */
+	public BaseImage getBaseImage() {
+		return this.base;
+	}
 
 	/**
 	 * Setter for current shape selection.
@@ -589,11 +708,19 @@ public class Whiteboard extends JPanel {
 	}
 	
 	/**
-	 * Setter for entire draw history/whiteboard state.
+	 * Setter for entire draw history/whiteboard state. A stroke being drawn is finished on the server,
+	 * it and any other local stroke not yet in the new state are drawn again from the server's log.
      */
 	public void setDrawHistory(List<Drawable> newHistory) {
+		sender.endStroke();
+		ownStrokes.clear();
 		this.drawHistory = newHistory;
-		currentStroke = null;
+		this.base = new BaseImage();
+		rewriteCount++;
+		rebuildIndex();
+		tiles.clear();
+		remoteStrokes.clear();
+		liveStroke = null;
 		startPoint = null;
 		endPoint = null;
 		repaint();
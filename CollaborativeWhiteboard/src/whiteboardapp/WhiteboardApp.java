@@ -8,8 +8,9 @@ package whiteboardapp;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
-import java.io.IOException;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
 import javax.swing.BorderFactory;
@@ -30,6 +31,7 @@ import javax.swing.JList;
 import javax.swing.JMenuBar;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JOptionPane;
 import java.awt.Color;
 import javax.swing.JLabel;
@@ -76,6 +78,9 @@ public class WhiteboardApp {
 	/** Reference to the User List model GUI component. */
 	private DefaultListModel<String> userListModel = new DefaultListModel<>();
 	
+	/** Usernames waiting for the manager to let them join. */
+	private DefaultListModel<String> joinRequestModel = new DefaultListModel<>();
+	
 	/** Reference to the Chat Area GUI component. */
 	private JTextArea chatArea;
 	
@@ -87,6 +92,9 @@ public class WhiteboardApp {
 	
 	/** Reference to current file selected. */
 	private File currentFile;
+	
+	/** Saves the whiteboard in the background, only the manager saves. */
+	private BoardSaver saver;
 
 
 	/**
@@ -97,7 +105,7 @@ public class WhiteboardApp {
 	public WhiteboardApp(IWhiteboardServer rmiServer, String username, Boolean isManager) {
 		this.server = rmiServer;
 		this.username = username;
-		this.whiteboard = new Whiteboard(rmiServer);
+		this.whiteboard = new Whiteboard(rmiServer, username);
 		this.isManager = isManager;
 		initialise();
 		// run the connection in the background
@@ -119,6 +127,16 @@ public class WhiteboardApp {
 		frame.setIconImage(Toolkit.getDefaultToolkit().getImage(WhiteboardApp.class.getResource("/paint-brush.png")));
 		
 		if (this.isManager) {
+			saver = new BoardSaver(whiteboard, WhiteboardConstants.AUTOSAVE_INTERVAL_MS,
+					WhiteboardConstants.AUTOSAVE_COMPACT_EVERY);
+			saver.setAutosave(true);
+			frame.addWindowListener(new WindowAdapter() {
+				@Override
+				public void windowClosed(WindowEvent e) {
+					saver.close();
+				}
+			});
+			
 			JMenuBar menuBar = new JMenuBar();
 			menuBar.setBounds(0, 0, 600, 25);
 			
@@ -129,9 +147,10 @@ public class WhiteboardApp {
 			newItem.addActionListener(_ -> {
 				try {
 					this.whiteboard.setDrawHistory(new ArrayList<>());
-					server.setDrawHistory(this.whiteboard.getDrawHistory());
+					server.setDrawHistory(this.whiteboard.getDrawHistory(), this.whiteboard.getBaseImage());
 					server.broadcastWhiteboardHistory();
 					this.currentFile = null;
+					saver.setTarget(null);
 				} catch (RemoteException e) {
 					System.out.println("Error broadcasting whiteboard!");
 				}
@@ -142,23 +161,22 @@ public class WhiteboardApp {
 	        	fileChooser.setFileFilter(new FileNameExtensionFilter("Whiteboard Files (*.wbd)", "wbd"));
 	        	if (fileChooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
 	        		File file = fileChooser.getSelectedFile();
-	        		try {
-	        			whiteboard.loadFromFile(file);
-	        			server.setDrawHistory(this.whiteboard.getDrawHistory());
-	        			server.broadcastWhiteboardHistory();
-	        		} catch (Exception ex) {
-	        			JOptionPane.showMessageDialog(frame, "Error loading file: " + ex.getMessage());
-	        		}
+	        		saver.setTarget(null); // not autosaved over until saved again
+	        		whiteboard.loadFromFile(file, () -> {
+	        			try {
+	        				server.setDrawHistory(this.whiteboard.getDrawHistory(), this.whiteboard.getBaseImage());
+	        				server.broadcastWhiteboardHistory();
+	        			} catch (RemoteException e) {
+	        				System.out.println("Error broadcasting whiteboard!");
+	        			}
+	        		}, ex -> JOptionPane.showMessageDialog(frame, "Error loading file: " + ex.getMessage()));
 	        	}
 	        });
 	        JMenuItem saveItem = new JMenuItem("Save");
 	        saveItem.addActionListener(_ -> {
 	        	if (currentFile != null) {
-	        		try {
-	        			whiteboard.saveToFile(currentFile);
-	        		} catch (IOException ex) {
-	        			JOptionPane.showMessageDialog(frame, "Error saving file: " + ex.getMessage());
-	        		}
+	        		saver.save(currentFile, () -> {},
+	        				ex -> JOptionPane.showMessageDialog(frame, "Error saving file: " + ex.getMessage()));
 	            } else {
 	                saveAs(); // fallback to Save As
 	            }
@@ -168,12 +186,17 @@ public class WhiteboardApp {
 	        saveAsItem.addActionListener(_ -> {
 	        	saveAs();
 	        });
+	        JCheckBoxMenuItem autosaveItem = new JCheckBoxMenuItem("Autosave", true);
+	        autosaveItem.addActionListener(_ -> {
+	        	saver.setAutosave(autosaveItem.isSelected());
+	        });
 	        JMenuItem closeItem = new JMenuItem("Close");
 
 	        fileMenu.add(newItem);
 	        fileMenu.add(openItem);
 	        fileMenu.add(saveItem);
 	        fileMenu.add(saveAsItem);
+	        fileMenu.add(autosaveItem);
 	        fileMenu.addSeparator();
 	        fileMenu.add(closeItem);
 	        menuBar.add(fileMenu);
@@ -182,6 +205,10 @@ public class WhiteboardApp {
 			menuBar.add(manageMenu);
 			JMenuItem kickUserItem = new JMenuItem("Kick User");
 			manageMenu.add(kickUserItem);
+			JoinRequestDialog joinRequestDialog = new JoinRequestDialog(frame, server, joinRequestModel);
+			JMenuItem joinRequestsItem = new JMenuItem("Join Requests");
+			manageMenu.add(joinRequestsItem);
+			joinRequestsItem.addActionListener(_ -> joinRequestDialog.setVisible(true));
 			
 			kickUserItem.addActionListener(_ -> {
 			    String usernameToKick = JOptionPane.showInputDialog(frame, "Enter username to kick:");
@@ -205,15 +232,19 @@ public class WhiteboardApp {
 	        closeItem.addActionListener(_ -> frame.dispose());
 		}		
         
-        whiteboard.setBounds(0, 75, 750, 500);
-        frame.getContentPane().add(whiteboard);
+        // the board is larger than the window, only the visible tiles are rendered
+        JScrollPane boardScroll = new JScrollPane(whiteboard);
+        boardScroll.getHorizontalScrollBar().setUnitIncrement(16);
+        boardScroll.getVerticalScrollBar().setUnitIncrement(16);
+        boardScroll.setBounds(0, 75, 750, 500);
+        frame.getContentPane().add(boardScroll);
         
         JLabel shapesLabel = new JLabel("Tools");
         shapesLabel.setBounds(10, 0, 40, 24);
         frame.getContentPane().add(shapesLabel);
         
         JButton lineBtn = new JButton("Line");
-        lineBtn.setBounds(50, 0, 100, 24);
+        lineBtn.setBounds(50, 0, 70, 24);
         lineBtn.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -223,7 +254,7 @@ public class WhiteboardApp {
         frame.getContentPane().add(lineBtn);
         
         JButton rectangleBtn = new JButton("Rectangle");
-        rectangleBtn.setBounds(150, 0, 100, 24);
+        rectangleBtn.setBounds(120, 0, 100, 24);
         rectangleBtn.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -233,7 +264,7 @@ public class WhiteboardApp {
         frame.getContentPane().add(rectangleBtn);
         
         JButton ovalBtn = new JButton("Oval");
-        ovalBtn.setBounds(250, 0, 100, 24);
+        ovalBtn.setBounds(220, 0, 70, 24);
         ovalBtn.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -243,7 +274,7 @@ public class WhiteboardApp {
         frame.getContentPane().add(ovalBtn);
         
         JButton triangleBtn = new JButton("Triangle");
-        triangleBtn.setBounds(350, 0, 100, 24);
+        triangleBtn.setBounds(290, 0, 90, 24);
         triangleBtn.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -253,7 +284,7 @@ public class WhiteboardApp {
         frame.getContentPane().add(triangleBtn);
         
         JButton freeHandBtn = new JButton("Free Hand");
-        freeHandBtn.setBounds(450, 0, 100, 24);
+        freeHandBtn.setBounds(380, 0, 100, 24);
         freeHandBtn.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -263,7 +294,7 @@ public class WhiteboardApp {
         frame.getContentPane().add(freeHandBtn);
         
         JButton eraserBtn = new JButton("Eraser");
-        eraserBtn.setBounds(550, 0, 100, 24);
+        eraserBtn.setBounds(480, 0, 80, 24);
         eraserBtn.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -272,8 +303,18 @@ public class WhiteboardApp {
         });
         frame.getContentPane().add(eraserBtn);
         
+        JButton objectEraserBtn = new JButton("Object Eraser");
+        objectEraserBtn.setBounds(560, 0, 120, 24);
+        objectEraserBtn.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+            	whiteboard.setShapeSelection(ShapeType.OBJECT_ERASER);
+            }
+        });
+        frame.getContentPane().add(objectEraserBtn);
+        
         JButton textBtn = new JButton("Text");
-        textBtn.setBounds(650, 0, 100, 24);
+        textBtn.setBounds(680, 0, 70, 24);
         textBtn.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -416,12 +457,8 @@ public class WhiteboardApp {
     	fileChooser.setFileFilter(new FileNameExtensionFilter("Whiteboard Files (*.wbd)", "wbd"));
     	if (fileChooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION) {
     		File file = fileChooser.getSelectedFile();
-    		try {
-    			whiteboard.saveToFile(file);
-    			this.currentFile = file;
-    		} catch (IOException ex) {
-    			JOptionPane.showMessageDialog(frame, "Error saving file: " + ex.getMessage());
-    		}
+    		saver.save(file, () -> this.currentFile = file,
+    				ex -> JOptionPane.showMessageDialog(frame, "Error saving file: " + ex.getMessage()));
     	}
 	}
 	
@@ -446,6 +483,13 @@ public class WhiteboardApp {
 		return this.userListModel;
 	}
 
+	/**
+     * Getter for the join request list model, only shown to the manager.
+     */
+	public DefaultListModel<String> getJoinRequests() {
+		return this.joinRequestModel;
+	}
+
 	/**
      * Get chat area GUI
      */
@@ -13,5 +13,112 @@ package whiteboardapp;
 public class WhiteboardConstants {
 	
 	/** Different drawable shapes types. */
-	public enum ShapeType { LINE, RECTANGLE, OVAL, TRIANGLE, FREEHAND, ERASER, TEXT };
+	public enum ShapeType { LINE, RECTANGLE, OVAL, TRIANGLE, FREEHAND, ERASER, TEXT, OBJECT_ERASER, FLATTEN };
+	
+	/** Maximum number of calls waiting to be delivered to a single client before it is dropped. */
+	public static final int OUTBOUND_QUEUE_CAPACITY = 1024;
+	
+	/** Time after which a call to a client, or connecting to it, fails with a timeout. */
+	public static final int CLIENT_CALL_TIMEOUT_MS = 5000;
+	
+	/** Time without calls to a client after which it is sent a heartbeat. */
+	public static final long HEARTBEAT_INTERVAL_MS = 5000;
+	
+	/** Number of calls to a client in a row that may fail or time out before it is evicted. */
+	public static final int CLIENT_MAX_FAILURES = 3;
+	
+	/** Bytes of calls a client of the NIO transport may have unread before further calls to it fail. */
+	public static final int NIO_MAX_BACKLOG_BYTES = 4 * 1024 * 1024;
+	
+	/** Most draw events delivered to a client in a single call. */
+	public static final int DRAW_BATCH_MAX_EVENTS = 64;
+	
+	/** Longest a draw event waits for others to be delivered to a client with, in milliseconds. */
+	public static final int DRAW_BATCH_WINDOW_MS = 2;
+	
+	/** Number of batches of draw events delivered between reports of how batching went. */
+	public static final int DRAW_BATCH_REPORT_EVERY = 1000;
+	
+	/** Number of recent chat messages the server keeps. */
+	public static final int CHAT_HISTORY_CAPACITY = 500;
+	
+	/** Number of recent chat messages a client fetches when it joins. */
+	public static final int CHAT_HISTORY_ON_JOIN = 100;
+	
+	/** Maximum number of chat messages waiting to be delivered to a single client before it is dropped. */
+	public static final int CHAT_QUEUE_CAPACITY = 256;
+	
+	/** How long the host waits for queued calls to be delivered when shutting down. */
+	public static final long OUTBOUND_DRAIN_TIMEOUT_MS = 2000;
+	
+	/** How long a join request waits for the manager before it is denied. */
+	public static final long JOIN_REQUEST_TIMEOUT_MS = 5 * 60 * 1000;
+	
+	/** How often the points of a stroke being drawn are sent to the other clients. */
+	public static final int STROKE_FLUSH_INTERVAL_MS = 16;
+	
+	/** Largest distance in pixels a point of a stroke may be from the simplified stroke, 0 keeps every point. */
+	public static final double STROKE_SIMPLIFY_TOLERANCE = 1.0;
+	
+	/**
+	 * How long the points of a stroke are held back so that a run of them can be simplified together.
+	 * Three flush intervals, so other clients see a point up to 64 ms after it is drawn instead of 16 ms,
+	 * but only about a fifth of the points are sent instead of half.
+	 */
+	public static final int STROKE_SIMPLIFY_WINDOW_MS = 48;
+	
+	/** Number of strokes streamed between reports of how many of their points were sent. */
+	public static final int STROKE_REPORT_EVERY = 100;
+	
+	/** Whether strokes are drawn as smooth curves through their points instead of straight segments. */
+	public static final boolean STROKE_SMOOTHING = true;
+	
+	/** Width and height of a cell of the spatial index over the draw history. */
+	public static final int INDEX_CELL_SIZE = 64;
+	
+	/** Drawables covering more index cells than this are checked by every query instead. */
+	public static final int INDEX_MAX_CELLS_PER_ITEM = 256;
+	
+	/** Size of the board, the window shows part of it and scrolls. */
+	public static final int BOARD_WIDTH = 4000;
+	public static final int BOARD_HEIGHT = 3000;
+	
+	/** Width and height of a rendered tile of the board. */
+	public static final int CANVAS_TILE_SIZE = 256;
+	
+	/** Memory cap of the rendered tiles of the board, the least recently painted are dropped above it. */
+	public static final long TILE_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+	
+	/** Drawables read from a file before they are handed to the whiteboard to be drawn. */
+	public static final int FILE_LOAD_BATCH_SIZE = 256;
+	
+	/** Interval in milliseconds between autosaves of the board to its file. */
+	public static final int AUTOSAVE_INTERVAL_MS = 30000;
+	
+	/** Autosaves that only append new drawables before the whole board is written to the file again. */
+	public static final int AUTOSAVE_COMPACT_EVERY = 20;
+	
+	/** How long closing the application waits for the last autosave to be written. */
+	public static final long AUTOSAVE_CLOSE_TIMEOUT_MS = 5000;
+	
+	/** Number of recent events the server keeps so returning clients can fetch only what they missed. */
+	public static final int EVENT_LOG_CAPACITY = 4096;
+	
+	/** Size of a page of the board sent to a client that is too far behind to catch up otherwise. */
+	public static final int SNAPSHOT_PAGE_BYTES = 64 * 1024;
+	
+	/** Size of the events of a snapshot page below which they are sent without compressing them. */
+	public static final int SNAPSHOT_DEFLATE_MIN_BYTES = 4096;
+	
+	/** Compression level of the events of snapshot pages, from 1 for the fastest to 9 for the smallest. */
+	public static final int SNAPSHOT_DEFLATE_LEVEL = 1;
+	
+	/** Interval in milliseconds between writes of the server's journal to disk, a crash loses at most this much. */
+	public static final int JOURNAL_GROUP_COMMIT_MS = 20;
+	
+	/** Drawables kept as vectors before the oldest are flattened into the base image. */
+	public static final int FLATTEN_MAX_ITEMS = 10000;
+	
+	/** Points kept in vector drawables before the oldest are flattened into the base image. */
+	public static final int FLATTEN_MAX_POINTS = 1000000;
 }